@@ -0,0 +1,115 @@
+package com.github.maxonrash.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.dto.response.weather.current.*;
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Data shared by benchmarks: responses of weather API as objects and as bytes on the wire
+ */
+public final class BenchmarkFixtures {
+    /**
+     * Body of a successful response of current weather API
+     */
+    public static final byte[] WEATHER_BODY = ("{\"coord\":{\"lon\":37.6156,\"lat\":55.7522},"
+            + "\"weather\":[{\"id\":803,\"main\":\"Clouds\",\"description\":\"broken clouds\",\"icon\":\"04d\"}],"
+            + "\"base\":\"stations\",\"main\":{\"temp\":284.2,\"feels_like\":282.93,\"temp_min\":283.06,\"temp_max\":286.82,"
+            + "\"pressure\":1021,\"humidity\":60,\"sea_level\":1021,\"grnd_level\":910},\"visibility\":10000,"
+            + "\"wind\":{\"speed\":4.09,\"deg\":121,\"gust\":3.47},\"clouds\":{\"all\":83},\"dt\":1740217410,"
+            + "\"sys\":{\"type\":1,\"id\":6736,\"country\":\"RU\",\"sunrise\":1740199086,\"sunset\":1740235699},"
+            + "\"timezone\":10800,\"id\":524901,\"name\":\"Moscow\",\"cod\":200}").getBytes(StandardCharsets.UTF_8);
+    /**
+     * Body of a successful response of geocoding API
+     */
+    public static final byte[] GEOCODING_BODY = ("[{\"name\":\"Moscow\",\"local_names\":{\"en\":\"Moscow\",\"ru\":\"Москва\",\"de\":\"Moskau\"},"
+            + "\"lat\":55.7504461,\"lon\":37.6174943,\"country\":\"RU\",\"state\":\"Moscow\"}]").getBytes(StandardCharsets.UTF_8);
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Returns response of current weather API for specified location observed now
+     *
+     * @param name name of the city
+     * @param lat latitude
+     * @param lon longitude
+     * @return {@link CurrentWeatherResponseDTO}
+     */
+    public static CurrentWeatherResponseDTO weather(String name, double lat, double lon) {
+        return CurrentWeatherResponseDTO.builder().coord(new CoordDTO(lon, lat))
+                .weather(new WeatherDTO[]{new WeatherDTO(803, "Clouds", "broken clouds", "04d")})
+                .base("stations")
+                .main(new MainDTO(284.2, 282.93, 283.06, 286.82, 1021, 60, 1021, 910))
+                .visibility(10000)
+                .wind(new WindDTO(4.09, 121, 3.47))
+                .clouds(new CloudsDTO(83))
+                .dt(System.currentTimeMillis() / 1000)
+                .sys(new SysDTO(1, 6736, "RU", 1740199086, 1740235699))
+                .timezone(10800)
+                .id(524901)
+                .name(name)
+                .cod(200)
+                .build();
+    }
+
+    /**
+     * Returns stored weather of specified location observed now
+     *
+     * @param name name of the city
+     * @param lat latitude
+     * @param lon longitude
+     * @return {@link CurrentWeatherEntity}
+     */
+    public static CurrentWeatherEntity entity(String name, double lat, double lon) {
+        return CurrentWeatherResponseDTO.convertDTOtoEntity(weather(name, lat, lon));
+    }
+
+    /**
+     * Returns response of geocoding API for specified location
+     *
+     * @param name name of the city
+     * @param lat latitude
+     * @param lon longitude
+     * @return {@link GetGeocodingResponseDTO}
+     */
+    public static GetGeocodingResponseDTO geocode(String name, double lat, double lon) {
+        GetGeocodingResponseDTO geocode = new GetGeocodingResponseDTO();
+        geocode.setName(name);
+        geocode.setLat(lat);
+        geocode.setLon(lon);
+        geocode.setCountry("RU");
+        return geocode;
+    }
+
+    /**
+     * Returns latitude of the i-th point of a grid whose points are 0.05 degree apart, so they never share a cell
+     *
+     * @param i index of the point
+     * @return latitude
+     */
+    public static double gridLat(int i) {
+        return -80 + (i / 3000) * 0.05;
+    }
+
+    /**
+     * Returns longitude of the i-th point of a grid whose points are 0.05 degree apart, so they never share a cell
+     *
+     * @param i index of the point
+     * @return longitude
+     */
+    public static double gridLon(int i) {
+        return -170 + (i % 3000) * 0.05;
+    }
+
+    /**
+     * Turns off INFO logging of the SDK, so benchmarks measure the code instead of the console
+     */
+    public static void silenceLogging() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.maxonrash.benchmark;
+
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.store.ColumnarWeatherStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup and insertion of {@link ColumnarWeatherStore} at the sizes of {@link StoredCitiesDataBenchmark}, to compare
+ * building entity views from primitive arrays with returning stored entities
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarWeatherStoreBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private ColumnarWeatherStore store;
+    private double[] lats;
+    private double[] lons;
+    private CurrentWeatherEntity[] entities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFixtures.silenceLogging();
+        store = new ColumnarWeatherStore(size);
+        lats = new double[size];
+        lons = new double[size];
+        entities = new CurrentWeatherEntity[size * 2];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = BenchmarkFixtures.entity("City" + i, BenchmarkFixtures.gridLat(i), BenchmarkFixtures.gridLon(i));
+        }
+        for (int i = 0; i < size; i++) {
+            lats[i] = entities[i].getLat();
+            lons[i] = entities[i].getLon();
+            store.put(entities[i]);
+        }
+    }
+
+    @Benchmark
+    public CurrentWeatherEntity lookup() {
+        int i = ThreadLocalRandom.current().nextInt(size);
+        return store.get(lats[i], lons[i]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CurrentWeatherEntity lookupContended() {
+        return lookup();
+    }
+
+    @Benchmark
+    public boolean isUpToDate() {
+        int i = ThreadLocalRandom.current().nextInt(size);
+        return store.isUpToDate(lats[i], lons[i]);
+    }
+
+    /**
+     * Inserts stored and not stored cities half and half, so part of insertions replaces a city
+     */
+    @Benchmark
+    public void insert() {
+        store.put(entities[ThreadLocalRandom.current().nextInt(entities.length)]);
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.maxonrash.benchmark;
+
+import com.github.maxonrash.CurrentWeatherSDK;
+import com.github.maxonrash.Type;
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.service.GetCurrentWeatherService;
+import com.github.maxonrash.service.GetGeocodingService;
+import com.github.maxonrash.store.StoredGeocodingData;
+import com.github.maxonrash.store.cache.EvictionPolicyType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link CurrentWeatherSDK#retrieveCurrentWeatherJSON(String) retrieveCurrentWeatherJSON} with in-process
+ * services answering instantly, so the SDK itself is measured. On hits the weather is stored and up-to-date,
+ * on misses the storage holds one city and almost every call asks for another one
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RetrieveCurrentWeatherBenchmark {
+    private static final int CITY_COUNT = 64;
+    private static final String API_KEY = "benchmarkapikey0123456789abcdef";
+
+    @Param({"hit", "miss"})
+    private String lookup;
+
+    private String[] cityNames;
+    private CurrentWeatherSDK sdk;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkFixtures.silenceLogging();
+        StoredGeocodingData.clear();
+        cityNames = new String[CITY_COUNT];
+        for (int i = 0; i < CITY_COUNT; i++) {
+            cityNames[i] = "City" + (char) ('a' + i % 26) + (char) ('a' + i / 26);
+        }
+        GetGeocodingService geocodingService = (cityName, apiKey) -> {
+            int i = indexOf(cityName);
+            return new GetGeocodingResponseDTO[]{BenchmarkFixtures.geocode(cityName, BenchmarkFixtures.gridLat(i), BenchmarkFixtures.gridLon(i))};
+        };
+        GetCurrentWeatherService weatherService = new GetCurrentWeatherService() {
+            @Override
+            public CurrentWeatherResponseDTO getCurrentWeatherByLatAndLonString(String latAndLon, String apiKey) {
+                String[] parts = latAndLon.split("[=&]");
+                return BenchmarkFixtures.weather("City", Double.parseDouble(parts[1]), Double.parseDouble(parts[3]));
+            }
+        };
+        sdk = CurrentWeatherSDK.create(API_KEY, Type.ON_DEMAND, geocodingService, weatherService);
+        sdk.configureWeatherStorage("hit".equals(lookup) ? CITY_COUNT : 1, EvictionPolicyType.LRU);
+        for (String cityName : cityNames) {
+            sdk.retrieveCurrentWeatherJSON(cityName);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CurrentWeatherSDK.deleteAllKeys();
+        StoredGeocodingData.clear();
+    }
+
+    @Benchmark
+    public String retrieve() throws Exception {
+        return sdk.retrieveCurrentWeatherJSON(cityNames[ThreadLocalRandom.current().nextInt(CITY_COUNT)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String retrieveContended() throws Exception {
+        return retrieve();
+    }
+
+    private int indexOf(String cityName) {
+        for (int i = 0; i < cityNames.length; i++) {
+            if (cityNames[i].equals(cityName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(cityName);
+    }
+}
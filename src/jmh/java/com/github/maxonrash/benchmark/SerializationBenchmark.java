@@ -0,0 +1,62 @@
+package com.github.maxonrash.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.store.StoredCitiesData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of API response into stored entity and serialization of the entity into JSON
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    private final ObjectWriter writer = new ObjectMapper().writer();
+    private CurrentWeatherResponseDTO dto;
+    private CurrentWeatherEntity entity;
+    private StoredCitiesData.StoredWeather stored;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dto = BenchmarkFixtures.weather("Moscow", 55.7522, 37.6156);
+        entity = CurrentWeatherResponseDTO.convertDTOtoEntity(dto);
+        stored = StoredCitiesData.StoredWeather.of(entity);
+    }
+
+    @Benchmark
+    public CurrentWeatherEntity convertDTOtoEntity() {
+        return CurrentWeatherResponseDTO.convertDTOtoEntity(dto);
+    }
+
+    /**
+     * Serialization as it was done on every call before JSON was stored with the entity
+     */
+    @Benchmark
+    public String serializeWithNewObjectMapper() throws Exception {
+        return new ObjectMapper().writeValueAsString(entity);
+    }
+
+    @Benchmark
+    public byte[] serializeWithSharedWriter() throws Exception {
+        return writer.writeValueAsBytes(entity);
+    }
+
+    @Benchmark
+    public String storedJsonString() {
+        return stored.getJsonString();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] serializeWithSharedWriterContended() throws Exception {
+        return serializeWithSharedWriter();
+    }
+}
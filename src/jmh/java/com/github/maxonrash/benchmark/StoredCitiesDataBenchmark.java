@@ -0,0 +1,84 @@
+package com.github.maxonrash.benchmark;
+
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.store.StoredCitiesData;
+import com.github.maxonrash.store.cache.EvictionPolicyType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup and insertion of {@link StoredCitiesData} at several sizes of the storage, by one thread and by four threads at once
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StoredCitiesDataBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    @Param({"LRU", "W_TINY_LFU"})
+    private EvictionPolicyType policy;
+
+    private double[] lats;
+    private double[] lons;
+    private CurrentWeatherEntity[] entities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFixtures.silenceLogging();
+        StoredCitiesData.configure(size, policy);
+        lats = new double[size];
+        lons = new double[size];
+        entities = new CurrentWeatherEntity[size * 2];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = BenchmarkFixtures.entity("City" + i, BenchmarkFixtures.gridLat(i), BenchmarkFixtures.gridLon(i));
+        }
+        for (int i = 0; i < size; i++) {
+            lats[i] = entities[i].getLat();
+            lons[i] = entities[i].getLon();
+            StoredCitiesData.addCurrentWeatherData(entities[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        StoredCitiesData.configure(StoredCitiesData.DEFAULT_CAPACITY, EvictionPolicyType.LRU);
+    }
+
+    @Benchmark
+    public CurrentWeatherEntity lookup() {
+        int i = ThreadLocalRandom.current().nextInt(size);
+        return StoredCitiesData.findCurrentWeatherData(lats[i], lons[i]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CurrentWeatherEntity lookupContended() {
+        return lookup();
+    }
+
+    @Benchmark
+    public boolean isUpToDate() {
+        int i = ThreadLocalRandom.current().nextInt(size);
+        return StoredCitiesData.isStoredCityWeatherIsUpToDate(lats[i], lons[i]);
+    }
+
+    /**
+     * Inserts stored and not stored cities half and half, so part of insertions evicts a city
+     */
+    @Benchmark
+    public void insert() {
+        StoredCitiesData.addCurrentWeatherData(entities[ThreadLocalRandom.current().nextInt(entities.length)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void insertContended() {
+        insert();
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.maxonrash.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.maxonrash.benchmark.BenchmarkFixtures;
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization of API responses by the service implementations. Lives in the package of {@link ResponseDecoder}
+ * as the decoder is package-private
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseDecoderBenchmark {
+    private final String weatherBody = new String(BenchmarkFixtures.WEATHER_BODY, StandardCharsets.UTF_8);
+
+    @Benchmark
+    public CurrentWeatherResponseDTO decodeWeatherBytes() throws Exception {
+        return ResponseDecoder.decodeCurrentWeather(BenchmarkFixtures.WEATHER_BODY);
+    }
+
+    @Benchmark
+    public CurrentWeatherResponseDTO decodeWeatherStream() throws Exception {
+        return ResponseDecoder.decodeCurrentWeather(new ByteArrayInputStream(BenchmarkFixtures.WEATHER_BODY));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CurrentWeatherResponseDTO decodeWeatherBytesContended() throws Exception {
+        return decodeWeatherBytes();
+    }
+
+    @Benchmark
+    public GetGeocodingResponseDTO[] decodeGeocodingBytes() throws Exception {
+        return ResponseDecoder.decodeGeocoding(BenchmarkFixtures.GEOCODING_BODY);
+    }
+
+    /**
+     * Decoding as it was done before the streaming decoder: a new mapper, a tree and a second parse of the same string
+     */
+    @Benchmark
+    public CurrentWeatherResponseDTO decodeWeatherTwoPass() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode node = objectMapper.readTree(weatherBody);
+        if (node.get("cod").asInt() != 200) {
+            throw new IllegalStateException();
+        }
+        return objectMapper.readValue(weatherBody, CurrentWeatherResponseDTO.class);
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.maxonrash;
+
+/**
+ * Format of JSON written for a batch of cities by {@link BatchWeatherResult#writeJson(java.io.OutputStream, BatchOutputFormat)}.
+ * <p>{@link #JSON_ARRAY JSON_ARRAY} - single JSON array with one element per city
+ * <p>{@link #NDJSON NDJSON} - newline delimited JSON, one line with an element per city, so the output can be consumed line by line
+ */
+public enum BatchOutputFormat {
+    JSON_ARRAY,
+    NDJSON
+}
@@ -0,0 +1,184 @@
+package com.github.maxonrash;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.store.StoredCitiesData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result of {@link CurrentWeatherSDK#retrieveCurrentWeather(java.util.Collection) retrieving} current weather for
+ * several cities. Keeps weather of each city or the exception it failed with, in order of the requested city names.
+ * <p>Each city is written to JSON as an element {@code {"city":"<name>","weather":<weather>}} or
+ * {@code {"city":"<name>","error":"<exception class>","message":"<message>"}}. JSON of weather taken from
+ * {@link StoredCitiesData} is copied as it was serialized when the city was stored
+ */
+public class BatchWeatherResult {
+    private static final byte[] CITY_FIELD = "{\"city\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] WEATHER_FIELD = ",\"weather\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ERROR_FIELD = ",\"error\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MESSAGE_FIELD = ",\"message\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Outcome of each city in order of requested names: {@link StoredCitiesData.StoredWeather} or {@link Exception}
+     */
+    private final Map<String, Object> outcomes;
+
+    /**
+     * Constructs an empty result. Cities are added by {@link CurrentWeatherSDK} in order of requested names
+     */
+    BatchWeatherResult() {
+        this.outcomes = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds weather of the city
+     *
+     * @param cityName requested city name
+     * @param storedWeather weather of the city with its JSON
+     */
+    void addWeather(String cityName, StoredCitiesData.StoredWeather storedWeather) {
+        outcomes.put(cityName, storedWeather);
+    }
+
+    /**
+     * Adds exception the city has failed with
+     *
+     * @param cityName requested city name
+     * @param exception exception thrown for the city
+     */
+    void addFailure(String cityName, Exception exception) {
+        outcomes.put(cityName, exception);
+    }
+
+    /**
+     * Returns weather of cities retrieved successfully
+     *
+     * @return unmodifiable map of {@link CurrentWeatherEntity} by requested city name, in order of requested names
+     */
+    public Map<String, CurrentWeatherEntity> getResults() {
+        Map<String, CurrentWeatherEntity> results = new LinkedHashMap<>();
+        outcomes.forEach((cityName, outcome) -> {
+            if (outcome instanceof StoredCitiesData.StoredWeather storedWeather) {
+                results.put(cityName, storedWeather.getCurrentWeatherEntity());
+            }
+        });
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Returns exceptions of cities that failed, for example {@link com.github.maxonrash.exception.CityWithThisNameIsNotFoundException}
+     * or {@link com.github.maxonrash.exception.CallPerMinuteExceededException}
+     *
+     * @return unmodifiable map of exceptions by requested city name, in order of requested names
+     */
+    public Map<String, Exception> getFailures() {
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        outcomes.forEach((cityName, outcome) -> {
+            if (outcome instanceof Exception exception) {
+                failures.put(cityName, exception);
+            }
+        });
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Returns true if at least one city has failed
+     *
+     * @return true if there are failures
+     */
+    public boolean hasFailures() {
+        return outcomes.values().stream().anyMatch(Exception.class::isInstance);
+    }
+
+    /**
+     * Returns number of cities in the result
+     *
+     * @return number of distinct requested cities
+     */
+    public int size() {
+        return outcomes.size();
+    }
+
+    /**
+     * Writes UTF-8 JSON of all cities to specified stream
+     *
+     * @param out stream to write JSON to, it is not closed
+     * @param format {@link BatchOutputFormat#JSON_ARRAY JSON_ARRAY} or {@link BatchOutputFormat#NDJSON NDJSON}
+     * @throws IOException if an I/O error occurs when writing to the stream
+     */
+    public void writeJson(OutputStream out, BatchOutputFormat format) throws IOException {
+        boolean array = format == BatchOutputFormat.JSON_ARRAY;
+        if (array) {
+            out.write('[');
+        }
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : outcomes.entrySet()) {
+            if (array && !first) {
+                out.write(',');
+            }
+            first = false;
+            writeElement(out, entry.getKey(), entry.getValue());
+            if (!array) {
+                out.write('\n');
+            }
+        }
+        if (array) {
+            out.write(']');
+        }
+    }
+
+    /**
+     * Returns JSON of all cities
+     *
+     * @param format {@link BatchOutputFormat#JSON_ARRAY JSON_ARRAY} or {@link BatchOutputFormat#NDJSON NDJSON}
+     * @return JSON string
+     */
+    public String toJson(BatchOutputFormat format) {
+        var out = new ByteArrayOutputStream();
+        try {
+            writeJson(out, format);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void writeElement(OutputStream out, String cityName, Object outcome) throws IOException {
+        out.write(CITY_FIELD);
+        writeString(out, cityName);
+        if (outcome instanceof StoredCitiesData.StoredWeather storedWeather) {
+            out.write(WEATHER_FIELD);
+            storedWeather.writeJsonTo(out);
+        } else {
+            Exception exception = (Exception) outcome;
+            out.write(ERROR_FIELD);
+            writeString(out, exception.getClass().getSimpleName());
+            out.write(MESSAGE_FIELD);
+            writeString(out, exception.getMessage());
+        }
+        out.write('}');
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.write(NULL);
+            return;
+        }
+        out.write('"');
+        out.write(JsonStringEncoder.getInstance().quoteAsUTF8(value));
+        out.write('"');
+    }
+
+    @Override
+    public String toString() {
+        return "BatchWeatherResult(cities=" + outcomes.size() + ", failures=" + getFailures().keySet() + ")";
+    }
+}
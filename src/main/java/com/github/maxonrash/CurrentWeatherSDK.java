@@ -2,18 +2,56 @@ package com.github.maxonrash;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
 import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.entity.Coordinates;
 import com.github.maxonrash.entity.CurrentWeatherEntity;
 import com.github.maxonrash.exception.*;
+import com.github.maxonrash.metrics.Metrics;
 import com.github.maxonrash.service.GetCurrentWeatherService;
+import com.github.maxonrash.service.GetCurrentWeatherServiceImpl;
 import com.github.maxonrash.service.GetGeocodingService;
+import com.github.maxonrash.service.GetGeocodingServiceImpl;
+import com.github.maxonrash.service.PooledGetCurrentWeatherService;
+import com.github.maxonrash.service.PooledGetGeocodingService;
+import com.github.maxonrash.store.CoordinateGrid;
+import com.github.maxonrash.store.PollingConfig;
 import com.github.maxonrash.store.StoredCitiesData;
+import com.github.maxonrash.store.StoredCitiesRefresher;
+import com.github.maxonrash.store.StoredGeocodingData;
+import com.github.maxonrash.store.WeatherStorage;
+import com.github.maxonrash.store.cache.EvictionPolicyType;
+import com.github.maxonrash.store.cache.SingleFlight;
+import com.github.maxonrash.transport.ApiKeyPool;
+import com.github.maxonrash.transport.ApiKeyPoolConfig;
+import com.github.maxonrash.transport.HttpTransport;
+import com.github.maxonrash.transport.HttpTransportConfig;
+import com.github.maxonrash.transport.RateLimitConfig;
+import com.github.maxonrash.transport.RateLimitMode;
+import com.github.maxonrash.transport.RateLimiter;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * An object that is used to access Weather API
@@ -23,9 +61,14 @@ import java.util.List;
 public class CurrentWeatherSDK {
     /**
      * internal storage of added API keys. {@link #create(String, Type, GetGeocodingService, GetCurrentWeatherService) Creating}
-     * will add API key to this storage if it is not present, or return instance of {@link CurrentWeatherSDK} if it is already present
+     * will add API key to this storage if it is not present, or return instance of {@link CurrentWeatherSDK} if it is already present.
+     * Lookups don't lock, so concurrent creating of the same API key always returns one instance
      */
-    private static List<CurrentWeatherSDK> currentWeatherSDKList;
+    private static final ConcurrentHashMap<String, CurrentWeatherSDK> REGISTRY = new ConcurrentHashMap<>();
+    /**
+     * Writer serializing results that are not stored with their JSON, shared as it is immutable and thread-safe
+     */
+    private static final ObjectWriter JSON_WRITER = new ObjectMapper().writer();
     /**
      * API Key to access weather API
      */
@@ -33,9 +76,25 @@ public class CurrentWeatherSDK {
     /**
      * Mode type for retrieving current weather.
      * <p>{@link Type#ON_DEMAND ON_DEMAND} - updates weather data only for specified city if the weather data in storage is outdated
-     * <p>{@link Type#POLLING POLLING} - updates weather data for each city in storage if it is outdated
+     * <p>{@link Type#POLLING POLLING} - updates weather data for each city in storage in background before it gets outdated
+     * <p>{@link Type#STALE_WHILE_REVALIDATE STALE_WHILE_REVALIDATE} - returns outdated weather data within {@link #staleGraceWindow}
+     * immediately and updates it in background
      */
     private Type currentModeType;
+    /**
+     * Default time after weather data gets outdated during which it is still returned in
+     * {@link Type#STALE_WHILE_REVALIDATE STALE_WHILE_REVALIDATE} mode
+     */
+    public static final Duration DEFAULT_STALE_GRACE_WINDOW = Duration.ofMinutes(10);
+    /**
+     * Time after weather data gets outdated during which it is still returned in
+     * {@link Type#STALE_WHILE_REVALIDATE STALE_WHILE_REVALIDATE} mode. Older data is requested from weather API
+     */
+    private volatile Duration staleGraceWindow = DEFAULT_STALE_GRACE_WINDOW;
+    /**
+     * Default maximum number of cities requested from weather API at the same time by {@link #retrieveCurrentWeather(Collection)}
+     */
+    public static final int DEFAULT_BATCH_CONCURRENCY = 8;
     /**
      * Geocoding service that will be used
      */
@@ -44,6 +103,54 @@ public class CurrentWeatherSDK {
      * Service for retrieving current weather data that will be used
      */
     private final GetCurrentWeatherService getCurrentWeatherService;
+    /**
+     * HTTP transport owned by this object, null if the services were passed by the user.
+     * It is closed when the object is {@link #delete(String) deleted}
+     */
+    private final HttpTransport transport;
+    /**
+     * Requests to weather API in flight keyed by {@link CoordinateGrid} cell, so concurrent misses of the same city share one request
+     */
+    @Getter(AccessLevel.NONE)
+    private final SingleFlight<Long, StoredCitiesData.StoredWeather> weatherFlights = new SingleFlight<>();
+    /**
+     * Requests to geocoding API in flight keyed by {@link StoredGeocodingData#normalize(String) normalized} city name
+     */
+    @Getter(AccessLevel.NONE)
+    private final SingleFlight<String, GetGeocodingResponseDTO> geocodingFlights = new SingleFlight<>();
+    /**
+     * Parameters of background refreshing in {@link Type#POLLING POLLING} mode
+     */
+    private PollingConfig pollingConfig = PollingConfig.defaults();
+    /**
+     * Background refresher of {@link #weatherStorage} running while the mode is {@link Type#POLLING POLLING}
+     */
+    @Getter(AccessLevel.NONE)
+    private StoredCitiesRefresher refresher;
+    /**
+     * Parameters of client-side rate limiting, null if calls are not limited
+     */
+    private volatile RateLimitConfig rateLimitConfig;
+    /**
+     * Token bucket shared by geocoding and weather calls of this object, null if calls are not limited
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile RateLimiter rateLimiter;
+    /**
+     * Storage of weather requested with this object. Each object owns one, so cities of one API key are never
+     * evicted by requests of another. Its capacity can be changed with {@link #configureWeatherStorage(int, EvictionPolicyType)}
+     */
+    private volatile WeatherStorage weatherStorage;
+    /**
+     * Name of {@link #weatherStorage} in {@link Metrics}: <i>weather.</i> followed by masked API key, so storages of
+     * different API keys are told apart. Gauges <i>cache.&lt;name&gt;.size</i> and <i>cache.&lt;name&gt;.oldestEntryAgeSeconds</i>
+     * are registered while the object is not {@link #delete(String) deleted}
+     */
+    private final String metricsName;
+    /**
+     * Pool of API keys geocoding and weather calls of this object are spread across, null if all calls are sent with {@link #apiKey}
+     */
+    private final ApiKeyPool apiKeyPool;
 
     /**
      * Constructs the object with specified parameters. Cannot be used from outside this class.
@@ -56,14 +163,53 @@ public class CurrentWeatherSDK {
      * @param getCurrentWeatherService implementation of {@link GetCurrentWeatherService} for getting current weather for a location
      */
     private CurrentWeatherSDK(String apiKey, Type modeType, GetGeocodingService getGeocodingService, GetCurrentWeatherService getCurrentWeatherService) {
+        this(apiKey, modeType, getGeocodingService, getCurrentWeatherService, null);
+    }
+
+    /**
+     * Constructs the object with specified parameters and transport owned by it. Cannot be used from outside this class.
+     *
+     * @param apiKey API Key for accessing a weather API
+     * @param modeType Mode type for retrieving current weather.
+     * @param getGeocodingService implementation of {@link GetGeocodingService} for getting coordinates of a city
+     * @param getCurrentWeatherService implementation of {@link GetCurrentWeatherService} for getting current weather for a location
+     * @param transport {@link HttpTransport} to close on {@link #delete(String) delete}, may be null
+     */
+    private CurrentWeatherSDK(String apiKey, Type modeType, GetGeocodingService getGeocodingService, GetCurrentWeatherService getCurrentWeatherService, HttpTransport transport) {
+        this(apiKey, modeType, getGeocodingService, getCurrentWeatherService, transport, null);
+    }
+
+    /**
+     * Constructs the object with specified parameters, transport owned by it and pool of API keys. Cannot be used from outside this class.
+     *
+     * @param apiKey API Key for accessing a weather API, the first key of the pool if there is one
+     * @param modeType Mode type for retrieving current weather.
+     * @param getGeocodingService implementation of {@link GetGeocodingService} for getting coordinates of a city
+     * @param getCurrentWeatherService implementation of {@link GetCurrentWeatherService} for getting current weather for a location
+     * @param transport {@link HttpTransport} to close on {@link #delete(String) delete}, may be null
+     * @param apiKeyPool {@link ApiKeyPool} used by the services, may be null
+     */
+    private CurrentWeatherSDK(String apiKey, Type modeType, GetGeocodingService getGeocodingService, GetCurrentWeatherService getCurrentWeatherService,
+                              HttpTransport transport, ApiKeyPool apiKeyPool) {
+        this.apiKeyPool = apiKeyPool;
         this.getCurrentWeatherService = getCurrentWeatherService;
         this.getGeocodingService = getGeocodingService;
         this.apiKey = apiKey;
         this.currentModeType = modeType;
+        this.transport = transport;
+        if (transport != null) {
+            transport.setExtraAttemptPermit(this::tryAcquireBackgroundCall);
+        }
+        this.metricsName = StoredCitiesData.METRICS_NAME + "." + maskApiKey(apiKey);
+        this.weatherStorage = new WeatherStorage(StoredCitiesData.DEFAULT_CAPACITY, EvictionPolicyType.LRU, metricsName);
+        Metrics.registerGauge("cache." + metricsName + ".size", () -> weatherStorage.size());
+        Metrics.registerGauge("cache." + metricsName + ".oldestEntryAgeSeconds", () -> weatherStorage.getOldestEntryAgeSeconds());
+        this.refresher = new StoredCitiesRefresher(apiKey, getCurrentWeatherService, pollingConfig, this::tryAcquireBackgroundCall, this::getWeatherStorage);
+        updateRefresher();
     }
 
     /**
-     * Main way of creating an instance of the object. It will add API key to internal {@link #currentWeatherSDKList} storage
+     * Main way of creating an instance of the object. It will add API key to internal {@link #REGISTRY} storage
      * if it is not present, or return instance of {@link CurrentWeatherSDK} if it is already present
      *
      * @param  apiKey API Key for accessing a weather API. Cannot be null, blank and length must be up to 50 chars
@@ -73,31 +219,134 @@ public class CurrentWeatherSDK {
      * @return instance of {@link CurrentWeatherSDK}
      */
     public static CurrentWeatherSDK create(String apiKey, Type modeType, GetGeocodingService getGeocodingService, GetCurrentWeatherService getCurrentWeatherService) {
+        checkApiKey(apiKey);
+        return register(apiKey, modeType, () -> new CurrentWeatherSDK(apiKey, modeType, getGeocodingService, getCurrentWeatherService));
+    }
+
+    /**
+     * Creates an instance of the object using default OpenWeatherMap.org services that send requests through
+     * one {@link HttpTransport} owned by the instance. The transport keeps connections alive between requests
+     * and is closed when the API key is {@link #delete(String) deleted}. Works as
+     * {@link #create(String, Type, GetGeocodingService, GetCurrentWeatherService) create} if the API key is already present
+     *
+     * @param  apiKey API Key for accessing a weather API. Cannot be null, blank and length must be up to 50 chars
+     * @param modeType Mode type for retrieving current weather.
+     * @param transportConfig {@link HttpTransportConfig} with timeouts, HTTP version and executor of the transport
+     * @return instance of {@link CurrentWeatherSDK}
+     */
+    public static CurrentWeatherSDK create(String apiKey, Type modeType, HttpTransportConfig transportConfig) {
+        checkApiKey(apiKey);
+        return register(apiKey, modeType, () -> {
+            HttpTransport transport = new HttpTransport(transportConfig);
+            return new CurrentWeatherSDK(apiKey, modeType, new GetGeocodingServiceImpl(transport), new GetCurrentWeatherServiceImpl(transport), transport);
+        });
+    }
+
+    /**
+     * Creates an instance of the object spreading geocoding and weather calls across API keys of the pool, so its
+     * throughput is the sum of calls per minute of the keys. The services are wrapped into {@link PooledGetGeocodingService}
+     * and {@link PooledGetCurrentWeatherService}: a key that exceeded its calls per minute is benched, an invalid one is
+     * quarantined, and the call is repeated with another key. All keys share storage of the instance, so a city is
+     * requested once whatever key is used. The instance is registered with the first key of the pool and works as
+     * {@link #create(String, Type, GetGeocodingService, GetCurrentWeatherService) create} if that key is already present
+     *
+     * @param poolConfig {@link ApiKeyPoolConfig} with API keys, each cannot be null, blank and length must be up to 50 chars
+     * @param modeType Mode type for retrieving current weather.
+     * @param getGeocodingService implementation of {@link GetGeocodingService} for getting coordinates of a city
+     * @param getCurrentWeatherService implementation of {@link GetCurrentWeatherService} for getting current weather for a location
+     * @return instance of {@link CurrentWeatherSDK}
+     */
+    public static CurrentWeatherSDK create(ApiKeyPoolConfig poolConfig, Type modeType, GetGeocodingService getGeocodingService, GetCurrentWeatherService getCurrentWeatherService) {
+        ApiKeyPool pool = createApiKeyPool(poolConfig);
+        return register(pool.getPrimaryKey(), modeType, () -> new CurrentWeatherSDK(pool.getPrimaryKey(), modeType,
+                new PooledGetGeocodingService(getGeocodingService, pool), new PooledGetCurrentWeatherService(getCurrentWeatherService, pool), null, pool));
+    }
+
+    /**
+     * Creates an instance of the object spreading calls across API keys of the pool as
+     * {@link #create(ApiKeyPoolConfig, Type, GetGeocodingService, GetCurrentWeatherService) create} does, using default
+     * OpenWeatherMap.org services that send requests through one {@link HttpTransport} owned by the instance
+     *
+     * @param poolConfig {@link ApiKeyPoolConfig} with API keys, each cannot be null, blank and length must be up to 50 chars
+     * @param modeType Mode type for retrieving current weather.
+     * @param transportConfig {@link HttpTransportConfig} with timeouts, HTTP version and executor of the transport
+     * @return instance of {@link CurrentWeatherSDK}
+     */
+    public static CurrentWeatherSDK create(ApiKeyPoolConfig poolConfig, Type modeType, HttpTransportConfig transportConfig) {
+        ApiKeyPool pool = createApiKeyPool(poolConfig);
+        return register(pool.getPrimaryKey(), modeType, () -> {
+            HttpTransport transport = new HttpTransport(transportConfig);
+            return new CurrentWeatherSDK(pool.getPrimaryKey(), modeType, new PooledGetGeocodingService(new GetGeocodingServiceImpl(transport), pool),
+                    new PooledGetCurrentWeatherService(new GetCurrentWeatherServiceImpl(transport), pool), transport, pool);
+        });
+    }
+
+    /**
+     * Returns the API key masked for metrics: its first four chars followed by hex hash code of the whole key
+     *
+     * @param apiKey API Key for accessing a weather API
+     * @return masked API key
+     */
+    private static String maskApiKey(String apiKey) {
+        return apiKey.substring(0, Math.min(apiKey.length(), 4)) + "-" + Integer.toHexString(apiKey.hashCode());
+    }
+
+    /**
+     * Throws {@link ApiKeyIsNullOrEmptyException} if the API key is null, blank or longer than 50 chars
+     *
+     * @param apiKey API Key for accessing a weather API
+     */
+    private static void checkApiKey(String apiKey) {
         if (apiKey == null || apiKey.isBlank() || apiKey.length() > 50) {
             throw new ApiKeyIsNullOrEmptyException();
         }
-        if (currentWeatherSDKList == null) {
-            currentWeatherSDKList = new ArrayList<>();
-        }
-        for (CurrentWeatherSDK obj : currentWeatherSDKList) {
-            if (obj.apiKey.equals(apiKey)) {
-                obj.setCurrentModeType(modeType);
-                return obj;
+    }
+
+    /**
+     * Checks API keys of the config and creates {@link ApiKeyPool} of them
+     *
+     * @param poolConfig {@link ApiKeyPoolConfig} with API keys
+     * @return new {@link ApiKeyPool}
+     */
+    private static ApiKeyPool createApiKeyPool(ApiKeyPoolConfig poolConfig) {
+        poolConfig.getKeys().keySet().forEach(CurrentWeatherSDK::checkApiKey);
+        return poolConfig.createApiKeyPool();
+    }
+
+    /**
+     * Returns registered instance of the API key changing its mode, or registers the one made by the factory.
+     * The factory is called at most once per API key even if it is created from many threads at once
+     *
+     * @param apiKey API Key for accessing a weather API
+     * @param modeType Mode type for retrieving current weather.
+     * @param factory constructs a new instance
+     * @return instance of {@link CurrentWeatherSDK}
+     */
+    private static CurrentWeatherSDK register(String apiKey, Type modeType, Supplier<CurrentWeatherSDK> factory) {
+        CurrentWeatherSDK existing = REGISTRY.get(apiKey);
+        if (existing == null) {
+            boolean[] created = new boolean[1];
+            existing = REGISTRY.computeIfAbsent(apiKey, key -> {
+                created[0] = true;
+                return factory.get();
+            });
+            if (created[0]) {
+                return existing;
             }
         }
-        CurrentWeatherSDK currentWeatherSDK = new CurrentWeatherSDK(apiKey, modeType, getGeocodingService, getCurrentWeatherService);
-        CurrentWeatherSDK.currentWeatherSDKList.add(currentWeatherSDK);
-        return currentWeatherSDK;
+        existing.setCurrentModeType(modeType);
+        return existing;
     }
 
     /**
-     * Removes specified API Key from internal {@link #currentWeatherSDKList} storage
+     * Removes specified API Key from internal {@link #REGISTRY} storage and closes its {@link HttpTransport} if it owns one
      *
      * @param apiKey API Key for accessing a weather API
      */
     public static void delete(String apiKey) {
-        if (currentWeatherSDKList != null) {
-            currentWeatherSDKList.removeIf(obj -> obj.getApiKey().equals(apiKey));
+        CurrentWeatherSDK removed = apiKey == null ? null : REGISTRY.remove(apiKey);
+        if (removed != null) {
+            removed.close();
             log.info("removed apiKey \"" + apiKey.substring(0,15) + "...\" from memory");
         }
         else {
@@ -106,34 +355,38 @@ public class CurrentWeatherSDK {
     }
 
     /**
-     * Removes all API Keys from internal {@link #currentWeatherSDKList} storage
+     * Removes all API Keys from internal {@link #REGISTRY} storage and closes their {@link HttpTransport transports}
      */
     public static void deleteAllKeys() {
+        for (String apiKey : REGISTRY.keySet()) {
+            CurrentWeatherSDK removed = REGISTRY.remove(apiKey);
+            if (removed != null) {
+                removed.close();
+            }
+        }
         log.info("removed all apiKeys from memory");
-        currentWeatherSDKList = null;
     }
 
     /**
-     * Returns true if specified API key is in internal {@link #currentWeatherSDKList} storage.
+     * Returns true if specified API key is in internal {@link #REGISTRY} storage.
      *
      * @param apiKey API Key for accessing a weather API
-     * @return true if API key is in the storage, false if not or the storage is null
+     * @return true if API key is in the storage, false if not
      */
     public static boolean isObjectWithThisApiKeyAlreadyExists(String apiKey) {
-        if (currentWeatherSDKList != null) {
-            var optional = currentWeatherSDKList.stream().filter(obj -> obj.getApiKey().equals(apiKey)).findFirst();
-            log.info("presence of apiKey \"" + apiKey.substring(0,15) + "...\" is " + optional.isPresent());
-            return optional.isPresent();
-        }
-        log.info("no keys in store yet");
-        return false;
+        boolean present = apiKey != null && REGISTRY.containsKey(apiKey);
+        log.info("presence of apiKey \"" + (apiKey == null ? null : apiKey.substring(0, Math.min(apiKey.length(), 15))) + "...\" is " + present);
+        return present;
     }
 
     /**
      * Returns JSON string of {@link CurrentWeatherEntity} <p>While {@link Type} mode is {@link Type#ON_DEMAND} gets the
-     * weather data from {@link StoredCitiesData} if it is up-to-date (within 10 minutes). If not - updates data only for
-     * specified city before retrieving.<p> While {@link Type} mode is {@link Type#POLLING} updates data of each city stored
-     * in {@link StoredCitiesData} if it is not up-to-date (within 10 minutes) before retrieving for each request.
+     * weather data from {@link #weatherStorage} if it is up-to-date (within 10 minutes). If not - updates data only for
+     * specified city before retrieving.<p> While {@link Type} mode is {@link Type#POLLING} gets the weather data from
+     * {@link #weatherStorage} if the city is stored, as each stored city is updated in background before it gets outdated.
+     * Only cities that are not stored yet are requested from weather API.<p> While {@link Type} mode is
+     * {@link Type#STALE_WHILE_REVALIDATE} outdated weather data is returned immediately if it is outdated for less than
+     * {@link #getStaleGraceWindow() staleGraceWindow}, and the city is updated in background.
      *
      * @param cityName name of city that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$" Example: Rostov_na_donu
      * @return JSON string of {@link CurrentWeatherEntity}
@@ -144,33 +397,389 @@ public class CurrentWeatherSDK {
      * @throws CityWithThisNameIsNotFoundException if the city with specified name is not found by weather API
      */
     public String retrieveCurrentWeatherJSON(String cityName) throws JsonProcessingException, InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException, CityWithThisNameIsNotFoundException {
-        CurrentWeatherEntity currentWeatherEntity;
+        return retrieveCurrentWeather(cityName).getJsonString();
+    }
+
+    /**
+     * Returns JSON string of {@link CurrentWeatherEntity} at specified location. Works as
+     * {@link #retrieveCurrentWeatherJSON(String) retrieveCurrentWeatherJSON}, but geocoding is skipped, so clients that
+     * already know coordinates of the city save a call to geocoding API and a lookup of the name
+     *
+     * @param lat latitude from -90 to 90
+     * @param lon longitude from -180 to 180
+     * @return JSON string of {@link CurrentWeatherEntity}
+     * @throws IncorrectLatAndLonStringException if latitude or longitude is out of range
+     * @throws InvalidApiKeyException if API key is incorrect or haven't been activated yet (may take a while)
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    public String retrieveCurrentWeatherJSON(double lat, double lon) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        return retrieveCurrentWeatherJSON(Coordinates.of(lat, lon));
+    }
+
+    /**
+     * Returns JSON string of {@link CurrentWeatherEntity} at specified {@link Coordinates} without geocoding, see
+     * {@link #retrieveCurrentWeatherJSON(double, double) retrieveCurrentWeatherJSON}
+     *
+     * @param coordinates location of the city
+     * @return JSON string of {@link CurrentWeatherEntity}
+     * @throws InvalidApiKeyException if API key is incorrect or haven't been activated yet (may take a while)
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    public String retrieveCurrentWeatherJSON(Coordinates coordinates) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        return retrieveCurrentWeather(coordinates.toString(), coordinates).getJsonString();
+    }
+
+    /**
+     * Writes UTF-8 JSON of {@link CurrentWeatherEntity} to specified stream. Works as
+     * {@link #retrieveCurrentWeatherJSON(String) retrieveCurrentWeatherJSON}, but JSON of a stored city is written
+     * as it was serialized when the city was stored, without creating a string
+     *
+     * @param cityName name of city that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$" Example: Rostov_na_donu
+     * @param out stream to write JSON to, it is not closed
+     * @throws IOException if an I/O error occurs when writing to the stream
+     * @throws InvalidApiKeyException if API key is incorrect or haven't been activated yet (may take a while)
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     * @throws CityWithThisNameIsNotFoundException if the city with specified name is not found by weather API
+     */
+    public void writeCurrentWeatherJSON(String cityName, OutputStream out) throws IOException, InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException, CityWithThisNameIsNotFoundException {
+        retrieveCurrentWeather(cityName).writeJsonTo(out);
+    }
+
+    /**
+     * Returns UTF-8 JSON of {@link CurrentWeatherEntity} as a read-only buffer. Works as
+     * {@link #retrieveCurrentWeatherJSON(String) retrieveCurrentWeatherJSON}, but JSON of a stored city is not copied:
+     * the buffer is a view of the bytes serialized when the city was stored
+     *
+     * @param cityName name of city that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$" Example: Rostov_na_donu
+     * @return read-only {@link ByteBuffer} with UTF-8 JSON
+     * @throws InvalidApiKeyException if API key is incorrect or haven't been activated yet (may take a while)
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     * @throws CityWithThisNameIsNotFoundException if the city with specified name is not found by weather API
+     */
+    public ByteBuffer retrieveCurrentWeatherJSONBuffer(String cityName) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException, CityWithThisNameIsNotFoundException {
+        return retrieveCurrentWeather(cityName).getJsonBuffer();
+    }
+
+    /**
+     * Returns current weather of several cities with at most {@link #DEFAULT_BATCH_CONCURRENCY} requests to weather API
+     * in flight. Works as {@link #retrieveCurrentWeather(Collection, int)}
+     *
+     * @param cityNames names of cities that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$"
+     * @return {@link BatchWeatherResult} with weather or exception of each distinct city
+     */
+    public BatchWeatherResult retrieveCurrentWeather(Collection<String> cityNames) {
+        return retrieveCurrentWeather(cityNames, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Returns current weather of several cities. Names equal ignoring case and surrounding whitespaces are requested
+     * once and kept in the result under their first spelling. All cities are first looked up in {@link StoredGeocodingData}
+     * and {@link #weatherStorage} in one pass using the same rules as {@link #retrieveCurrentWeatherJSON(String)
+     * retrieveCurrentWeatherJSON}, then only the missing ones are requested from weather API concurrently. Requests
+     * take tokens of client-side rate limiting as single calls do. A city that fails does not fail the others:
+     * its exception is kept in {@link BatchWeatherResult#getFailures()}
+     *
+     * @param cityNames names of cities that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$"
+     * @param maxConcurrency maximum number of cities requested from weather API at the same time, must be positive
+     * @return {@link BatchWeatherResult} with weather or exception of each distinct city in order of the names
+     */
+    public BatchWeatherResult retrieveCurrentWeather(Collection<String> cityNames, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive, got " + maxConcurrency);
+        }
+        Map<String, String> distinctNames = new LinkedHashMap<>();
+        for (String cityName : cityNames) {
+            distinctNames.putIfAbsent(cityName == null ? null : StoredGeocodingData.normalize(cityName), cityName);
+        }
+
+        boolean groupRequestSupported = getCurrentWeatherService.isGroupRequestSupported();
+        Map<String, Object> outcomes = new ConcurrentHashMap<>();
+        List<Supplier<CompletableFuture<?>>> requests = new ArrayList<>();
+        Map<String, CurrentWeatherEntity> outdatedWithId = new LinkedHashMap<>();
+        for (String cityName : distinctNames.values()) {
+            var stored = cityName == null ? null : StoredGeocodingData.getGeocodingData(cityName);
+            if (stored == null) {
+                requests.add(() -> retrieveCurrentWeatherAsync(cityName).whenComplete(outcomeRecorder(outcomes, cityName)));
+            } else if (stored.isNotFound()) {
+                outcomes.put(cityName, new CityWithThisNameIsNotFoundException(cityName.strip()));
+            } else {
+                double lat = stored.getGeocodingResponseDTO().getLat();
+                double lon = stored.getGeocodingResponseDTO().getLon();
+                StoredCitiesData.StoredWeather storedWeather = findServableCurrentWeather(cityName, lat, lon);
+                CurrentWeatherEntity outdated;
+                if (storedWeather != null) {
+                    outcomes.put(cityName, storedWeather);
+                } else if (groupRequestSupported && (outdated = weatherStorage.findCurrentWeatherData(lat, lon)) != null && outdated.getId() > 0) {
+                    outdatedWithId.put(cityName, outdated);
+                } else {
+                    requests.add(() -> requestCurrentWeatherAsync(lat, lon).whenComplete(outcomeRecorder(outcomes, cityName)));
+                }
+            }
+        }
+        List<Map.Entry<String, CurrentWeatherEntity>> groupable = new ArrayList<>(outdatedWithId.entrySet());
+        for (int from = 0; from < groupable.size(); from += GetCurrentWeatherService.MAX_GROUP_SIZE) {
+            var group = groupable.subList(from, Math.min(from + GetCurrentWeatherService.MAX_GROUP_SIZE, groupable.size()));
+            requests.add(() -> refreshGroupAsync(group, outcomes));
+        }
+        log.info("Found " + outcomes.size() + " of " + distinctNames.size() + " cities in storage, sending " + requests.size() + " requests");
+
+        Semaphore inFlight = new Semaphore(maxConcurrency);
+        List<CompletableFuture<?>> sent = new ArrayList<>(requests.size());
+        try {
+            for (Supplier<CompletableFuture<?>> request : requests) {
+                inFlight.acquire();
+                CompletableFuture<?> future;
+                try {
+                    future = request.get();
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                sent.add(future.whenComplete((ignored, error) -> inFlight.release()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new)).exceptionally(error -> null).join();
+
+        var result = new BatchWeatherResult();
+        for (String cityName : distinctNames.values()) {
+            Object outcome = outcomes.get(nullSafe(cityName));
+            if (outcome instanceof StoredCitiesData.StoredWeather storedWeather) {
+                result.addWeather(cityName, storedWeather);
+            } else {
+                result.addFailure(cityName, outcome instanceof Exception exception ? exception
+                        : new IllegalStateException("City \"" + cityName + "\" has not been requested"));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Requests weather of outdated stored cities with one group request by their IDs and records outcome of each city.
+     * Cities missing in the response are requested by their coordinates
+     *
+     * @param group requested city names with their outdated stored weather
+     * @param outcomes outcomes of cities to record to
+     * @return {@link CompletableFuture} that completes when outcomes of all cities of the group are recorded
+     */
+    private CompletableFuture<Void> refreshGroupAsync(List<Map.Entry<String, CurrentWeatherEntity>> group, Map<String, Object> outcomes) {
+        if (group.size() == 1) {
+            var city = group.get(0);
+            return requestCurrentWeatherAsync(city.getValue().getLat(), city.getValue().getLon())
+                    .whenComplete(outcomeRecorder(outcomes, city.getKey())).handle((entity, error) -> null);
+        }
+        long[] cityIds = group.stream().mapToLong(city -> city.getValue().getId()).distinct().toArray();
+        return acquireApiCallAsync().thenCompose(permitted -> getCurrentWeatherService.getCurrentWeatherByCityIdsAsync(cityIds, this.apiKey))
+                .handle((currentWeatherResponseDTOs, error) -> {
+                    if (error != null) {
+                        group.forEach(city -> outcomeRecorder(outcomes, city.getKey()).accept(null, error));
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    Map<Long, StoredCitiesData.StoredWeather> refreshed = new HashMap<>();
+                    for (CurrentWeatherResponseDTO currentWeatherResponseDTO : currentWeatherResponseDTOs) {
+                        var storedWeather = weatherStorage.storeCurrentWeatherData(CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherResponseDTO));
+                        refreshed.put(storedWeather.getCurrentWeatherEntity().getId(), storedWeather);
+                    }
+                    log.info("Refreshed " + refreshed.size() + " of " + cityIds.length + " cities with one group request");
+                    List<CompletableFuture<?>> missing = new ArrayList<>();
+                    for (Map.Entry<String, CurrentWeatherEntity> city : group) {
+                        StoredCitiesData.StoredWeather storedWeather = refreshed.get(city.getValue().getId());
+                        if (storedWeather != null) {
+                            outcomeRecorder(outcomes, city.getKey()).accept(storedWeather, null);
+                        } else {
+                            missing.add(requestCurrentWeatherAsync(city.getValue().getLat(), city.getValue().getLon())
+                                    .whenComplete(outcomeRecorder(outcomes, city.getKey())));
+                        }
+                    }
+                    return CompletableFuture.allOf(missing.toArray(CompletableFuture[]::new)).handle((ignored, missingError) -> (Void) null);
+                }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Returns callback recording weather or exception of the city
+     *
+     * @param outcomes outcomes of cities to record to
+     * @param cityName requested city name
+     * @return callback for {@link CompletableFuture#whenComplete(BiConsumer) whenComplete}
+     */
+    private BiConsumer<StoredCitiesData.StoredWeather, Throwable> outcomeRecorder(Map<String, Object> outcomes, String cityName) {
+        return (storedWeather, error) -> {
+            Throwable cause = error == null ? null : unwrap(error);
+            outcomes.put(nullSafe(cityName), cause == null ? storedWeather
+                    : cause instanceof Exception exception ? exception : new RuntimeException(cause));
+        };
+    }
+
+    /**
+     * Returns key of the city name in {@link ConcurrentHashMap} that does not allow null keys
+     *
+     * @param cityName city name, may be null
+     * @return the city name or a key that cannot be a city name
+     */
+    private static String nullSafe(String cityName) {
+        return cityName == null ? "\0" : cityName;
+    }
+
+    /**
+     * Returns weather of specified city taking it from {@link #weatherStorage} or weather API
+     * depending on the {@link Type} mode as described in {@link #retrieveCurrentWeatherJSON(String) retrieveCurrentWeatherJSON}
+     *
+     * @param cityName name of city
+     * @return {@link StoredCitiesData.StoredWeather} with the entity and its JSON
+     * @throws InvalidApiKeyException if API key is incorrect or haven't been activated yet (may take a while)
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     * @throws CityWithThisNameIsNotFoundException if the city with specified name is not found by weather API
+     */
+    private StoredCitiesData.StoredWeather retrieveCurrentWeather(String cityName) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException, CityWithThisNameIsNotFoundException {
         var geo = getGeocodingInfo(cityName);
-        double lat = geo.getLat();
-        double lon = geo.getLon();
+        return retrieveCurrentWeather(cityName, Coordinates.of(geo.getLat(), geo.getLon()));
+    }
 
-        if (currentModeType == Type.POLLING) {
-            log.info("Trying to update each city in storage for POLLING mode");
-            StoredCitiesData.updateAllCitiesInMemory(this.apiKey);
+    /**
+     * Returns weather at specified location taking it from {@link #weatherStorage} or weather API
+     * depending on the {@link Type} mode as described in {@link #retrieveCurrentWeatherJSON(String) retrieveCurrentWeatherJSON}.
+     * Weather taken from the storage comes with JSON serialized when it was stored, requested weather is serialized once
+     * when it is stored
+     *
+     * @param cityName name of city or other description of the location, used for logging
+     * @param coordinates location of the city
+     * @return {@link StoredCitiesData.StoredWeather} with the entity and its JSON
+     * @throws InvalidApiKeyException if API key is incorrect or haven't been activated yet (may take a while)
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    private StoredCitiesData.StoredWeather retrieveCurrentWeather(String cityName, Coordinates coordinates) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        double lat = coordinates.getLat();
+        double lon = coordinates.getLon();
+
+        StoredCitiesData.StoredWeather storedWeather = findServableCurrentWeather(cityName, lat, lon);
+        if (storedWeather == null) {
+            try {
+                storedWeather = weatherFlights.execute(CoordinateGrid.keyOf(lat, lon), () -> {
+                    acquireApiCall();
+                    var currentWeatherResponseDTO = getCurrentWeatherService.getCurrentWeather(coordinates, this.apiKey);
+                    return weatherStorage.storeCurrentWeatherData(CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherResponseDTO));
+                });
+            } catch (Exception e) {
+                throw rethrowWeatherApiException(e);
+            }
         }
+        log.info("_________________________________________________________________________");
+        return storedWeather;
+    }
+
+    /**
+     * Asynchronous version of {@link #retrieveCurrentWeatherJSON(String) retrieveCurrentWeatherJSON}. Geocoding, check of
+     * {@link #weatherStorage}, request of the weather and serialization are chained without blocking the calling thread,
+     * requests to weather API are sent with {@link GetCurrentWeatherService#getCurrentWeatherAsync(Coordinates, String)
+     * getCurrentWeatherAsync}
+     *
+     * @param cityName name of city that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$" Example: Rostov_na_donu
+     * @return {@link CompletableFuture} of JSON string of {@link CurrentWeatherEntity} that completes exceptionally with the
+     * same exceptions as {@link #retrieveCurrentWeatherJSON(String) retrieveCurrentWeatherJSON} wrapped into {@link CompletionException}
+     */
+    public CompletableFuture<String> retrieveCurrentWeatherJSONAsync(String cityName) {
+        return retrieveCurrentWeatherAsync(cityName).thenApply(StoredCitiesData.StoredWeather::getJsonString);
+    }
+
+    /**
+     * Asynchronous version of {@link #retrieveCurrentWeatherJSON(Coordinates) retrieveCurrentWeatherJSON} that skips geocoding
+     *
+     * @param coordinates location of the city
+     * @return {@link CompletableFuture} of JSON string of {@link CurrentWeatherEntity} that completes exceptionally with
+     * the same exceptions as {@link #retrieveCurrentWeatherJSON(Coordinates) retrieveCurrentWeatherJSON} wrapped into {@link CompletionException}
+     */
+    public CompletableFuture<String> retrieveCurrentWeatherJSONAsync(Coordinates coordinates) {
+        return retrieveCurrentWeatherAsync(coordinates.toString(), coordinates).thenApply(StoredCitiesData.StoredWeather::getJsonString);
+    }
+
+    /**
+     * Asynchronous version of {@link #retrieveCurrentWeather(String) retrieveCurrentWeather}
+     *
+     * @param cityName name of city
+     * @return {@link CompletableFuture} of {@link StoredCitiesData.StoredWeather}
+     */
+    private CompletableFuture<StoredCitiesData.StoredWeather> retrieveCurrentWeatherAsync(String cityName) {
+        return getGeocodingInfoAsync(cityName).thenCompose(geo -> retrieveCurrentWeatherAsync(cityName, Coordinates.of(geo.getLat(), geo.getLon())));
+    }
+
+    /**
+     * Asynchronous version of {@link #retrieveCurrentWeather(String, Coordinates) retrieveCurrentWeather}
+     *
+     * @param cityName name of city or other description of the location, used for logging
+     * @param coordinates location of the city
+     * @return {@link CompletableFuture} of {@link StoredCitiesData.StoredWeather}
+     */
+    private CompletableFuture<StoredCitiesData.StoredWeather> retrieveCurrentWeatherAsync(String cityName, Coordinates coordinates) {
+        StoredCitiesData.StoredWeather storedWeather = findServableCurrentWeather(cityName, coordinates.getLat(), coordinates.getLon());
+        if (storedWeather != null) {
+            return CompletableFuture.completedFuture(storedWeather);
+        }
+        return requestCurrentWeatherAsync(coordinates.getLat(), coordinates.getLon());
+    }
+
+    /**
+     * Requests weather at specified location from weather API without blocking the calling thread and stores it.
+     * Joins the request for the same city if it is already in flight
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return {@link CompletableFuture} of requested weather with its JSON
+     */
+    private CompletableFuture<StoredCitiesData.StoredWeather> requestCurrentWeatherAsync(double lat, double lon) {
+        return weatherFlights.executeAsync(CoordinateGrid.keyOf(lat, lon), () -> acquireApiCallAsync().thenCompose(permitted ->
+                getCurrentWeatherService.getCurrentWeatherAsync(Coordinates.of(lat, lon), this.apiKey))
+                        .thenApply(currentWeatherResponseDTO -> weatherStorage.storeCurrentWeatherData(
+                                CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherResponseDTO))));
+    }
+
+    /**
+     * Returns weather of the city from {@link #weatherStorage} if it can be returned without calling weather API
+     * in current {@link Type} mode: refreshed in {@link Type#POLLING POLLING} mode, up-to-date, within the grace window
+     * in {@link Type#STALE_WHILE_REVALIDATE STALE_WHILE_REVALIDATE} mode (the city is then updated in background)
+     * or outdated while client-side calls limit is reached in {@link RateLimitMode#SERVE_STALE SERVE_STALE} mode.
+     * The storage is looked up once, so the request is counted as one hit if the weather is returned or one miss otherwise
+     *
+     * @param cityName name of city, used for logging
+     * @param lat latitude
+     * @param lon longitude
+     * @return stored weather with its JSON, or null if it must be requested from weather API
+     */
+    private StoredCitiesData.StoredWeather findServableCurrentWeather(String cityName, double lat, double lon) {
         log.info("Checking if data for city \"" + cityName + "\" exists in storage and is up-to-date");
-        if (StoredCitiesData.isStoredCityWeatherIsUpToDate(lat, lon)) {
-            currentWeatherEntity = StoredCitiesData.getCurrentWeatherData(lat, lon);
+        long now = System.currentTimeMillis() / 1000;
+        boolean rateLimited = isServingStaleIfRateLimited();
+        StoredCitiesData.StoredWeather storedCity = weatherStorage.findStoredWeather(lat, lon, entity -> isServable(entity, now, rateLimited));
+        if (storedCity == null) {
+            log.info("City \"" + cityName + "\" must be requested from weather API");
+            return null;
+        }
+        long ageSeconds = now - storedCity.getCurrentWeatherEntity().getDateTime();
+        if (currentModeType == Type.POLLING) {
+            log.info("Took info for city \"" + cityName + "\" from storage because it is refreshed in POLLING mode");
+        } else if (ageSeconds <= StoredCitiesData.getTimeToLiveSeconds()) {
             log.info("Took info for city \"" + cityName + "\" from storage because it is up-to-date");
+        } else if (isWithinGraceWindow(ageSeconds)) {
+            log.info("Took outdated info for city \"" + cityName + "\" from storage and started updating it in background");
+            revalidateInBackground(lat, lon);
         } else {
-            var currentWeatherResponseDTO = getCurrentWeatherService.getCurrentWeatherByLatAndLonString("lat=" + lat + "&lon=" + lon, this.apiKey);
-            currentWeatherEntity = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherResponseDTO);
-            StoredCitiesData.addCurrentWeatherData(currentWeatherEntity);
+            log.info("Took outdated info for city \"" + cityName + "\" from storage because client-side calls limit is reached");
         }
-        log.info("Final JSON string to return: ");
-        var jsonString = new ObjectMapper().writeValueAsString(currentWeatherEntity);
-        log.info(jsonString);
-        log.info("_________________________________________________________________________");
-        return jsonString;
+        return storedCity;
     }
 
     /**
-     * Returns {@link GetGeocodingResponseDTO} object containing data for specified city
+     * Returns {@link GetGeocodingResponseDTO} object containing data for specified city. Takes it from
+     * {@link StoredGeocodingData} if the city has been requested recently, so geocoding API is called only once per
+     * city name (ignoring case and surrounding whitespaces) while the stored result is alive. Names not found
+     * by API are stored as well for a shorter time. Cities the service {@link GetGeocodingService#findGeocodingLocally(String)
+     * finds locally}, e.g. in a gazetteer, are returned without calling geocoding API
      *
      * @param cityName name of city that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$" Example: Rostov_na_donu
      * @return {@link GetGeocodingResponseDTO} object containing data for specified city
@@ -180,12 +789,95 @@ public class CurrentWeatherSDK {
      * @throws InternalErrorException if an error on weather API side has occurred
      */
     public GetGeocodingResponseDTO getGeocodingInfo(String cityName) throws CityWithThisNameIsNotFoundException, InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
-        var geocodingInfo = getGeocodingService.getGeocodingByCityName(cityName, this.apiKey);
-        return geocodingInfo[0];
+        if (cityName == null) {
+            return getGeocodingService.getGeocodingByCityName(null, this.apiKey)[0];
+        }
+        var stored = StoredGeocodingData.getGeocodingData(cityName);
+        if (stored != null) {
+            log.info("Took geocoding info for city \"" + cityName + "\" from storage");
+            if (stored.isNotFound()) {
+                throw new CityWithThisNameIsNotFoundException(cityName.strip());
+            }
+            return stored.getGeocodingResponseDTO();
+        }
+        var local = findGeocodingLocally(cityName);
+        if (local != null) {
+            return local;
+        }
+        try {
+            return geocodingFlights.execute(StoredGeocodingData.normalize(cityName), () -> {
+                try {
+                    acquireApiCall();
+                    var geocodingInfo = getGeocodingService.getGeocodingByCityName(cityName.strip(), this.apiKey);
+                    StoredGeocodingData.addGeocodingData(cityName, geocodingInfo[0]);
+                    return geocodingInfo[0];
+                } catch (CityWithThisNameIsNotFoundException e) {
+                    StoredGeocodingData.addNotFoundCityName(cityName);
+                    throw e;
+                }
+            });
+        } catch (Exception e) {
+            throw rethrowApiException(e);
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #getGeocodingInfo(String) getGeocodingInfo}. Uses {@link StoredGeocodingData} the same
+     * way and requests geocoding API with {@link GetGeocodingService#getGeocodingByCityNameAsync(String, String)
+     * getGeocodingByCityNameAsync} only if the city name is not stored
+     *
+     * @param cityName name of city that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$" Example: Rostov_na_donu
+     * @return {@link CompletableFuture} of {@link GetGeocodingResponseDTO} that completes exceptionally with the
+     * same exceptions as {@link #getGeocodingInfo(String) getGeocodingInfo}
+     */
+    public CompletableFuture<GetGeocodingResponseDTO> getGeocodingInfoAsync(String cityName) {
+        if (cityName == null) {
+            return getGeocodingService.getGeocodingByCityNameAsync(null, this.apiKey).thenApply(geocodingInfo -> geocodingInfo[0]);
+        }
+        var stored = StoredGeocodingData.getGeocodingData(cityName);
+        if (stored != null) {
+            log.info("Took geocoding info for city \"" + cityName + "\" from storage");
+            if (stored.isNotFound()) {
+                return CompletableFuture.failedFuture(new CityWithThisNameIsNotFoundException(cityName.strip()));
+            }
+            return CompletableFuture.completedFuture(stored.getGeocodingResponseDTO());
+        }
+        var local = findGeocodingLocally(cityName);
+        if (local != null) {
+            return CompletableFuture.completedFuture(local);
+        }
+        return geocodingFlights.executeAsync(StoredGeocodingData.normalize(cityName), () -> acquireApiCallAsync().thenCompose(permitted ->
+                getGeocodingService.getGeocodingByCityNameAsync(cityName.strip(), this.apiKey)).whenComplete((geocodingInfo, error) -> {
+                    if (error == null) {
+                        StoredGeocodingData.addGeocodingData(cityName, geocodingInfo[0]);
+                    } else if (unwrap(error) instanceof CityWithThisNameIsNotFoundException) {
+                        StoredGeocodingData.addNotFoundCityName(cityName);
+                    }
+                }).thenApply(geocodingInfo -> geocodingInfo[0]));
     }
 
     /**
-     * Returns JSON string of {@link GetGeocodingResponseDTO} object containing data for specified city
+     * Returns the first city found by {@link GetGeocodingService#findGeocodingLocally(String) local data} of geocoding
+     * service, e.g. a {@link com.github.maxonrash.store.Gazetteer Gazetteer}. No client-side rate limiting token is
+     * taken for it and it is not put into {@link StoredGeocodingData}, which keeps results of geocoding API, only into
+     * its {@link StoredGeocodingData#getCityNameIndex() city name index} the first time it is found
+     *
+     * @param cityName name of city
+     * @return {@link GetGeocodingResponseDTO} or null if the city must be requested from geocoding API
+     */
+    private GetGeocodingResponseDTO findGeocodingLocally(String cityName) {
+        var local = getGeocodingService.findGeocodingLocally(cityName.strip());
+        if (local == null || local.length == 0) {
+            return null;
+        }
+        log.info("Took geocoding info for city \"" + cityName + "\" from local data of geocoding service");
+        StoredGeocodingData.getCityNameIndex().addIfAbsent(local[0]);
+        return local[0];
+    }
+
+    /**
+     * Returns JSON string of {@link GetGeocodingResponseDTO} object containing data for specified city.
+     * Uses {@link StoredGeocodingData} the same way as {@link #getGeocodingInfo(String) getGeocodingInfo}
      *
      * @param cityName name of city that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$" Example: Rostov_na_donu
      * @return JSON string of {@link GetGeocodingResponseDTO} object containing data for specified city
@@ -195,21 +887,276 @@ public class CurrentWeatherSDK {
      * @throws InternalErrorException if an error on weather API side has occurred
      */
     public String getGeocodingInfoJSON(String cityName) throws CityWithThisNameIsNotFoundException, InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
-        var geocodingInfo = getGeocodingService.getGeocodingByCityName(cityName, this.apiKey);
+        var geocodingInfo = getGeocodingInfo(cityName);
         try {
-            return new ObjectMapper().writeValueAsString(geocodingInfo[0]);
+            return JSON_WRITER.writeValueAsString(geocodingInfo);
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Changes the {@link Type} of current object
-     * @param currentModeType {@link Type#ON_DEMAND ON_DEMAND} or {@link Type#POLLING POLLING}
+     * Returns the cause of {@link CompletionException} or the error itself if it is not wrapped
+     *
+     * @param error error a future has completed with
+     * @return actual error
+     */
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
+    /**
+     * Takes a token of client-side rate limiting for a call to weather API, waiting for it if the
+     * {@link RateLimitConfig#getMode() mode} allows. Does nothing if calls are not limited
+     *
+     * @throws CallPerMinuteExceededException if there is no token for the call
+     */
+    private void acquireApiCall() throws CallPerMinuteExceededException {
+        RateLimiter limiter = rateLimiter;
+        RateLimitConfig config = rateLimitConfig;
+        if (limiter == null || config == null) {
+            return;
+        }
+        boolean acquired;
+        try {
+            acquired = limiter.acquire(config.getMode() == RateLimitMode.FAIL_FAST ? 0 : config.getMaxWait().toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (!acquired) {
+            throw new CallPerMinuteExceededException("Client-side limit of " + config.getCallsPerMinute() + " calls per minute is reached");
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #acquireApiCall()}. Waiting for a token is done with a delayed completion of the
+     * returned future instead of blocking a thread
+     *
+     * @return {@link CompletableFuture} that completes when the call is allowed, or completes exceptionally with
+     * {@link CallPerMinuteExceededException} if there is no token for the call
+     */
+    private CompletableFuture<Void> acquireApiCallAsync() {
+        RateLimiter limiter = rateLimiter;
+        RateLimitConfig config = rateLimitConfig;
+        if (limiter == null || config == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long waitNanos = limiter.reserve(config.getMode() == RateLimitMode.FAIL_FAST ? 0 : config.getMaxWait().toNanos());
+        if (waitNanos < 0) {
+            return CompletableFuture.failedFuture(new CallPerMinuteExceededException("Client-side limit of " + config.getCallsPerMinute() + " calls per minute is reached"));
+        }
+        if (waitNanos == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Takes a token of client-side rate limiting for a background call if it is available right now
+     *
+     * @return true if the call is allowed
+     */
+    private boolean tryAcquireBackgroundCall() {
+        RateLimiter limiter = rateLimiter;
+        return limiter == null || limiter.tryAcquire();
+    }
+
+    /**
+     * Returns true if stored weather can be returned without calling weather API in current {@link Type} mode, as
+     * described in {@link #findServableCurrentWeather(String, double, double) findServableCurrentWeather}
+     *
+     * @param storedCity stored weather of the city
+     * @param now current time in seconds
+     * @param rateLimited result of {@link #isServingStaleIfRateLimited()}
+     * @return true if the weather can be returned
+     */
+    private boolean isServable(CurrentWeatherEntity storedCity, long now, boolean rateLimited) {
+        long ageSeconds = now - storedCity.getDateTime();
+        return currentModeType == Type.POLLING || ageSeconds <= StoredCitiesData.getTimeToLiveSeconds()
+                || isWithinGraceWindow(ageSeconds) || rateLimited;
+    }
+
+    /**
+     * Returns true if client-side rate limiting is in {@link RateLimitMode#SERVE_STALE SERVE_STALE} mode and there is
+     * no token for a call right now, so stored weather is returned regardless of its age
+     *
+     * @return true if outdated weather must be returned
+     */
+    private boolean isServingStaleIfRateLimited() {
+        RateLimiter limiter = rateLimiter;
+        RateLimitConfig config = rateLimitConfig;
+        return limiter != null && config != null && config.getMode() == RateLimitMode.SERVE_STALE && !limiter.hasAvailableToken();
+    }
+
+    /**
+     * Returns true if the mode is {@link Type#STALE_WHILE_REVALIDATE STALE_WHILE_REVALIDATE} and weather of specified age
+     * is outdated for less than {@link #staleGraceWindow}
+     *
+     * @param ageSeconds age of stored weather in seconds
+     * @return true if the weather is returned while it is updated in background
+     */
+    private boolean isWithinGraceWindow(long ageSeconds) {
+        return currentModeType == Type.STALE_WHILE_REVALIDATE
+                && ageSeconds <= StoredCitiesData.getTimeToLiveSeconds() + staleGraceWindow.toSeconds();
+    }
+
+    /**
+     * Requests weather of the city at specified location from weather API and stores it without waiting for the result.
+     * Joins the request for the same city if it is already in flight, and skips updating if there is no
+     * token of client-side rate limiting right now
+     *
+     * @param lat latitude
+     * @param lon longitude
+     */
+    private void revalidateInBackground(double lat, double lon) {
+        weatherFlights.executeAsync(CoordinateGrid.keyOf(lat, lon), () -> {
+            if (!tryAcquireBackgroundCall()) {
+                return CompletableFuture.failedFuture(new CallPerMinuteExceededException("Client-side limit of calls per minute is reached"));
+            }
+            return getCurrentWeatherService.getCurrentWeatherAsync(Coordinates.of(lat, lon), this.apiKey)
+                    .thenApply(currentWeatherResponseDTO -> weatherStorage.storeCurrentWeatherData(
+                            CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherResponseDTO)));
+        }).whenComplete((storedWeather, error) -> {
+            if (error != null) {
+                log.info("Failed to update city with coordinates lat=" + lat + " & lon=" + lon + " in background: " + unwrap(error));
+            }
+        });
+    }
+
+    /**
+     * Rethrows exception of a weather API call as is if it is one of declared API exceptions or unchecked
+     *
+     * @param e exception thrown by a call
+     * @return never returns normally, declared to be used in {@code throw} statement
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     * @throws CityWithThisNameIsNotFoundException if the city with specified name is not found by weather API
+     */
+    private static RuntimeException rethrowApiException(Exception e) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException, CityWithThisNameIsNotFoundException {
+        if (e instanceof CityWithThisNameIsNotFoundException cityWithThisNameIsNotFoundException) {
+            throw cityWithThisNameIsNotFoundException;
+        }
+        throw rethrowWeatherApiException(e);
+    }
+
+    /**
+     * Rethrows exception of a call to weather API, which cannot report an unknown city name, as is if it is one of
+     * declared API exceptions or unchecked
+     *
+     * @param e exception thrown by a call
+     * @return never returns normally, declared to be used in {@code throw} statement
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    private static RuntimeException rethrowWeatherApiException(Exception e) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        if (e instanceof InvalidApiKeyException invalidApiKeyException) {
+            throw invalidApiKeyException;
+        }
+        if (e instanceof CallPerMinuteExceededException callPerMinuteExceededException) {
+            throw callPerMinuteExceededException;
+        }
+        if (e instanceof InternalErrorException internalErrorException) {
+            throw internalErrorException;
+        }
+        if (e instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw new RuntimeException(e);
+    }
+
+    /**
+     * Releases resources owned by the object and removes gauges of its storage from {@link Metrics}
+     */
+    private synchronized void close() {
+        refresher.stop();
+        Metrics.unregisterGauge("cache." + metricsName + ".size");
+        Metrics.unregisterGauge("cache." + metricsName + ".oldestEntryAgeSeconds");
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    /**
+     * Starts background refreshing if the mode is {@link Type#POLLING POLLING} and stops it otherwise
+     */
+    private synchronized void updateRefresher() {
+        if (currentModeType == Type.POLLING) {
+            refresher.start();
+        } else {
+            refresher.stop();
+        }
+    }
+
+    /**
+     * Changes the {@link Type} of current object. Background refreshing of stored cities is started
+     * when the mode is changed to {@link Type#POLLING POLLING} and stopped when it is changed to another mode
+     * @param currentModeType {@link Type#ON_DEMAND ON_DEMAND}, {@link Type#POLLING POLLING} or
+     * {@link Type#STALE_WHILE_REVALIDATE STALE_WHILE_REVALIDATE}
      */
     public void setCurrentModeType(Type currentModeType) {
         this.currentModeType = currentModeType;
+        updateRefresher();
         log.info("changed mode type for apiKey \"" + apiKey.substring(0,15) + "...\" to " + currentModeType.name());
     }
 
+    /**
+     * Enables client-side rate limiting of calls to weather API or changes its parameters. Geocoding and weather calls
+     * of this object, including background refreshing in {@link Type#POLLING POLLING} mode, share the same limit
+     * @param rateLimitConfig {@link RateLimitConfig} with the limit of your plan, or null to disable rate limiting
+     */
+    public synchronized void setRateLimitConfig(RateLimitConfig rateLimitConfig) {
+        this.rateLimiter = rateLimitConfig == null ? null : rateLimitConfig.createRateLimiter();
+        this.rateLimitConfig = rateLimitConfig;
+        log.info("changed rate limit for apiKey \"" + maskApiKey(apiKey) + "\" to " + rateLimitConfig);
+    }
+
+    /**
+     * Changes the time after weather data gets outdated during which it is still returned in
+     * {@link Type#STALE_WHILE_REVALIDATE STALE_WHILE_REVALIDATE} mode
+     * @param staleGraceWindow non-negative grace window
+     */
+    public void setStaleGraceWindow(Duration staleGraceWindow) {
+        if (staleGraceWindow == null || staleGraceWindow.isNegative()) {
+            throw new IllegalArgumentException("Grace window must be non-negative");
+        }
+        this.staleGraceWindow = staleGraceWindow;
+        log.info("changed stale grace window for apiKey \"" + maskApiKey(apiKey) + "\" to " + staleGraceWindow);
+    }
+
+    /**
+     * Replaces the storage of weather of this object with an empty one of specified capacity, the quota of cities
+     * this API key may keep in memory. Already stored cities of this object are dropped, storages of other objects are not affected
+     * @param capacity maximum number of stored cities, must be positive
+     * @param policyType {@link EvictionPolicyType} choosing which city to drop when the storage is full
+     */
+    public void configureWeatherStorage(int capacity, EvictionPolicyType policyType) {
+        this.weatherStorage = new WeatherStorage(capacity, policyType, metricsName);
+        log.info("configured storage for apiKey \"" + maskApiKey(apiKey) + "\" with capacity " + capacity + " and " + policyType.name() + " eviction policy");
+    }
+
+    /**
+     * Replaces the storage of weather of this object with an empty {@link WeatherStorage#columnar(int, String) columnar}
+     * one of specified capacity, which keeps cities in primitive arrays and suits quotas of many thousands of cities.
+     * Already stored cities of this object are dropped, storages of other objects are not affected
+     * @param capacity maximum number of stored cities, must be positive
+     */
+    public void configureColumnarWeatherStorage(int capacity) {
+        this.weatherStorage = WeatherStorage.columnar(capacity, metricsName);
+        log.info("configured columnar storage for apiKey \"" + maskApiKey(apiKey) + "\" with capacity " + capacity);
+    }
+
+    /**
+     * Changes parameters of background refreshing in {@link Type#POLLING POLLING} mode. Restarts the refreshing if it is running
+     * @param pollingConfig {@link PollingConfig} with new parameters
+     */
+    public synchronized void setPollingConfig(PollingConfig pollingConfig) {
+        refresher.stop();
+        this.pollingConfig = pollingConfig;
+        this.refresher = new StoredCitiesRefresher(apiKey, getCurrentWeatherService, pollingConfig, this::tryAcquireBackgroundCall, this::getWeatherStorage);
+        updateRefresher();
+    }
+
 }
\ No newline at end of file
@@ -3,9 +3,12 @@ package com.github.maxonrash;
 /**
  * Mode type for retrieving current weather.
  * <p>{@link #ON_DEMAND ON_DEMAND} - updates weather data only for specified city if the weather data in storage is outdated
- * <p>{@link #POLLING POLLING} - updates weather data for each city in storage if it is outdated
+ * <p>{@link #POLLING POLLING} - updates weather data for each city in storage in background before it gets outdated
+ * <p>{@link #STALE_WHILE_REVALIDATE STALE_WHILE_REVALIDATE} - returns outdated weather data of specified city immediately
+ * while it is within the grace window and updates it in background
  */
 public enum Type {
     ON_DEMAND,
-    POLLING
+    POLLING,
+    STALE_WHILE_REVALIDATE
 }
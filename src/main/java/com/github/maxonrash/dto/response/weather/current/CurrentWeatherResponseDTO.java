@@ -57,6 +57,7 @@ public class CurrentWeatherResponseDTO {
                 .sys(new Sys(dto.getSys().getSunrise(), dto.getSys().getSunset()))
                 .timezone(dto.getTimezone())
                 .name(dto.getName())
+                .id(dto.getId())
                 .build();
     }
 }
@@ -0,0 +1,18 @@
+package com.github.maxonrash.dto.response.weather.current;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class is used in {@link com.github.maxonrash.service.GetCurrentWeatherServiceImpl GetCurrentWeatherServiceImpl}
+ * to deserialize received JSON response of group request for several city IDs
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GroupCurrentWeatherResponseDTO {
+    private int cnt;
+    private CurrentWeatherResponseDTO[] list;
+    private int cod;
+}
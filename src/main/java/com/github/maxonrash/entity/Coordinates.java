@@ -0,0 +1,69 @@
+package com.github.maxonrash.entity;
+
+import com.github.maxonrash.exception.IncorrectLatAndLonStringException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable location on Earth in degrees. Coordinates are validated once when they are created, so services taking
+ * them build request URIs without parsing or matching a "lat=...&amp;lon=..." string
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class Coordinates {
+    /**
+     * Latitude from -90 to 90
+     */
+    double lat;
+    /**
+     * Longitude from -180 to 180
+     */
+    double lon;
+
+    /**
+     * Returns coordinates of specified location
+     *
+     * @param lat latitude from -90 to 90
+     * @param lon longitude from -180 to 180
+     * @return {@link Coordinates} of the location
+     * @throws IncorrectLatAndLonStringException if latitude or longitude is out of range or not a number
+     */
+    public static Coordinates of(double lat, double lon) {
+        if (!(lat >= -90 && lat <= 90) || !(lon >= -180 && lon <= 180)) {
+            throw new IncorrectLatAndLonStringException("Latitude must be from -90 to 90 and longitude from -180 to 180, got lat=" + lat + " & lon=" + lon);
+        }
+        return new Coordinates(lat, lon);
+    }
+
+    /**
+     * Returns coordinates of the city
+     *
+     * @param currentWeatherEntity weather of the city
+     * @return {@link Coordinates} of the city
+     * @throws IncorrectLatAndLonStringException if coordinates of the city are out of range
+     */
+    public static Coordinates of(CurrentWeatherEntity currentWeatherEntity) {
+        return of(currentWeatherEntity.getLat(), currentWeatherEntity.getLon());
+    }
+
+    /**
+     * Returns query string of the location, e.g. "lat=55.7522&amp;lon=37.6156". Degrees are written in fixed-point
+     * notation with 2 to 8 decimals, so the string matches the pattern of
+     * {@link com.github.maxonrash.service.GetCurrentWeatherService#getCurrentWeatherByLatAndLonString(String, String)
+     * getCurrentWeatherByLatAndLonString}: 0.0001 is written as "0.0001" instead of "1.0E-4" and 55.0 as "55.00"
+     *
+     * @return "lat=...&amp;lon=..." string
+     */
+    public String toQuery() {
+        return "lat=" + toPlainString(lat) + "&lon=" + toPlainString(lon);
+    }
+
+    private static String toPlainString(double degrees) {
+        BigDecimal value = BigDecimal.valueOf(degrees).setScale(8, RoundingMode.HALF_UP).stripTrailingZeros();
+        return value.scale() < 2 ? value.setScale(2).toPlainString() : value.toPlainString();
+    }
+}
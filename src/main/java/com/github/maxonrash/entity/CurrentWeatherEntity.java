@@ -28,4 +28,9 @@ public class CurrentWeatherEntity {
     private Sys sys;
     private long timezone;
     private String name;
+    /**
+     * City ID of weather API, used to refresh stored cities with group requests. 0 if it is unknown
+     */
+    @JsonIgnore
+    private long id;
 }
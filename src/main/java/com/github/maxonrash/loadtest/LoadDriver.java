@@ -0,0 +1,168 @@
+package com.github.maxonrash.loadtest;
+
+import com.github.maxonrash.CurrentWeatherSDK;
+import com.github.maxonrash.Type;
+import com.github.maxonrash.store.cache.EvictionPolicyType;
+import com.github.maxonrash.transport.HttpTransportConfig;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies load to {@link CurrentWeatherSDK} from several threads and reports throughput and latency percentiles.
+ * Every thread calls {@link CurrentWeatherSDK#retrieveCurrentWeatherJSON(String) retrieveCurrentWeatherJSON} for random
+ * cities of the list without pauses until the time is over. Run {@link #main(String[])} to test the SDK against {@link StubServer}
+ */
+public class LoadDriver {
+
+    private LoadDriver() {
+    }
+
+    /**
+     * Calls the SDK from specified number of threads for specified time
+     *
+     * @param sdk {@link CurrentWeatherSDK} to load
+     * @param cityNames names of cities to request, picked at random
+     * @param threads number of threads calling the SDK at once
+     * @param duration time to apply the load for
+     * @return {@link LoadReport} with throughput, latency percentiles and errors
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the load threads
+     */
+    public static LoadReport run(CurrentWeatherSDK sdk, List<String> cityNames, int threads, Duration duration) throws InterruptedException {
+        if (threads < 1 || cityNames.isEmpty()) {
+            throw new IllegalArgumentException("at least one thread and one city are required");
+        }
+        Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        long[][] latencies = new long[threads][];
+        int[] counts = new int[threads];
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                long[] recorded = new long[1024];
+                int count = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String cityName = cityNames.get(random.nextInt(cityNames.size()));
+                    long callStart = System.nanoTime();
+                    try {
+                        sdk.retrieveCurrentWeatherJSON(cityName);
+                    } catch (Exception e) {
+                        errors.computeIfAbsent(e.getClass().getSimpleName(), name -> new LongAdder()).increment();
+                    }
+                    if (count == recorded.length) {
+                        recorded = Arrays.copyOf(recorded, count * 2);
+                    }
+                    recorded[count++] = System.nanoTime() - callStart;
+                }
+                latencies[worker] = recorded;
+                counts[worker] = count;
+            }, "openweathermap-load-" + t);
+            workers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, offset, counts[t]);
+            offset += counts[t];
+        }
+        Arrays.sort(all);
+        Map<String, Long> errorsByType = new TreeMap<>();
+        errors.forEach((type, counter) -> errorsByType.put(type, counter.sum()));
+        return new LoadReport(total,
+                errorsByType.values().stream().mapToLong(Long::longValue).sum(),
+                errorsByType,
+                Duration.ofNanos(elapsedNanos),
+                total * 1e9 / elapsedNanos,
+                percentileMicros(all, 0.5),
+                percentileMicros(all, 0.9),
+                percentileMicros(all, 0.99),
+                percentileMicros(all, 0.999),
+                total == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(all[total - 1]));
+    }
+
+    /**
+     * Starts {@link StubServer}, loads an SDK pointed to it and prints the report. Options are passed as
+     * <i>--name=value</i>: threads (8), seconds (10), cities (100), capacity of {@link com.github.maxonrash.CurrentWeatherSDK#getWeatherStorage() storage of the SDK} (10),
+     * latencyMillis (20), jitterMillis (10), invalidApiKeyRate (0), tooManyRequestsRate (0), serverErrorRate (0)
+     *
+     * @param args options of the run
+     * @throws Exception if the server cannot be started or the run is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 2) {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        StubServerConfig serverConfig = StubServerConfig.builder()
+                .latency(Duration.ofMillis(Long.parseLong(options.getOrDefault("latencyMillis", "20"))))
+                .latencyJitter(Duration.ofMillis(Long.parseLong(options.getOrDefault("jitterMillis", "10"))))
+                .invalidApiKeyRate(Double.parseDouble(options.getOrDefault("invalidApiKeyRate", "0")))
+                .tooManyRequestsRate(Double.parseDouble(options.getOrDefault("tooManyRequestsRate", "0")))
+                .serverErrorRate(Double.parseDouble(options.getOrDefault("serverErrorRate", "0")))
+                .build();
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("seconds", "10")));
+        List<String> cityNames = cityNames(Integer.parseInt(options.getOrDefault("cities", "100")));
+        try (StubServer server = new StubServer(serverConfig)) {
+            CurrentWeatherSDK sdk = CurrentWeatherSDK.create("loadtestapikey0123456789", Type.ON_DEMAND,
+                    HttpTransportConfig.builder().baseUrl(server.getBaseUrl()).build());
+            sdk.configureWeatherStorage(Integer.parseInt(options.getOrDefault("capacity", "10")), EvictionPolicyType.LRU);
+            try {
+                LoadReport report = run(sdk, cityNames, threads, duration);
+                System.out.println(report);
+                System.out.println("stub server received " + server.getRequestCount() + " requests");
+            } finally {
+                CurrentWeatherSDK.deleteAllKeys();
+            }
+        }
+    }
+
+    /**
+     * Returns distinct city names made of letters only, as the SDK doesn't accept digits in them
+     *
+     * @param count number of names
+     * @return list of city names
+     */
+    public static List<String> cityNames(int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder("City");
+            int n = i;
+            do {
+                name.append((char) ('a' + n % 26));
+                n /= 26;
+            } while (n > 0);
+            names.add(name.toString());
+        }
+        return names;
+    }
+
+    private static long percentileMicros(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+}
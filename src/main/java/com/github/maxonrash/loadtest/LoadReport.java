@@ -0,0 +1,53 @@
+package com.github.maxonrash.loadtest;
+
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Result of a {@link LoadDriver} run
+ */
+@Value
+public class LoadReport {
+    /**
+     * Number of completed calls, successful or not
+     */
+    long requests;
+    /**
+     * Number of calls that threw an exception
+     */
+    long errors;
+    /**
+     * Number of failed calls by simple name of the exception type
+     */
+    Map<String, Long> errorsByType;
+    /**
+     * Time the load was applied for
+     */
+    Duration duration;
+    /**
+     * Completed calls per second
+     */
+    double throughputPerSecond;
+    /**
+     * Median latency of a call in microseconds
+     */
+    long p50Micros;
+    /**
+     * 90th percentile of latency of a call in microseconds
+     */
+    long p90Micros;
+    /**
+     * 99th percentile of latency of a call in microseconds
+     */
+    long p99Micros;
+    /**
+     * 99.9th percentile of latency of a call in microseconds
+     */
+    long p999Micros;
+    /**
+     * Maximum latency of a call in microseconds
+     */
+    long maxMicros;
+}
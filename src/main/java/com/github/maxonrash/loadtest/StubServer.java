@@ -0,0 +1,211 @@
+package com.github.maxonrash.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Local stand-in of OpenWeatherMap.org built on {@link HttpServer} of the JDK. Serves <i>/data/2.5/weather</i> and
+ * <i>/geo/1.0/direct</i> with configurable latency, share of error responses and payloads, so the SDK can be tested
+ * under load without spending calls of a real API key. Point the SDK to it with
+ * {@link com.github.maxonrash.transport.HttpTransportConfig#getBaseUrl() baseUrl} set to {@link #getBaseUrl()}
+ */
+@Slf4j
+public class StubServer implements AutoCloseable {
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private final StubServerConfig config;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * Creates and starts the server on the loopback interface
+     *
+     * @param config {@link StubServerConfig} with port, latency, error rates and payloads
+     * @throws IOException if the server cannot listen on the port
+     */
+    public StubServer(StubServerConfig config) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", config.getPort()), 0);
+        this.executor = Executors.newFixedThreadPool(config.getThreads(), task -> {
+            Thread thread = new Thread(task, "openweathermap-stub-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/data/2.5/weather", exchange -> handle(exchange, config.getWeatherPayload()));
+        server.createContext("/data/2.5/group", exchange -> handle(exchange, query -> groupPayload(query, config.getWeatherPayload())));
+        server.createContext("/geo/1.0/direct", exchange -> handle(exchange, config.getGeocodingPayload()));
+        server.start();
+        log.info("stub server is listening on " + getBaseUrl() + " with " + config);
+    }
+
+    /**
+     * Returns base URL of the server to be used as {@link com.github.maxonrash.transport.HttpTransportConfig#getBaseUrl() baseUrl}
+     *
+     * @return base URL, e.g. "http://127.0.0.1:54321"
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns number of requests received by the server
+     *
+     * @return number of requests
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Stops the server without waiting for requests in progress
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange, Function<Map<String, String>, String> payload) throws IOException {
+        requestCount.incrementAndGet();
+        try (exchange) {
+            sleepLatency();
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < config.getInvalidApiKeyRate()) {
+                respond(exchange, 401, "{\"cod\":401,\"message\":\"Invalid API key. Please see https://openweathermap.org/faq#error401 for more info.\"}");
+            } else if (roll < config.getInvalidApiKeyRate() + config.getTooManyRequestsRate()) {
+                respond(exchange, 429, "{\"cod\":429,\"message\":\"Your account is temporary blocked due to exceeding of requests limitation of your subscription type.\"}");
+            } else if (roll < config.getInvalidApiKeyRate() + config.getTooManyRequestsRate() + config.getServerErrorRate()) {
+                respond(exchange, 500, "{\"cod\":500,\"message\":\"Internal error\"}");
+            } else {
+                respond(exchange, 200, payload.apply(parseQuery(exchange.getRequestURI().getRawQuery())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sleepLatency() throws InterruptedException {
+        long latencyNanos = config.getLatency().toNanos();
+        long jitterNanos = config.getLatencyJitter().toNanos();
+        if (jitterNanos > 0) {
+            latencyNanos += ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+        }
+        if (latencyNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(latencyNanos);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Returns body of current weather response at requested <i>lat</i> and <i>lon</i> observed now
+     *
+     * @param query query parameters of the request
+     * @return JSON of current weather
+     */
+    static String defaultWeatherPayload(Map<String, String> query) {
+        double lat = Double.parseDouble(query.getOrDefault("lat", "55.7522"));
+        double lon = Double.parseDouble(query.getOrDefault("lon", "37.6156"));
+        long now = System.currentTimeMillis() / 1000;
+        return String.format(Locale.ROOT, "{\"coord\":{\"lon\":%s,\"lat\":%s},"
+                + "\"weather\":[{\"id\":803,\"main\":\"Clouds\",\"description\":\"broken clouds\",\"icon\":\"04d\"}],"
+                + "\"base\":\"stations\",\"main\":{\"temp\":284.2,\"feels_like\":282.93,\"temp_min\":283.06,\"temp_max\":286.82,"
+                + "\"pressure\":1021,\"humidity\":60,\"sea_level\":1021,\"grnd_level\":910},\"visibility\":10000,"
+                + "\"wind\":{\"speed\":4.09,\"deg\":121,\"gust\":3.47},\"clouds\":{\"all\":83},\"dt\":%d,"
+                + "\"sys\":{\"type\":1,\"id\":6736,\"country\":\"RU\",\"sunrise\":%d,\"sunset\":%d},"
+                + "\"timezone\":10800,\"id\":%d,\"name\":\"Stub\",\"cod\":200}", lon, lat, now, now - 21600, now + 21600, cityIdOf(lat, lon));
+    }
+
+    /**
+     * Returns body of group response with weather of each city in <i>id</i> parameter. IDs made by
+     * {@link #cityIdOf(double, double) cityIdOf} are turned back into the location they were made of
+     *
+     * @param query query parameters of the request
+     * @param weatherPayload payload of a single city
+     * @return JSON of current weather of the cities
+     */
+    static String groupPayload(Map<String, String> query, Function<Map<String, String>, String> weatherPayload) {
+        String[] cityIds = query.getOrDefault("id", "").split(",");
+        StringBuilder body = new StringBuilder("{\"cnt\":").append(cityIds.length).append(",\"list\":[");
+        for (int i = 0; i < cityIds.length; i++) {
+            long cityId = Long.parseLong(cityIds[i]) - 1;
+            double lat = cityId / 36001 / 100.0 - 90 + 0.0007;
+            double lon = cityId % 36001 / 100.0 - 180 + 0.0007;
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append(weatherPayload.apply(Map.of("lat", String.format(Locale.ROOT, "%.4f", lat), "lon", String.format(Locale.ROOT, "%.4f", lon))));
+        }
+        return body.append("]}").toString();
+    }
+
+    /**
+     * Returns city ID of the {@link com.github.maxonrash.store.CoordinateGrid#CELL_SIZE 0.01 degree} cell containing the location
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return positive city ID
+     */
+    static long cityIdOf(double lat, double lon) {
+        long latCell = Math.round((lat + 90) * 100);
+        long lonCell = Math.round((lon + 180) * 100);
+        return latCell * 36001 + lonCell + 1;
+    }
+
+    /**
+     * Returns body of geocoding response with one city named <i>q</i>. The location is derived from the name,
+     * so different names are at different locations and the same name is always at the same one
+     *
+     * @param query query parameters of the request
+     * @return JSON array of one city
+     */
+    static String defaultGeocodingPayload(Map<String, String> query) {
+        String name = query.getOrDefault("q", "Stub");
+        int hash = name.toLowerCase(Locale.ROOT).hashCode();
+        // coordinates in 1/1000 of degree
+        double lat = (Math.floorMod(hash, 160000) - 80000) / 1000.0;
+        double lon = (Math.floorMod(hash / 160000, 36000) * 10 - 180000) / 1000.0;
+        return String.format(Locale.ROOT, "[{\"name\":\"%s\",\"local_names\":{\"en\":\"%s\"},\"lat\":%s,\"lon\":%s,\"country\":\"ZZ\"}]",
+                name.replace("\"", ""), name.replace("\"", ""), lat, lon);
+    }
+}
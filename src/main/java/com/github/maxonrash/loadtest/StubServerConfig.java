@@ -0,0 +1,75 @@
+package com.github.maxonrash.loadtest;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Parameters of {@link StubServer}. Every parameter has a default value, so only the ones that differ
+ * need to be set: {@code StubServerConfig.builder().latency(Duration.ofMillis(50)).serverErrorRate(0.01).build()}
+ */
+@Getter
+@Builder
+@ToString
+public class StubServerConfig {
+    /**
+     * Port to listen on, 0 to pick a free one
+     */
+    @Builder.Default
+    private int port = 0;
+    /**
+     * Minimum time before a response is sent
+     */
+    @Builder.Default
+    private Duration latency = Duration.ZERO;
+    /**
+     * Maximum random time added to {@link #latency}
+     */
+    @Builder.Default
+    private Duration latencyJitter = Duration.ZERO;
+    /**
+     * Share of requests answered with 401 "Invalid API key", from 0 to 1
+     */
+    @Builder.Default
+    private double invalidApiKeyRate = 0;
+    /**
+     * Share of requests answered with 429 "too many requests", from 0 to 1
+     */
+    @Builder.Default
+    private double tooManyRequestsRate = 0;
+    /**
+     * Share of requests answered with 500 "Internal error", from 0 to 1
+     */
+    @Builder.Default
+    private double serverErrorRate = 0;
+    /**
+     * Number of threads handling requests
+     */
+    @Builder.Default
+    private int threads = 16;
+    /**
+     * Body of a successful response of current weather endpoint by query parameters of the request.
+     * By default it is weather at the requested <i>lat</i> and <i>lon</i> observed at the moment of the request
+     */
+    @Builder.Default
+    private Function<Map<String, String>, String> weatherPayload = StubServer::defaultWeatherPayload;
+    /**
+     * Body of a successful response of geocoding endpoint by query parameters of the request.
+     * By default it is one city named <i>q</i> at a location derived from the name
+     */
+    @Builder.Default
+    private Function<Map<String, String>, String> geocodingPayload = StubServer::defaultGeocodingPayload;
+
+    /**
+     * Returns config with default values of all parameters
+     *
+     * @return default {@link StubServerConfig}
+     */
+    public static StubServerConfig defaults() {
+        return StubServerConfig.builder().build();
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.maxonrash.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link MetricsRecorder} keeping metrics in memory of the process. Counters are {@link LongAdder}s and latencies are
+ * {@link LatencyHistogram}s, so recording is cheap under contention. Values can be read at any time, e.g. to expose
+ * them by an endpoint of the application or to check them in tests
+ */
+public class InMemoryMetricsRecorder implements MetricsRecorder {
+    private final Map<String, LongAdder> cacheHits = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> cacheMisses = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> cacheEvictions = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> apiCalls = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LongAdder>> apiErrors = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> apiLatencies = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordCacheHit(String cache) {
+        cacheHits.computeIfAbsent(cache, name -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void recordCacheMiss(String cache) {
+        cacheMisses.computeIfAbsent(cache, name -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void recordCacheEviction(String cache) {
+        cacheEvictions.computeIfAbsent(cache, name -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void recordApiCall(String endpoint, long latencyNanos) {
+        apiCalls.computeIfAbsent(endpoint, name -> new LongAdder()).increment();
+        apiLatencies.computeIfAbsent(endpoint, name -> new LatencyHistogram()).record(latencyNanos);
+    }
+
+    @Override
+    public void recordApiError(String endpoint, Class<? extends Throwable> errorType) {
+        apiErrors.computeIfAbsent(endpoint, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(errorType.getSimpleName(), name -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void registerGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    @Override
+    public void unregisterGauge(String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * Returns number of cache hits
+     *
+     * @param cache name of the cache
+     * @return number of hits
+     */
+    public long getCacheHits(String cache) {
+        return sum(cacheHits.get(cache));
+    }
+
+    /**
+     * Returns number of cache misses
+     *
+     * @param cache name of the cache
+     * @return number of misses
+     */
+    public long getCacheMisses(String cache) {
+        return sum(cacheMisses.get(cache));
+    }
+
+    /**
+     * Returns number of cache evictions
+     *
+     * @param cache name of the cache
+     * @return number of evictions
+     */
+    public long getCacheEvictions(String cache) {
+        return sum(cacheEvictions.get(cache));
+    }
+
+    /**
+     * Returns hit ratio of the cache
+     *
+     * @param cache name of the cache
+     * @return hits divided by lookups, 0 if there were no lookups
+     */
+    public double getCacheHitRatio(String cache) {
+        long hits = getCacheHits(cache);
+        long lookups = hits + getCacheMisses(cache);
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns number of completed calls to the endpoint
+     *
+     * @param endpoint name of the endpoint
+     * @return number of calls
+     */
+    public long getApiCalls(String endpoint) {
+        return sum(apiCalls.get(endpoint));
+    }
+
+    /**
+     * Returns number of failed calls to the endpoint by simple name of the exception type
+     *
+     * @param endpoint name of the endpoint
+     * @return sorted map of error counts
+     */
+    public Map<String, Long> getApiErrors(String endpoint) {
+        Map<String, Long> errors = new TreeMap<>();
+        apiErrors.getOrDefault(endpoint, Map.of()).forEach((type, counter) -> errors.put(type, counter.sum()));
+        return errors;
+    }
+
+    /**
+     * Returns latencies of calls to the endpoint
+     *
+     * @param endpoint name of the endpoint
+     * @return live {@link LatencyHistogram}, empty if the endpoint hasn't been called
+     */
+    public LatencyHistogram getApiLatency(String endpoint) {
+        return apiLatencies.getOrDefault(endpoint, new LatencyHistogram());
+    }
+
+    /**
+     * Returns current values of registered gauges
+     *
+     * @return sorted map of gauge values by name
+     */
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, value) -> values.put(name, value.getAsLong()));
+        return values;
+    }
+
+    private static long sum(LongAdder counter) {
+        return counter == null ? 0 : counter.sum();
+    }
+}
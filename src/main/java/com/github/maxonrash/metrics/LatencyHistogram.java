@@ -0,0 +1,101 @@
+package com.github.maxonrash.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of latencies with exponential buckets: bucket <i>i</i> counts latencies up to 2<sup>i</sup>
+ * microseconds, the last bucket counts everything longer. Recording is lock-free and doesn't allocate
+ */
+public class LatencyHistogram {
+    /**
+     * Number of buckets, the last finite one ends at 2<sup>25</sup> microseconds (about 33 seconds)
+     */
+    public static final int BUCKET_COUNT = 27;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one latency
+     *
+     * @param latencyNanos latency in nanoseconds
+     */
+    public void record(long latencyNanos) {
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(latencyNanos);
+        maxNanos.accumulate(latencyNanos);
+    }
+
+    /**
+     * Returns number of recorded latencies
+     *
+     * @return number of recorded latencies
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns sum of recorded latencies
+     *
+     * @return sum of recorded latencies in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Returns the longest recorded latency
+     *
+     * @return the longest latency in nanoseconds, 0 if nothing is recorded
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns upper bound of the bucket containing specified percentile of recorded latencies
+     *
+     * @param percentile percentile between 0 and 1, e.g. 0.99
+     * @return estimate of the percentile in nanoseconds, 0 if nothing is recorded
+     */
+    public long percentileNanos(double percentile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return i == BUCKET_COUNT - 1 ? getMaxNanos() : TimeUnit.MICROSECONDS.toNanos(1L << i);
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * Returns a copy of bucket counters
+     *
+     * @return number of latencies in each bucket
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+}
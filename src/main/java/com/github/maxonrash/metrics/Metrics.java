@@ -0,0 +1,62 @@
+package com.github.maxonrash.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds {@link MetricsRecorder} used by the SDK. Metrics are dropped by {@link MetricsRecorder#NOOP} until another
+ * recorder is set, e.g. {@link InMemoryMetricsRecorder}. Gauges registered by the SDK are passed to every recorder that is set
+ */
+@Slf4j
+public final class Metrics {
+    private static volatile MetricsRecorder recorder = MetricsRecorder.NOOP;
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns recorder the SDK sends metrics to
+     *
+     * @return current {@link MetricsRecorder}
+     */
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Sets recorder the SDK sends metrics to and registers all known gauges in it
+     *
+     * @param metricsRecorder {@link MetricsRecorder} to use, or null to drop metrics
+     */
+    public static synchronized void setRecorder(MetricsRecorder metricsRecorder) {
+        MetricsRecorder newRecorder = metricsRecorder == null ? MetricsRecorder.NOOP : metricsRecorder;
+        gauges.forEach(newRecorder::registerGauge);
+        recorder = newRecorder;
+        log.info("metrics recorder is set to " + newRecorder.getClass().getName());
+    }
+
+    /**
+     * Registers a gauge in the current recorder and in every recorder set later
+     *
+     * @param name name of the gauge
+     * @param value supplier of the current value, cheap and thread-safe
+     */
+    public static synchronized void registerGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+        recorder.registerGauge(name, value);
+    }
+
+    /**
+     * Removes a gauge from the current recorder, so it is not passed to recorders set later either
+     *
+     * @param name name of the gauge
+     */
+    public static synchronized void unregisterGauge(String name) {
+        gauges.remove(name);
+        recorder.unregisterGauge(name);
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.maxonrash.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Receiver of SDK metrics. Implement it to forward the metrics to a monitoring system and install the implementation with
+ * {@link Metrics#setRecorder(MetricsRecorder) Metrics.setRecorder}. Every method does nothing by default, so an
+ * implementation overrides only the metrics it needs. Methods are called from many threads at once and on hot paths,
+ * so they must be thread-safe and must not block
+ */
+public interface MetricsRecorder {
+    /**
+     * Recorder that drops all metrics, used until another one is {@link Metrics#setRecorder(MetricsRecorder) set}
+     */
+    MetricsRecorder NOOP = new MetricsRecorder() {
+    };
+
+    /**
+     * Records a lookup of a value present in the cache
+     *
+     * @param cache name of the cache, e.g. "weather" or "geocoding"
+     */
+    default void recordCacheHit(String cache) {
+    }
+
+    /**
+     * Records a lookup of a value absent in the cache or not usable anymore
+     *
+     * @param cache name of the cache, e.g. "weather" or "geocoding"
+     */
+    default void recordCacheMiss(String cache) {
+    }
+
+    /**
+     * Records eviction of a value from the full cache
+     *
+     * @param cache name of the cache, e.g. "weather" or "geocoding"
+     */
+    default void recordCacheEviction(String cache) {
+    }
+
+    /**
+     * Records a completed call to remote API, successful or not
+     *
+     * @param endpoint name of the endpoint, e.g. "weather" or "geocoding"
+     * @param latencyNanos time of the call in nanoseconds
+     */
+    default void recordApiCall(String endpoint, long latencyNanos) {
+    }
+
+    /**
+     * Records a failed call to remote API. The call is also {@link #recordApiCall(String, long) recorded} as completed
+     *
+     * @param endpoint name of the endpoint, e.g. "weather" or "geocoding"
+     * @param errorType type of the exception the call failed with
+     */
+    default void recordApiError(String endpoint, Class<? extends Throwable> errorType) {
+    }
+
+    /**
+     * Registers a value that is read by the recorder when it needs it, e.g. size of a cache
+     *
+     * @param name name of the gauge, e.g. "cache.weather.size"
+     * @param value supplier of the current value, cheap and thread-safe
+     */
+    default void registerGauge(String name, LongSupplier value) {
+    }
+
+    /**
+     * Removes a gauge registered earlier, e.g. when an SDK instance owning the cache is deleted
+     *
+     * @param name name of the gauge
+     */
+    default void unregisterGauge(String name) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.maxonrash.service;
+
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.exception.*;
+import com.github.maxonrash.store.Gazetteer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link GetGeocodingService} finding cities in a local {@link Gazetteer}. Only names missing in the gazetteer are
+ * requested from the fallback service, e.g. {@link GetGeocodingServiceImpl}, so most lookups need neither a network
+ * round trip nor a call of API key's quota
+ */
+@Slf4j
+public class GazetteerGeocodingService implements GetGeocodingService {
+    private final Gazetteer gazetteer;
+    private final GetGeocodingService fallback;
+
+    /**
+     * Constructs the service without fallback, names missing in the gazetteer are not found
+     *
+     * @param gazetteer {@link Gazetteer} to find cities in
+     */
+    public GazetteerGeocodingService(Gazetteer gazetteer) {
+        this(gazetteer, null);
+    }
+
+    /**
+     * Constructs the service
+     *
+     * @param gazetteer {@link Gazetteer} to find cities in
+     * @param fallback service requested for names missing in the gazetteer, or null if they are not found
+     */
+    public GazetteerGeocodingService(Gazetteer gazetteer, GetGeocodingService fallback) {
+        this.gazetteer = gazetteer;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns cities with specified name from the gazetteer, or from the fallback service if there are none
+     *
+     * @param cityName name of city
+     * @param apiKey API Key for accessing a weather API, used only by the fallback service
+     * @return array of {@link GetGeocodingResponseDTO}
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CityWithThisNameIsNotFoundException if the city is neither in the gazetteer nor found by the fallback service
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    @Override
+    public GetGeocodingResponseDTO[] getGeocodingByCityName(String cityName, String apiKey) throws InvalidApiKeyException, CityWithThisNameIsNotFoundException, CallPerMinuteExceededException, InternalErrorException {
+        GetGeocodingResponseDTO[] found = findGeocodingLocally(cityName);
+        if (found != null) {
+            return found;
+        }
+        if (fallback == null && cityName == null) {
+            throw new IncorrectCityNameException();
+        }
+        if (fallback == null) {
+            throw new CityWithThisNameIsNotFoundException(cityName);
+        }
+        return fallback.getGeocodingByCityName(cityName, apiKey);
+    }
+
+    /**
+     * Asynchronous version of {@link #getGeocodingByCityName(String, String) getGeocodingByCityName}. Cities of the
+     * gazetteer are returned as a completed future
+     *
+     * @param cityName name of city
+     * @param apiKey API Key for accessing a weather API, used only by the fallback service
+     * @return {@link CompletableFuture} of array of {@link GetGeocodingResponseDTO} that completes exceptionally with
+     * the same exceptions as {@link #getGeocodingByCityName(String, String) getGeocodingByCityName}
+     */
+    @Override
+    public CompletableFuture<GetGeocodingResponseDTO[]> getGeocodingByCityNameAsync(String cityName, String apiKey) {
+        GetGeocodingResponseDTO[] found = findGeocodingLocally(cityName);
+        if (found != null) {
+            return CompletableFuture.completedFuture(found);
+        }
+        if (fallback == null) {
+            return CompletableFuture.failedFuture(cityName == null ? new IncorrectCityNameException() : new CityWithThisNameIsNotFoundException(cityName));
+        }
+        return fallback.getGeocodingByCityNameAsync(cityName, apiKey);
+    }
+
+    /**
+     * Returns cities with specified name from the gazetteer
+     *
+     * @param cityName name of city
+     * @return array of {@link GetGeocodingResponseDTO} or null if there are none in the gazetteer
+     */
+    @Override
+    public GetGeocodingResponseDTO[] findGeocodingLocally(String cityName) {
+        if (cityName == null) {
+            return null;
+        }
+        GetGeocodingResponseDTO[] found = gazetteer.find(cityName);
+        if (found.length == 0) {
+            log.info("City \"" + cityName + "\" is not found in gazetteer");
+            return null;
+        }
+        return found;
+    }
+}
@@ -1,10 +1,13 @@
 package com.github.maxonrash.service;
 
 import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.entity.Coordinates;
 import com.github.maxonrash.exception.CallPerMinuteExceededException;
 import com.github.maxonrash.exception.InternalErrorException;
 import com.github.maxonrash.exception.InvalidApiKeyException;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface for accessing weather API. The default implementation is {@link GetCurrentWeatherServiceImpl}
  * Can be implemented by another class to use another weather API
@@ -14,6 +17,10 @@ public interface GetCurrentWeatherService {
      * Default implementation of {@link GetCurrentWeatherService}
      */
     GetCurrentWeatherService DEFAULT_SERVICE = new GetCurrentWeatherServiceImpl();
+    /**
+     * Maximum number of city IDs in one {@link #getCurrentWeatherByCityIds(long[], String) group request}
+     */
+    int MAX_GROUP_SIZE = 20;
 
     /**
      * Returns deserialized JSON response {@link CurrentWeatherResponseDTO} for specified <i>latitude</i> and <i>longitude</i>
@@ -27,4 +34,98 @@ public interface GetCurrentWeatherService {
      * @throws InternalErrorException if an error on weather API side has occurred
      */
     CurrentWeatherResponseDTO getCurrentWeatherByLatAndLonString(String latAndLon, String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException;
+
+    /**
+     * Returns a future of deserialized JSON response {@link CurrentWeatherResponseDTO} for specified <i>latitude</i>
+     * and <i>longitude</i>. The default implementation calls {@link #getCurrentWeatherByLatAndLonString(String, String)
+     * getCurrentWeatherByLatAndLonString} in the calling thread, implementations should override it with non-blocking one
+     *
+     * @param latAndLon string representation of <i>latitude</i> and <i>longitude</i>. Must match the pattern
+     * "^lat=-?\d{1,2}\.\d{2,8}&lon=-?\d{1,3}\.\d{2,8}$" Example: "lat=55.7522&lon=37.6156"
+     * @param apiKey API Key for accessing a weather API
+     * @return {@link CompletableFuture} of {@link CurrentWeatherResponseDTO} that completes exceptionally with
+     * {@link InvalidApiKeyException}, {@link CallPerMinuteExceededException} or {@link InternalErrorException}
+     */
+    default CompletableFuture<CurrentWeatherResponseDTO> getCurrentWeatherByLatAndLonStringAsync(String latAndLon, String apiKey) {
+        try {
+            return CompletableFuture.completedFuture(getCurrentWeatherByLatAndLonString(latAndLon, apiKey));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns deserialized JSON response {@link CurrentWeatherResponseDTO} for specified {@link Coordinates}.
+     * The default implementation calls {@link #getCurrentWeatherByLatAndLonString(String, String)
+     * getCurrentWeatherByLatAndLonString} with {@link Coordinates#toQuery() query string} of the coordinates,
+     * implementations should override it to build the request without the string
+     *
+     * @param coordinates location to get weather of
+     * @param apiKey API Key for accessing a weather API
+     * @return instance of {@link CurrentWeatherResponseDTO}
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    default CurrentWeatherResponseDTO getCurrentWeather(Coordinates coordinates, String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        return getCurrentWeatherByLatAndLonString(coordinates.toQuery(), apiKey);
+    }
+
+    /**
+     * Returns a future of deserialized JSON response {@link CurrentWeatherResponseDTO} for specified {@link Coordinates}.
+     * The default implementation calls {@link #getCurrentWeatherByLatAndLonStringAsync(String, String)
+     * getCurrentWeatherByLatAndLonStringAsync} with {@link Coordinates#toQuery() query string} of the coordinates
+     *
+     * @param coordinates location to get weather of
+     * @param apiKey API Key for accessing a weather API
+     * @return {@link CompletableFuture} of {@link CurrentWeatherResponseDTO} that completes exceptionally with
+     * {@link InvalidApiKeyException}, {@link CallPerMinuteExceededException} or {@link InternalErrorException}
+     */
+    default CompletableFuture<CurrentWeatherResponseDTO> getCurrentWeatherAsync(Coordinates coordinates, String apiKey) {
+        return getCurrentWeatherByLatAndLonStringAsync(coordinates.toQuery(), apiKey);
+    }
+
+    /**
+     * Returns true if the service implements {@link #getCurrentWeatherByCityIds(long[], String) group requests}.
+     * Stored cities are refreshed one request per city otherwise
+     *
+     * @return true if group requests are supported, false by default
+     */
+    default boolean isGroupRequestSupported() {
+        return false;
+    }
+
+    /**
+     * Returns deserialized JSON responses {@link CurrentWeatherResponseDTO} for up to {@link #MAX_GROUP_SIZE} cities
+     * specified by their IDs with one request. Cities unknown to weather API are missing in the result.
+     * The default implementation throws {@link UnsupportedOperationException}
+     *
+     * @param cityIds from 1 to {@link #MAX_GROUP_SIZE} positive city IDs of weather API
+     * @param apiKey API Key for accessing a weather API
+     * @return array of {@link CurrentWeatherResponseDTO}, one per found city
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    default CurrentWeatherResponseDTO[] getCurrentWeatherByCityIds(long[] cityIds, String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        throw new UnsupportedOperationException("Group requests are not supported by " + getClass().getName());
+    }
+
+    /**
+     * Returns a future of deserialized JSON responses {@link CurrentWeatherResponseDTO} for up to {@link #MAX_GROUP_SIZE}
+     * cities specified by their IDs. The default implementation calls {@link #getCurrentWeatherByCityIds(long[], String)
+     * getCurrentWeatherByCityIds} in the calling thread
+     *
+     * @param cityIds from 1 to {@link #MAX_GROUP_SIZE} positive city IDs of weather API
+     * @param apiKey API Key for accessing a weather API
+     * @return {@link CompletableFuture} of array of {@link CurrentWeatherResponseDTO} that completes exceptionally with
+     * {@link InvalidApiKeyException}, {@link CallPerMinuteExceededException} or {@link InternalErrorException}
+     */
+    default CompletableFuture<CurrentWeatherResponseDTO[]> getCurrentWeatherByCityIdsAsync(long[] cityIds, String apiKey) {
+        try {
+            return CompletableFuture.completedFuture(getCurrentWeatherByCityIds(cityIds, apiKey));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
@@ -1,22 +1,22 @@
 package com.github.maxonrash.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.entity.Coordinates;
 import com.github.maxonrash.exception.CallPerMinuteExceededException;
 import com.github.maxonrash.exception.IncorrectLatAndLonStringException;
 import com.github.maxonrash.exception.InternalErrorException;
 import com.github.maxonrash.exception.InvalidApiKeyException;
+import com.github.maxonrash.metrics.Metrics;
+import com.github.maxonrash.transport.HttpTransport;
+import com.github.maxonrash.transport.HttpTransportConfig;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
-import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Pattern;
 
 /**
@@ -24,6 +24,65 @@ import java.util.regex.Pattern;
  */
 @Slf4j
 public class GetCurrentWeatherServiceImpl implements GetCurrentWeatherService {
+    /**
+     * Base URL of OpenWeatherMap.org used if no other is specified
+     */
+    public static final String DEFAULT_BASE_URL = "https://api.openweathermap.org";
+    /**
+     * Name of the endpoint in {@link Metrics}
+     */
+    public static final String METRICS_ENDPOINT = "weather";
+    /**
+     * Name of the group endpoint in {@link Metrics}
+     */
+    public static final String GROUP_METRICS_ENDPOINT = "group";
+    /**
+     * Pattern of "lat=...&amp;lon=..." strings, compiled once
+     */
+    private static final Pattern LAT_AND_LON_PATTERN = Pattern.compile("^lat=-?\\d{1,2}\\.\\d{2,8}&lon=-?\\d{1,3}\\.\\d{2,8}$");
+    /**
+     * Transport used to send requests
+     */
+    private final HttpTransport transport;
+    /**
+     * Beginning of the request URL with the base URL already applied, followed by "lat=...&amp;lon=..." string
+     */
+    private final String urlPrefix;
+    /**
+     * Beginning of the group request URL with the base URL already applied, followed by city IDs
+     */
+    private final String groupUrlPrefix;
+
+    /**
+     * Constructs the service sending requests through {@link HttpTransport#shared() shared} transport
+     */
+    public GetCurrentWeatherServiceImpl() {
+        this(HttpTransport.shared());
+    }
+
+    /**
+     * Constructs the service sending requests through specified transport to {@link HttpTransportConfig#getBaseUrl() base URL}
+     * of the transport, or to {@link #DEFAULT_BASE_URL} if the transport doesn't have one
+     *
+     * @param transport {@link HttpTransport} to send requests through
+     */
+    public GetCurrentWeatherServiceImpl(HttpTransport transport) {
+        this(transport, transport.getConfig().getBaseUrl() == null ? DEFAULT_BASE_URL : transport.getConfig().getBaseUrl());
+    }
+
+    /**
+     * Constructs the service sending requests through specified transport to specified base URL
+     *
+     * @param transport {@link HttpTransport} to send requests through
+     * @param baseUrl scheme, host and port of weather API, e.g. "http://localhost:8080" of a stand-in server
+     */
+    public GetCurrentWeatherServiceImpl(HttpTransport transport, String baseUrl) {
+        this.transport = transport;
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.urlPrefix = base + "/data/2.5/weather?";
+        this.groupUrlPrefix = base + "/data/2.5/group?id=";
+    }
+
     /**
      * Returns deserialized JSON response {@link CurrentWeatherResponseDTO} for specified <i>latitude</i> and <i>longitude</i>
      *
@@ -37,43 +96,239 @@ public class GetCurrentWeatherServiceImpl implements GetCurrentWeatherService {
      */
     @Override
     public CurrentWeatherResponseDTO getCurrentWeatherByLatAndLonString(String latAndLon, String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
-        if (!Pattern.compile("^lat=-?\\d{1,2}\\.\\d{2,8}&lon=-?\\d{1,3}\\.\\d{2,8}$").matcher(latAndLon).find()) {
-            log.info("String representation of coordinates of city to update info about: " + latAndLon);
-            throw new IncorrectLatAndLonStringException();
+        return fetchCurrentWeather(buildUri(latAndLon, apiKey));
+    }
+
+    /**
+     * Returns a future of deserialized JSON response {@link CurrentWeatherResponseDTO} for specified <i>latitude</i>
+     * and <i>longitude</i>. The request is sent with {@link java.net.http.HttpClient#sendAsync sendAsync}, so no
+     * thread waits for the response
+     *
+     * @param latAndLon string representation of <i>latitude</i> and <i>longitude</i>. Must match the pattern
+     * "^lat=-?\d{1,2}\.\d{2,8}&lon=-?\d{1,3}\.\d{2,8}$" Example: "lat=55.7522&lon=37.6156"
+     * @param apiKey API Key for accessing a weather API
+     * @return {@link CompletableFuture} of {@link CurrentWeatherResponseDTO} that completes exceptionally with
+     * {@link InvalidApiKeyException}, {@link CallPerMinuteExceededException} or {@link InternalErrorException}
+     */
+    @Override
+    public CompletableFuture<CurrentWeatherResponseDTO> getCurrentWeatherByLatAndLonStringAsync(String latAndLon, String apiKey) {
+        URI uri;
+        try {
+            uri = buildUri(latAndLon, apiKey);
+        } catch (IncorrectLatAndLonStringException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return fetchCurrentWeatherAsync(uri);
+    }
+
+    /**
+     * Returns deserialized JSON response {@link CurrentWeatherResponseDTO} for specified {@link Coordinates}.
+     * The request URI is appended to the prefix prepared by the constructor, no string is parsed or formatted
+     *
+     * @param coordinates location to get weather of
+     * @param apiKey API Key for accessing a weather API
+     * @return instance of {@link CurrentWeatherResponseDTO}
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    @Override
+    public CurrentWeatherResponseDTO getCurrentWeather(Coordinates coordinates, String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        return fetchCurrentWeather(buildUri(coordinates, apiKey));
+    }
+
+    /**
+     * Returns a future of deserialized JSON response {@link CurrentWeatherResponseDTO} for specified {@link Coordinates}.
+     * The request is sent with {@link java.net.http.HttpClient#sendAsync sendAsync}, so no thread waits for the response
+     *
+     * @param coordinates location to get weather of
+     * @param apiKey API Key for accessing a weather API
+     * @return {@link CompletableFuture} of {@link CurrentWeatherResponseDTO} that completes exceptionally with
+     * {@link InvalidApiKeyException}, {@link CallPerMinuteExceededException} or {@link InternalErrorException}
+     */
+    @Override
+    public CompletableFuture<CurrentWeatherResponseDTO> getCurrentWeatherAsync(Coordinates coordinates, String apiKey) {
+        return fetchCurrentWeatherAsync(buildUri(coordinates, apiKey));
+    }
+
+    /**
+     * Sends the request of current weather and records it in {@link Metrics}
+     *
+     * @param uri URI of the request
+     * @return instance of {@link CurrentWeatherResponseDTO}
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    private CurrentWeatherResponseDTO fetchCurrentWeather(URI uri) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response;
+            try {
+                response = transport.get(uri, HttpResponse.BodyHandlers.ofInputStream());
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return ResponseDecoder.decodeCurrentWeather(response.body());
+        } catch (Exception e) {
+            Metrics.getRecorder().recordApiError(METRICS_ENDPOINT, e.getClass());
+            throw e;
+        } finally {
+            Metrics.getRecorder().recordApiCall(METRICS_ENDPOINT, System.nanoTime() - start);
         }
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(String.format("https://api.openweathermap.org/data/2.5/weather?%s&appid=%s", latAndLon, apiKey)))
-                .header("Content-Type", "application/json")
-                .timeout(Duration.of(10, ChronoUnit.SECONDS))
-                .GET()
-                .build();
-        log.info("Trying to getCurrentWeather with link : " + String.format("https://api.openweathermap.org/data/2.5/weather?%s&appid=%s", latAndLon, "apiKeyHere"));
-        HttpResponse<String> response;
-        ObjectMapper objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * Sends the request of current weather asynchronously and records it in {@link Metrics}
+     *
+     * @param uri URI of the request
+     * @return {@link CompletableFuture} of {@link CurrentWeatherResponseDTO}
+     */
+    private CompletableFuture<CurrentWeatherResponseDTO> fetchCurrentWeatherAsync(URI uri) {
+        long start = System.nanoTime();
+        return transport.getAsync(uri, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            try {
+                return ResponseDecoder.decodeCurrentWeather(response.body());
+            } catch (InvalidApiKeyException | CallPerMinuteExceededException | InternalErrorException e) {
+                throw new CompletionException(e);
+            }
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Metrics.getRecorder().recordApiError(METRICS_ENDPOINT, cause.getClass());
+            }
+            Metrics.getRecorder().recordApiCall(METRICS_ENDPOINT, System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * Returns true as OpenWeatherMap.org supports group requests
+     *
+     * @return true
+     */
+    @Override
+    public boolean isGroupRequestSupported() {
+        return true;
+    }
+
+    /**
+     * Returns deserialized JSON responses {@link CurrentWeatherResponseDTO} for up to {@link #MAX_GROUP_SIZE} cities
+     * specified by their IDs with one request to <i>/data/2.5/group</i>. Cities unknown to weather API are missing in the result
+     *
+     * @param cityIds from 1 to {@link #MAX_GROUP_SIZE} positive city IDs of weather API
+     * @param apiKey API Key for accessing a weather API
+     * @return array of {@link CurrentWeatherResponseDTO}, one per found city
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    @Override
+    public CurrentWeatherResponseDTO[] getCurrentWeatherByCityIds(long[] cityIds, String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        URI uri = buildGroupUri(cityIds, apiKey);
+        long start = System.nanoTime();
         try {
-            response =  client.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+            HttpResponse<InputStream> response;
+            try {
+                response = transport.get(uri, HttpResponse.BodyHandlers.ofInputStream());
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return ResponseDecoder.decodeGroup(response.body()).getList();
+        } catch (Exception e) {
+            Metrics.getRecorder().recordApiError(GROUP_METRICS_ENDPOINT, e.getClass());
+            throw e;
+        } finally {
+            Metrics.getRecorder().recordApiCall(GROUP_METRICS_ENDPOINT, System.nanoTime() - start);
         }
+    }
+
+    /**
+     * Returns a future of deserialized JSON responses {@link CurrentWeatherResponseDTO} for up to {@link #MAX_GROUP_SIZE}
+     * cities specified by their IDs. The request is sent with {@link java.net.http.HttpClient#sendAsync sendAsync}
+     *
+     * @param cityIds from 1 to {@link #MAX_GROUP_SIZE} positive city IDs of weather API
+     * @param apiKey API Key for accessing a weather API
+     * @return {@link CompletableFuture} of array of {@link CurrentWeatherResponseDTO} that completes exceptionally with
+     * {@link InvalidApiKeyException}, {@link CallPerMinuteExceededException} or {@link InternalErrorException}
+     */
+    @Override
+    public CompletableFuture<CurrentWeatherResponseDTO[]> getCurrentWeatherByCityIdsAsync(long[] cityIds, String apiKey) {
+        URI uri;
         try {
-            JsonNode node = objectMapper.readTree(response.body());
-            if (node.has("cod")) {
-                int responseCode = node.get("cod").asInt();
-                switch (responseCode) {
-                    case 200 -> {
-                        log.info("Full JSON string of successful call with code 200: ");
-                        log.info(response.body());
-                        return objectMapper.readValue(response.body(), CurrentWeatherResponseDTO.class);
-                    }
-                    case 401 -> throw new InvalidApiKeyException();
-                    case 429 -> throw new CallPerMinuteExceededException();
-                    default -> throw new InternalErrorException(node.get("message").asText());
-                }
+            uri = buildGroupUri(cityIds, apiKey);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        return transport.getAsync(uri, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            try {
+                return ResponseDecoder.decodeGroup(response.body()).getList();
+            } catch (InvalidApiKeyException | CallPerMinuteExceededException | InternalErrorException e) {
+                throw new CompletionException(e);
+            }
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Metrics.getRecorder().recordApiError(GROUP_METRICS_ENDPOINT, cause.getClass());
+            }
+            Metrics.getRecorder().recordApiCall(GROUP_METRICS_ENDPOINT, System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * Validates city IDs and builds URI of the group request
+     *
+     * @param cityIds city IDs of weather API
+     * @param apiKey API Key for accessing a weather API
+     * @return URI of the request
+     */
+    private URI buildGroupUri(long[] cityIds, String apiKey) {
+        if (cityIds.length == 0 || cityIds.length > MAX_GROUP_SIZE) {
+            throw new IllegalArgumentException("Group request must contain from 1 to " + MAX_GROUP_SIZE + " city IDs, got " + cityIds.length);
+        }
+        StringBuilder ids = new StringBuilder();
+        for (long cityId : cityIds) {
+            if (cityId <= 0) {
+                throw new IllegalArgumentException("City ID must be positive, got " + cityId);
             }
-            return objectMapper.readValue(response.body(), CurrentWeatherResponseDTO.class);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(cityId);
+        }
+        String link = groupUrlPrefix + ids + "&appid=";
+        log.info("Trying to getCurrentWeather of group with link : " + link + "apiKeyHere");
+        return URI.create(link + apiKey);
+    }
+
+    /**
+     * Validates coordinates string and builds URI of the request
+     *
+     * @param latAndLon string representation of <i>latitude</i> and <i>longitude</i>
+     * @param apiKey API Key for accessing a weather API
+     * @return URI of the request
+     */
+    private URI buildUri(String latAndLon, String apiKey) {
+        if (!LAT_AND_LON_PATTERN.matcher(latAndLon).find()) {
+            log.info("String representation of coordinates of city to update info about: " + latAndLon);
+            throw new IncorrectLatAndLonStringException();
         }
+        String link = urlPrefix + latAndLon + "&appid=";
+        log.info("Trying to getCurrentWeather with link : " + link + "apiKeyHere");
+        return URI.create(link + apiKey);
+    }
+
+    /**
+     * Builds URI of the request of weather at specified coordinates, which are validated when created and
+     * written by {@link Coordinates#toQuery()}
+     *
+     * @param coordinates location to get weather of
+     * @param apiKey API Key for accessing a weather API
+     * @return URI of the request
+     */
+    private URI buildUri(Coordinates coordinates, String apiKey) {
+        String link = urlPrefix + coordinates.toQuery() + "&appid=";
+        log.info("Trying to getCurrentWeather with link : " + link + "apiKeyHere");
+        return URI.create(link + apiKey);
     }
 }
@@ -6,6 +6,8 @@ import com.github.maxonrash.exception.CityWithThisNameIsNotFoundException;
 import com.github.maxonrash.exception.InternalErrorException;
 import com.github.maxonrash.exception.InvalidApiKeyException;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface for accessing weather API geocoding service. The default implementation is {@link GetGeocodingServiceImpl}
  * Can be implemented by another class to use another weather API geocoding service
@@ -28,4 +30,36 @@ public interface GetGeocodingService {
      * @throws InternalErrorException if an error on weather API side has occurred
      */
     GetGeocodingResponseDTO[] getGeocodingByCityName(String cityName, String apiKey) throws InvalidApiKeyException, CityWithThisNameIsNotFoundException, CallPerMinuteExceededException, InternalErrorException;
+
+    /**
+     * Returns a future of an array of found cities {@link GetGeocodingResponseDTO} for specified cityName.
+     * The default implementation calls {@link #getGeocodingByCityName(String, String) getGeocodingByCityName}
+     * in the calling thread, implementations should override it with non-blocking one
+     *
+     * @param cityName name of city that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$" Example: Rostov_na_donu
+     * @param apiKey API Key for accessing a weather API
+     * @return {@link CompletableFuture} of array of {@link GetGeocodingResponseDTO} that completes exceptionally with
+     * {@link InvalidApiKeyException}, {@link CityWithThisNameIsNotFoundException}, {@link CallPerMinuteExceededException}
+     * or {@link InternalErrorException}
+     */
+    default CompletableFuture<GetGeocodingResponseDTO[]> getGeocodingByCityNameAsync(String cityName, String apiKey) {
+        try {
+            return CompletableFuture.completedFuture(getGeocodingByCityName(cityName, apiKey));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns found cities for specified cityName if the service has them locally, without calling weather API.
+     * {@link com.github.maxonrash.CurrentWeatherSDK CurrentWeatherSDK} calls it before taking a token of client-side
+     * rate limiting, so cities found locally don't use up calls per minute
+     *
+     * @param cityName name of city
+     * @return array of {@link GetGeocodingResponseDTO} with at least one city, or null if the city must be requested
+     * with {@link #getGeocodingByCityName(String, String) getGeocodingByCityName}. Null by default
+     */
+    default GetGeocodingResponseDTO[] findGeocodingLocally(String cityName) {
+        return null;
+    }
 }
@@ -1,24 +1,68 @@
 package com.github.maxonrash.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
 import com.github.maxonrash.exception.*;
+import com.github.maxonrash.metrics.Metrics;
+import com.github.maxonrash.transport.HttpTransport;
+import com.github.maxonrash.transport.HttpTransportConfig;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
-import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Pattern;
 
 /**
  * Default implementation of {@link GetGeocodingService} using OpenWeatherMap.org for getting city's name geocode
  */
 public class GetGeocodingServiceImpl implements GetGeocodingService {
+    /**
+     * Base URL of OpenWeatherMap.org used if no other is specified
+     */
+    public static final String DEFAULT_BASE_URL = "http://api.openweathermap.org";
+    /**
+     * Name of the endpoint in {@link Metrics}
+     */
+    public static final String METRICS_ENDPOINT = "geocoding";
+    /**
+     * Transport used to send requests
+     */
+    private final HttpTransport transport;
+    /**
+     * Format of the request URL with the base URL already applied
+     */
+    private final String urlFormat;
+
+    /**
+     * Constructs the service sending requests through {@link HttpTransport#shared() shared} transport
+     */
+    public GetGeocodingServiceImpl() {
+        this(HttpTransport.shared());
+    }
+
+    /**
+     * Constructs the service sending requests through specified transport to {@link HttpTransportConfig#getBaseUrl() base URL}
+     * of the transport, or to {@link #DEFAULT_BASE_URL} if the transport doesn't have one
+     *
+     * @param transport {@link HttpTransport} to send requests through
+     */
+    public GetGeocodingServiceImpl(HttpTransport transport) {
+        this(transport, transport.getConfig().getBaseUrl() == null ? DEFAULT_BASE_URL : transport.getConfig().getBaseUrl());
+    }
+
+    /**
+     * Constructs the service sending requests through specified transport to specified base URL
+     *
+     * @param transport {@link HttpTransport} to send requests through
+     * @param baseUrl scheme, host and port of weather API, e.g. "http://localhost:8080" of a stand-in server
+     */
+    public GetGeocodingServiceImpl(HttpTransport transport, String baseUrl) {
+        this.transport = transport;
+        this.urlFormat = (baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl) + "/geo/1.0/direct?q=%s&limit=1&appid=%s";
+    }
+
     /**
      * Returns an array of found cities {@link GetGeocodingResponseDTO} for specified cityName
      *
@@ -32,40 +76,84 @@ public class GetGeocodingServiceImpl implements GetGeocodingService {
      */
     @Override
     public GetGeocodingResponseDTO[] getGeocodingByCityName(String cityName, String apiKey) throws InvalidApiKeyException, CityWithThisNameIsNotFoundException, CallPerMinuteExceededException, InternalErrorException {
-        if (cityName == null || !Pattern.compile("^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$").matcher(cityName).find()) {
-            throw new IncorrectCityNameException();
-        }
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(String.format("http://api.openweathermap.org/geo/1.0/direct?q=%s&limit=1&appid=%s", cityName, apiKey)))
-                .header("Content-Type", "application/json")
-                .timeout(Duration.of(10, ChronoUnit.SECONDS))
-                .GET()
-                .build();
-        HttpResponse<String> response;
+        URI uri = buildUri(cityName, apiKey);
+        long start = System.nanoTime();
         try {
-            response =  client.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+            HttpResponse<InputStream> response;
+            try {
+                response = transport.get(uri, HttpResponse.BodyHandlers.ofInputStream());
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return requireFound(ResponseDecoder.decodeGeocoding(response.body()), cityName);
+        } catch (Exception e) {
+            Metrics.getRecorder().recordApiError(METRICS_ENDPOINT, e.getClass());
+            throw e;
+        } finally {
+            Metrics.getRecorder().recordApiCall(METRICS_ENDPOINT, System.nanoTime() - start);
         }
-        ObjectMapper objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * Returns a future of an array of found cities {@link GetGeocodingResponseDTO} for specified cityName.
+     * The request is sent with {@link java.net.http.HttpClient#sendAsync sendAsync}, so no thread waits for the response
+     *
+     * @param cityName name of city that must follow pattern "^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$" Example: Rostov_na_donu
+     * @param apiKey API Key for accessing a weather API
+     * @return {@link CompletableFuture} of array of {@link GetGeocodingResponseDTO} that completes exceptionally with
+     * {@link InvalidApiKeyException}, {@link CityWithThisNameIsNotFoundException}, {@link CallPerMinuteExceededException}
+     * or {@link InternalErrorException}
+     */
+    @Override
+    public CompletableFuture<GetGeocodingResponseDTO[]> getGeocodingByCityNameAsync(String cityName, String apiKey) {
+        URI uri;
         try {
-            JsonNode node = objectMapper.readTree(response.body());
-            if (node.has("cod")) {
-                int responseCode = node.get("cod").asInt();
-                switch (responseCode) {
-                    case 401 -> throw new InvalidApiKeyException();
-                    case 429 -> throw new CallPerMinuteExceededException();
-                    default -> throw new InternalErrorException(node.get("message").asText());
-                }
+            uri = buildUri(cityName, apiKey);
+        } catch (IncorrectCityNameException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        return transport.getAsync(uri, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            try {
+                return requireFound(ResponseDecoder.decodeGeocoding(response.body()), cityName);
+            } catch (InvalidApiKeyException | CityWithThisNameIsNotFoundException | CallPerMinuteExceededException | InternalErrorException e) {
+                throw new CompletionException(e);
             }
-            GetGeocodingResponseDTO[] responseDeserialized = objectMapper.readValue(response.body(), GetGeocodingResponseDTO[].class);
-            if (responseDeserialized.length < 1) {
-                throw new CityWithThisNameIsNotFoundException(cityName);
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Metrics.getRecorder().recordApiError(METRICS_ENDPOINT, cause.getClass());
             }
-            return responseDeserialized;
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
+            Metrics.getRecorder().recordApiCall(METRICS_ENDPOINT, System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * Validates city name and builds URI of the request
+     *
+     * @param cityName name of city
+     * @param apiKey API Key for accessing a weather API
+     * @return URI of the request
+     */
+    private URI buildUri(String cityName, String apiKey) {
+        if (cityName == null || !Pattern.compile("^[\\w&&[^\\d]][\\w-_&&[^\\d]]{0,30}$").matcher(cityName).find()) {
+            throw new IncorrectCityNameException();
+        }
+        return URI.create(String.format(urlFormat, cityName, apiKey));
+    }
+
+    /**
+     * Returns found cities or throws exception if there are none
+     *
+     * @param found decoded response of geocoding API
+     * @param cityName name of requested city
+     * @return array of {@link GetGeocodingResponseDTO}
+     * @throws CityWithThisNameIsNotFoundException if the city with specified name is not found by weather API
+     */
+    private static GetGeocodingResponseDTO[] requireFound(GetGeocodingResponseDTO[] found, String cityName) throws CityWithThisNameIsNotFoundException {
+        if (found.length < 1) {
+            throw new CityWithThisNameIsNotFoundException(cityName);
         }
+        return found;
     }
 }
@@ -0,0 +1,139 @@
+package com.github.maxonrash.service;
+
+import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.entity.Coordinates;
+import com.github.maxonrash.exception.CallPerMinuteExceededException;
+import com.github.maxonrash.exception.InternalErrorException;
+import com.github.maxonrash.exception.InvalidApiKeyException;
+import com.github.maxonrash.transport.ApiKeyPool;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link GetCurrentWeatherService} sending each call with a key of {@link ApiKeyPool} instead of the passed one.
+ * A call rejected because its key exceeded calls per minute or is invalid is repeated with another key of the pool
+ */
+public class PooledGetCurrentWeatherService implements GetCurrentWeatherService {
+    private final GetCurrentWeatherService delegate;
+    private final ApiKeyPool apiKeyPool;
+
+    /**
+     * Constructs the service
+     *
+     * @param delegate service making the calls
+     * @param apiKeyPool pool of API keys to send the calls with
+     */
+    public PooledGetCurrentWeatherService(GetCurrentWeatherService delegate, ApiKeyPool apiKeyPool) {
+        this.delegate = delegate;
+        this.apiKeyPool = apiKeyPool;
+    }
+
+    /**
+     * Returns current weather at specified location using a key of the pool
+     *
+     * @param latAndLon "lat=...&amp;lon=..." string of the location
+     * @param apiKey ignored, a key of the pool is used instead
+     * @return {@link CurrentWeatherResponseDTO}
+     * @throws InvalidApiKeyException if all keys of the pool are invalid
+     * @throws CallPerMinuteExceededException if all keys of the pool exceeded their calls per minute
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    @Override
+    public CurrentWeatherResponseDTO getCurrentWeatherByLatAndLonString(String latAndLon, String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        return call(key -> delegate.getCurrentWeatherByLatAndLonString(latAndLon, key));
+    }
+
+    /**
+     * Asynchronous version of {@link #getCurrentWeatherByLatAndLonString(String, String) getCurrentWeatherByLatAndLonString}
+     *
+     * @param latAndLon "lat=...&amp;lon=..." string of the location
+     * @param apiKey ignored, a key of the pool is used instead
+     * @return {@link CompletableFuture} of {@link CurrentWeatherResponseDTO}
+     */
+    @Override
+    public CompletableFuture<CurrentWeatherResponseDTO> getCurrentWeatherByLatAndLonStringAsync(String latAndLon, String apiKey) {
+        return apiKeyPool.callAsync(key -> delegate.getCurrentWeatherByLatAndLonStringAsync(latAndLon, key));
+    }
+
+    /**
+     * Returns current weather at specified coordinates using a key of the pool
+     *
+     * @param coordinates location to get weather of
+     * @param apiKey ignored, a key of the pool is used instead
+     * @return {@link CurrentWeatherResponseDTO}
+     * @throws InvalidApiKeyException if all keys of the pool are invalid
+     * @throws CallPerMinuteExceededException if all keys of the pool exceeded their calls per minute
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    @Override
+    public CurrentWeatherResponseDTO getCurrentWeather(Coordinates coordinates, String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        return call(key -> delegate.getCurrentWeather(coordinates, key));
+    }
+
+    /**
+     * Asynchronous version of {@link #getCurrentWeather(Coordinates, String) getCurrentWeather}
+     *
+     * @param coordinates location to get weather of
+     * @param apiKey ignored, a key of the pool is used instead
+     * @return {@link CompletableFuture} of {@link CurrentWeatherResponseDTO}
+     */
+    @Override
+    public CompletableFuture<CurrentWeatherResponseDTO> getCurrentWeatherAsync(Coordinates coordinates, String apiKey) {
+        return apiKeyPool.callAsync(key -> delegate.getCurrentWeatherAsync(coordinates, key));
+    }
+
+    /**
+     * Returns true if the wrapped service supports group requests
+     *
+     * @return value of the wrapped service
+     */
+    @Override
+    public boolean isGroupRequestSupported() {
+        return delegate.isGroupRequestSupported();
+    }
+
+    /**
+     * Returns current weather of specified cities with one group request using a key of the pool
+     *
+     * @param cityIds IDs of cities
+     * @param apiKey ignored, a key of the pool is used instead
+     * @return weather of the cities found by weather API
+     * @throws InvalidApiKeyException if all keys of the pool are invalid
+     * @throws CallPerMinuteExceededException if all keys of the pool exceeded their calls per minute
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    @Override
+    public CurrentWeatherResponseDTO[] getCurrentWeatherByCityIds(long[] cityIds, String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        return call(key -> delegate.getCurrentWeatherByCityIds(cityIds, key));
+    }
+
+    /**
+     * Asynchronous version of {@link #getCurrentWeatherByCityIds(long[], String) getCurrentWeatherByCityIds}
+     *
+     * @param cityIds IDs of cities
+     * @param apiKey ignored, a key of the pool is used instead
+     * @return {@link CompletableFuture} of weather of the cities found by weather API
+     */
+    @Override
+    public CompletableFuture<CurrentWeatherResponseDTO[]> getCurrentWeatherByCityIdsAsync(long[] cityIds, String apiKey) {
+        return apiKeyPool.callAsync(key -> delegate.getCurrentWeatherByCityIdsAsync(cityIds, key));
+    }
+
+    private <T> T call(WeatherCall<T> call) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        for (int attempt = 1; ; attempt++) {
+            String key = apiKeyPool.acquire();
+            try {
+                return call.call(key);
+            } catch (InvalidApiKeyException | CallPerMinuteExceededException e) {
+                if (!apiKeyPool.reportFailure(key, e) || attempt >= apiKeyPool.size()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface WeatherCall<T> {
+        T call(String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.maxonrash.service;
+
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.exception.CallPerMinuteExceededException;
+import com.github.maxonrash.exception.CityWithThisNameIsNotFoundException;
+import com.github.maxonrash.exception.InternalErrorException;
+import com.github.maxonrash.exception.InvalidApiKeyException;
+import com.github.maxonrash.transport.ApiKeyPool;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link GetGeocodingService} sending each call with a key of {@link ApiKeyPool} instead of the passed one.
+ * A call rejected because its key exceeded calls per minute or is invalid is repeated with another key of the pool
+ */
+public class PooledGetGeocodingService implements GetGeocodingService {
+    private final GetGeocodingService delegate;
+    private final ApiKeyPool apiKeyPool;
+
+    /**
+     * Constructs the service
+     *
+     * @param delegate service making the calls
+     * @param apiKeyPool pool of API keys to send the calls with
+     */
+    public PooledGetGeocodingService(GetGeocodingService delegate, ApiKeyPool apiKeyPool) {
+        this.delegate = delegate;
+        this.apiKeyPool = apiKeyPool;
+    }
+
+    /**
+     * Returns geocoding results of specified city found locally by the wrapped service or requested using a key of the pool
+     *
+     * @param cityName name of city
+     * @param apiKey ignored, a key of the pool is used instead
+     * @return array of {@link GetGeocodingResponseDTO}
+     * @throws InvalidApiKeyException if all keys of the pool are invalid
+     * @throws CityWithThisNameIsNotFoundException if the city with specified name is not found by weather API
+     * @throws CallPerMinuteExceededException if all keys of the pool exceeded their calls per minute
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    @Override
+    public GetGeocodingResponseDTO[] getGeocodingByCityName(String cityName, String apiKey) throws InvalidApiKeyException, CityWithThisNameIsNotFoundException, CallPerMinuteExceededException, InternalErrorException {
+        GetGeocodingResponseDTO[] found = delegate.findGeocodingLocally(cityName);
+        if (found != null) {
+            return found;
+        }
+        for (int attempt = 1; ; attempt++) {
+            String key = apiKeyPool.acquire();
+            try {
+                return delegate.getGeocodingByCityName(cityName, key);
+            } catch (InvalidApiKeyException | CallPerMinuteExceededException e) {
+                if (!apiKeyPool.reportFailure(key, e) || attempt >= apiKeyPool.size()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #getGeocodingByCityName(String, String) getGeocodingByCityName}
+     *
+     * @param cityName name of city
+     * @param apiKey ignored, a key of the pool is used instead
+     * @return {@link CompletableFuture} of array of {@link GetGeocodingResponseDTO}
+     */
+    @Override
+    public CompletableFuture<GetGeocodingResponseDTO[]> getGeocodingByCityNameAsync(String cityName, String apiKey) {
+        GetGeocodingResponseDTO[] found = delegate.findGeocodingLocally(cityName);
+        if (found != null) {
+            return CompletableFuture.completedFuture(found);
+        }
+        return apiKeyPool.callAsync(key -> delegate.getGeocodingByCityNameAsync(cityName, key));
+    }
+
+    /**
+     * Returns found cities of the wrapped service, no key of the pool is used
+     *
+     * @param cityName name of city
+     * @return array of {@link GetGeocodingResponseDTO} or null if the city must be requested
+     */
+    @Override
+    public GetGeocodingResponseDTO[] findGeocodingLocally(String cityName) {
+        return delegate.findGeocodingLocally(cityName);
+    }
+}
@@ -0,0 +1,253 @@
+package com.github.maxonrash.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.DeserializationProblemHandler;
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.dto.response.weather.current.GroupCurrentWeatherResponseDTO;
+import com.github.maxonrash.exception.CallPerMinuteExceededException;
+import com.github.maxonrash.exception.InternalErrorException;
+import com.github.maxonrash.exception.InvalidApiKeyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes responses of OpenWeatherMap.org in a single pass. The body is read with a streaming parser that detects
+ * the error envelope <i>{"cod": ..., "message": ...}</i> by the first tokens and otherwise binds the rest of the body
+ * straight into the DTO with shared {@link ObjectReader}s, so no intermediate tree or string is built. An envelope
+ * with <i>cod</i> after other fields is bound as well and recognized by <i>cod</i> of the DTO
+ */
+final class ResponseDecoder {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // message of error envelope is the only field the weather DTO doesn't have
+    private static final ObjectReader CURRENT_WEATHER_READER = MAPPER.readerFor(CurrentWeatherResponseDTO.class)
+            .withHandler(new DeserializationProblemHandler() {
+                @Override
+                public boolean handleUnknownProperty(DeserializationContext ctxt, JsonParser p, JsonDeserializer<?> deserializer,
+                                                     Object beanOrClass, String propertyName) throws IOException {
+                    if (!"message".equals(propertyName)) {
+                        return false;
+                    }
+                    p.skipChildren();
+                    return true;
+                }
+            });
+    private static final ObjectReader GEOCODING_READER = MAPPER.readerFor(GetGeocodingResponseDTO[].class);
+    // cities of group response have a few fields more than single ones, e.g. sys.timezone
+    private static final ObjectReader GROUP_READER = MAPPER.readerFor(GroupCurrentWeatherResponseDTO.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private ResponseDecoder() {
+    }
+
+    /**
+     * Decodes response of current weather API
+     *
+     * @param body body of the response, closed after decoding
+     * @return instance of {@link CurrentWeatherResponseDTO}
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    static CurrentWeatherResponseDTO decodeCurrentWeather(InputStream body) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            return decodeCurrentWeather(parser);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Decodes response of current weather API
+     *
+     * @param body body of the response
+     * @return instance of {@link CurrentWeatherResponseDTO}
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    static CurrentWeatherResponseDTO decodeCurrentWeather(byte[] body) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            return decodeCurrentWeather(parser);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Decodes response of geocoding API. An empty array is returned as is
+     *
+     * @param body body of the response, closed after decoding
+     * @return array of {@link GetGeocodingResponseDTO}
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    static GetGeocodingResponseDTO[] decodeGeocoding(InputStream body) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            return decodeGeocoding(parser);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Decodes response of geocoding API. An empty array is returned as is
+     *
+     * @param body body of the response
+     * @return array of {@link GetGeocodingResponseDTO}
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    static GetGeocodingResponseDTO[] decodeGeocoding(byte[] body) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            return decodeGeocoding(parser);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Decodes response of group current weather API
+     *
+     * @param body body of the response, closed after decoding
+     * @return instance of {@link GroupCurrentWeatherResponseDTO}
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    static GroupCurrentWeatherResponseDTO decodeGroup(InputStream body) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            return decodeGroup(parser);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Decodes response of group current weather API
+     *
+     * @param body body of the response
+     * @return instance of {@link GroupCurrentWeatherResponseDTO}
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    static GroupCurrentWeatherResponseDTO decodeGroup(byte[] body) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            return decodeGroup(parser);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static CurrentWeatherResponseDTO decodeCurrentWeather(JsonParser parser) throws IOException, InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new InternalErrorException("Unexpected response of weather API");
+        }
+        if (parser.nextToken() == JsonToken.FIELD_NAME && "cod".equals(parser.getCurrentName())) {
+            parser.nextToken();
+            int responseCode = parser.getValueAsInt();
+            if (responseCode != 200) {
+                throwError(responseCode, readMessage(parser));
+            }
+            CurrentWeatherResponseDTO dto = parser.nextToken() == JsonToken.END_OBJECT
+                    ? new CurrentWeatherResponseDTO()
+                    : CURRENT_WEATHER_READER.readValue(parser);
+            dto.setCod(responseCode);
+            return dto;
+        }
+        // the reader continues binding from the current field name
+        CurrentWeatherResponseDTO dto = CURRENT_WEATHER_READER.readValue(parser);
+        requireSuccess(dto.getCod());
+        return dto;
+    }
+
+    private static GroupCurrentWeatherResponseDTO decodeGroup(JsonParser parser) throws IOException, InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new InternalErrorException("Unexpected response of weather API");
+        }
+        if (parser.nextToken() == JsonToken.FIELD_NAME && "cod".equals(parser.getCurrentName())) {
+            parser.nextToken();
+            throwError(parser.getValueAsInt(), readMessage(parser));
+        }
+        GroupCurrentWeatherResponseDTO dto = parser.currentToken() == JsonToken.END_OBJECT
+                ? new GroupCurrentWeatherResponseDTO()
+                : GROUP_READER.readValue(parser);
+        requireSuccess(dto.getCod());
+        if (dto.getList() == null) {
+            dto.setList(new CurrentWeatherResponseDTO[0]);
+        }
+        return dto;
+    }
+
+    private static GetGeocodingResponseDTO[] decodeGeocoding(JsonParser parser) throws IOException, InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            int responseCode = 0;
+            String message = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("cod".equals(field)) {
+                    responseCode = parser.getValueAsInt();
+                } else if ("message".equals(field)) {
+                    message = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            throwError(responseCode, message);
+        }
+        if (token != JsonToken.START_ARRAY) {
+            throw new InternalErrorException("Unexpected response of geocoding API");
+        }
+        return GEOCODING_READER.readValue(parser);
+    }
+
+    /**
+     * Reads the rest of the error envelope after its <i>cod</i> field and returns its <i>message</i>
+     */
+    private static String readMessage(JsonParser parser) throws IOException {
+        String message = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("message".equals(field)) {
+                message = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Throws exception matching <i>cod</i> bound into the DTO if it is an error code. Its message is not kept by the DTO.
+     * Successful responses have code 200 or none at all
+     */
+    private static void requireSuccess(int responseCode) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        if (responseCode != 0 && responseCode != 200) {
+            throwError(responseCode, "Weather API responded with code " + responseCode);
+        }
+    }
+
+    /**
+     * Throws exception matching error code of the response
+     */
+    private static void throwError(int responseCode, String message) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        switch (responseCode) {
+            case 401 -> throw new InvalidApiKeyException();
+            case 429 -> throw new CallPerMinuteExceededException();
+            default -> throw new InternalErrorException(message);
+        }
+    }
+}
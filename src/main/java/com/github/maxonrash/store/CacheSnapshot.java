@@ -0,0 +1,199 @@
+package com.github.maxonrash.store;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of {@link StoredCitiesData} and {@link StoredGeocodingData}, so a restarted application serves
+ * stored cities instead of requesting all of them again. The snapshot is written into a memory-mapped temporary file
+ * that replaces the previous snapshot atomically, and is read from a memory-mapped file as well.
+ * <p>Layout: header <i>magic, version, written at millis, number of weather entries, number of geocoding entries</i>,
+ * then weather entries <i>lat, lon, city ID, JSON length, JSON</i> with JSON stored as it was serialized on insertion,
+ * then geocoding entries <i>name length, normalized name, expires at millis, JSON length or -1 if not found, JSON</i>
+ */
+@Slf4j
+public final class CacheSnapshot {
+    private static final int MAGIC = 0x4F574D53; // "OWMS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+    private static final ObjectMapper MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final ObjectReader ENTITY_READER = MAPPER.readerFor(CurrentWeatherEntity.class);
+    private static final ObjectReader GEOCODING_READER = MAPPER.readerFor(GetGeocodingResponseDTO.class);
+    private static final ObjectWriter GEOCODING_WRITER = MAPPER.writerFor(GetGeocodingResponseDTO.class);
+
+    private CacheSnapshot() {
+    }
+
+    /**
+     * Writes weather of the {@link StoredCitiesData shared storage} and stored geocoding results to specified file,
+     * replacing the previous snapshot atomically
+     *
+     * @param file snapshot file, its directory must exist
+     * @return number of written entries
+     * @throws IOException if the file cannot be written
+     */
+    public static int write(Path file) throws IOException {
+        return write(file, StoredCitiesData.getSharedStorage());
+    }
+
+    /**
+     * Writes all weather of specified storage, e.g. {@link com.github.maxonrash.CurrentWeatherSDK#getWeatherStorage() storage
+     * of an SDK instance}, and stored geocoding results to specified file, replacing the previous snapshot atomically
+     *
+     * @param file snapshot file, its directory must exist
+     * @param weatherStorage {@link WeatherStorage} to write
+     * @return number of written entries
+     * @throws IOException if the file cannot be written
+     */
+    public static int write(Path file, WeatherStorage weatherStorage) throws IOException {
+        List<StoredCitiesData.StoredWeather> weather = weatherStorage.getAllStoredWeather();
+        List<byte[]> names = new ArrayList<>();
+        List<Long> expirations = new ArrayList<>();
+        List<byte[]> geocodes = new ArrayList<>();
+        long size = HEADER_SIZE;
+        for (StoredCitiesData.StoredWeather stored : weather) {
+            size += 8 + 8 + 8 + 4 + stored.getJsonLength();
+        }
+        for (Map.Entry<String, StoredGeocodingData.StoredGeocode> entry : StoredGeocodingData.getAllGeocodingData().entrySet()) {
+            StoredGeocodingData.StoredGeocode stored = entry.getValue();
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] json = stored.isNotFound() ? null : GEOCODING_WRITER.writeValueAsBytes(stored.getGeocodingResponseDTO());
+            names.add(name);
+            expirations.add(stored.getExpiresAtMillis());
+            geocodes.add(json);
+            size += 4 + name.length + 8 + 4 + (json == null ? 0 : json.length);
+        }
+
+        // each write has its own temporary file, so concurrent writes never interleave in one file
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).putInt(weather.size()).putInt(names.size());
+            for (StoredCitiesData.StoredWeather stored : weather) {
+                CurrentWeatherEntity entity = stored.getCurrentWeatherEntity();
+                buffer.putDouble(entity.getLat()).putDouble(entity.getLon()).putLong(entity.getId()).putInt(stored.getJsonLength());
+                buffer.put(stored.getJsonBuffer());
+            }
+            for (int i = 0; i < names.size(); i++) {
+                byte[] json = geocodes.get(i);
+                buffer.putInt(names.get(i).length).put(names.get(i)).putLong(expirations.get(i));
+                buffer.putInt(json == null ? -1 : json.length);
+                if (json != null) {
+                    buffer.put(json);
+                }
+            }
+            buffer.force();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.info("written snapshot of " + weather.size() + " cities and " + names.size() + " geocoding results to " + file);
+        return weather.size() + names.size();
+    }
+
+    /**
+     * Restores weather and geocoding results from specified file. Geocoding results are stored until their original
+     * expiration time, weather keeps its observation time, so outdated weather is not returned as up-to-date.
+     * Entries already present in the storages are kept
+     *
+     * @param file snapshot file
+     * @param maxWeatherAge weather older than this is not restored
+     * @return number of restored entries, 0 if the file doesn't exist
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static int restore(Path file, Duration maxWeatherAge) throws IOException {
+        return restore(file, maxWeatherAge, StoredCitiesData.getSharedStorage());
+    }
+
+    /**
+     * Restores weather into specified storage and geocoding results from specified file. See {@link #restore(Path, Duration)}
+     *
+     * @param file snapshot file
+     * @param maxWeatherAge weather older than this is not restored
+     * @param weatherStorage {@link WeatherStorage} to restore weather into
+     * @return number of restored entries, 0 if the file doesn't exist
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static int restore(Path file, Duration maxWeatherAge, WeatherStorage weatherStorage) throws IOException {
+        if (!Files.exists(file)) {
+            log.info("no snapshot to restore at " + file);
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot of stored cities: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            long writtenAtMillis = buffer.getLong();
+            int weatherCount = buffer.getInt();
+            int geocodingCount = buffer.getInt();
+            long oldest = System.currentTimeMillis() / 1000 - maxWeatherAge.toSeconds();
+            int restored = 0;
+            for (int i = 0; i < weatherCount; i++) {
+                double lat = buffer.getDouble();
+                double lon = buffer.getDouble();
+                long cityId = buffer.getLong();
+                byte[] json = bytes(buffer, buffer.getInt());
+                CurrentWeatherEntity entity = ENTITY_READER.readValue(json);
+                if (entity.getDateTime() < oldest) {
+                    continue;
+                }
+                entity.setLat(lat);
+                entity.setLon(lon);
+                entity.setId(cityId);
+                if (weatherStorage.restoreCurrentWeatherData(entity, json)) {
+                    restored++;
+                }
+            }
+            for (int i = 0; i < geocodingCount; i++) {
+                String name = new String(bytes(buffer, buffer.getInt()), StandardCharsets.UTF_8);
+                long expiresAtMillis = buffer.getLong();
+                int jsonLength = buffer.getInt();
+                GetGeocodingResponseDTO geocodingResponseDTO = jsonLength < 0 ? null : GEOCODING_READER.readValue(bytes(buffer, jsonLength));
+                if (StoredGeocodingData.restoreGeocodingData(name, geocodingResponseDTO, expiresAtMillis)) {
+                    restored++;
+                }
+            }
+            log.info("restored " + restored + " of " + (weatherCount + geocodingCount) + " entries from snapshot written "
+                    + Duration.ofMillis(System.currentTimeMillis() - writtenAtMillis).toSeconds() + " sec ago");
+            return restored;
+        } catch (RuntimeException e) { // buffer underflow or malformed JSON of a truncated file
+            throw new IOException("Corrupted snapshot of stored cities: " + file, e);
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.maxonrash.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keeps {@link CacheSnapshot} of {@link StoredCitiesData} and {@link StoredGeocodingData} up to date, so they survive restarts.
+ * When {@link #start() started} restores the snapshot in a background daemon thread without delaying the caller,
+ * then writes it periodically, when {@link #stop() stopped} and, if configured, when the JVM shuts down.
+ * Writes are serialized, and nothing is written until the snapshot is restored, so a write can't replace
+ * the snapshot with the storage that is still being warmed up from it
+ */
+@Slf4j
+public class CacheSnapshotter {
+    private final SnapshotConfig config;
+    /**
+     * Storage of weather to write and restore, asked on each write as the shared one may be replaced
+     */
+    private final Supplier<WeatherStorage> weatherStorage;
+    private final Object writeLock = new Object();
+    private volatile boolean restored;
+    private ScheduledExecutorService scheduler;
+    private Thread shutdownHook;
+
+    /**
+     * Constructs the snapshotter. It doesn't run until {@link #start() started}
+     *
+     * @param config {@link SnapshotConfig} with the file and parameters of writing
+     */
+    public CacheSnapshotter(SnapshotConfig config) {
+        this.config = config;
+        this.weatherStorage = StoredCitiesData::getSharedStorage;
+    }
+
+    /**
+     * Constructs the snapshotter of specified storage of weather, e.g. {@link com.github.maxonrash.CurrentWeatherSDK#getWeatherStorage()
+     * storage of an SDK instance}. It doesn't run until {@link #start() started}
+     *
+     * @param config {@link SnapshotConfig} with the file and parameters of writing
+     * @param weatherStorage {@link WeatherStorage} to write and restore
+     */
+    public CacheSnapshotter(SnapshotConfig config, WeatherStorage weatherStorage) {
+        this.config = config;
+        this.weatherStorage = () -> weatherStorage;
+    }
+
+    /**
+     * Restores the snapshot in background and starts periodic writing. Does nothing if it is already running
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "openweathermap-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the only thread of the scheduler restores the snapshot before the first periodic write
+        restored = false;
+        scheduler.execute(this::restoreSafely);
+        long interval = config.getWriteInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::writeSafely, interval, interval, TimeUnit.MILLISECONDS);
+        if (config.isWriteOnShutdown()) {
+            shutdownHook = new Thread(this::writeSafely, "openweathermap-snapshot-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+        log.info("started snapshots of stored cities with " + config);
+    }
+
+    /**
+     * Stops periodic writing and writes the snapshot one last time. Does nothing if it is not running
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(config.getWriteInterval().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) { // the JVM is already shutting down and runs the hook
+                return;
+            }
+            shutdownHook = null;
+        }
+        writeSafely();
+        log.info("stopped snapshots of stored cities");
+    }
+
+    /**
+     * Returns true if periodic writing is running
+     *
+     * @return true if the snapshotter is {@link #start() started}
+     */
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    private void restoreSafely() {
+        try {
+            CacheSnapshot.restore(config.getFile(), config.getMaxWeatherAge(), weatherStorage.get());
+        } catch (IOException | RuntimeException e) {
+            log.info("failed to restore snapshot of stored cities: " + e.getMessage());
+        } finally {
+            restored = true;
+        }
+    }
+
+    private void writeSafely() {
+        if (!restored) { // e.g. the JVM shuts down right after a restart, the snapshot is still better than the storage
+            log.info("skipped writing snapshot of stored cities as it is not restored yet");
+            return;
+        }
+        synchronized (writeLock) {
+            try {
+                CacheSnapshot.write(config.getFile(), weatherStorage.get());
+            } catch (IOException | RuntimeException e) { // an exception would cancel further writes
+                log.info("failed to write snapshot of stored cities: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.store.StoredCitiesData.StoredWeather;
+import com.github.maxonrash.store.cache.CacheEngine;
+import com.github.maxonrash.store.cache.CacheStats;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * {@link WeatherEntries} kept in {@link CacheEngine} as {@link StoredWeather} objects with their JSON
+ */
+class CachedWeatherEntries implements WeatherEntries {
+    private final CacheEngine<Long, StoredWeather> data;
+
+    CachedWeatherEntries(CacheEngine<Long, StoredWeather> data) {
+        this.data = data;
+    }
+
+    @Override
+    public Long findKey(double lat, double lon) {
+        for (long key : CoordinateGrid.neighbourhoodOf(lat, lon)) {
+            StoredWeather stored = data.peek(key);
+            if (stored != null && CoordinateGrid.isSameLocation(stored.getCurrentWeatherEntity().getLat(), stored.getCurrentWeatherEntity().getLon(), lat, lon)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public StoredWeather peek(long key) {
+        return data.peek(key);
+    }
+
+    @Override
+    public StoredWeather find(long key, Predicate<? super StoredWeather> isHit) {
+        return data.find(key, isHit);
+    }
+
+    @Override
+    public void put(long key, CurrentWeatherEntity currentWeatherEntity, byte[] json) {
+        data.put(key, json == null ? StoredWeather.of(currentWeatherEntity) : new StoredWeather(currentWeatherEntity, json));
+    }
+
+    @Override
+    public void remove(long key) {
+        data.remove(key);
+    }
+
+    @Override
+    public Collection<StoredWeather> values() {
+        return data.asMap().values();
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return data.getCapacity();
+    }
+
+    @Override
+    public void clear() {
+        data.clear();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return data.stats();
+    }
+}
@@ -0,0 +1,438 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory search index of city names for type-ahead, answering without calling geocoding API. Names are
+ * {@link Gazetteer#normalize(String) normalized} and kept in a compressed trie (radix tree), where a chain of nodes
+ * with one child each is merged into one edge. A city is indexed by its name and all its {@code local_names}, and is
+ * ranked by popularity, the number of times it was {@link #add(GetGeocodingResponseDTO) added}. Each node keeps the
+ * highest popularity of its subtree, so the best cities of a prefix are found without visiting all of them.
+ * <p>Cities are added one by one as they are geocoded, see {@link StoredGeocodingData#getCityNameIndex()}, and cities
+ * of local data once with {@link #addIfAbsent(GetGeocodingResponseDTO) addIfAbsent}. Safe to use from many threads at once: searches share a lock,
+ * additions hold it exclusively
+ */
+public class CityNameIndex {
+    private final Node root = new Node(new char[0]);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<String> seenCities = ConcurrentHashMap.newKeySet();
+    private int nameCount;
+    private int cityCount;
+
+    /**
+     * Adds the city under its name and its local names, or increases its popularity if it is already indexed under
+     * one of them at the same location
+     *
+     * @param city geocoded city, cities without name are ignored
+     */
+    public void add(GetGeocodingResponseDTO city) {
+        if (city == null || city.getName() == null) {
+            return;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        names.add(city.getName());
+        if (city.getLocalNames() != null) {
+            names.addAll(city.getLocalNames().values());
+        }
+        lock.writeLock().lock();
+        try {
+            List<Node> terminals = new ArrayList<>(names.size());
+            List<String> matchedNames = new ArrayList<>(names.size());
+            List<char[]> keys = new ArrayList<>(names.size());
+            Set<String> distinctKeys = new HashSet<>();
+            IndexedCity indexed = null;
+            for (String name : names) {
+                String key = name == null ? "" : Gazetteer.normalize(name);
+                if (key.isEmpty() || !distinctKeys.add(key)) {
+                    continue;
+                }
+                Node terminal = insert(key.toCharArray());
+                terminals.add(terminal);
+                matchedNames.add(name);
+                keys.add(key.toCharArray());
+                if (indexed == null) {
+                    indexed = terminal.find(city.getLat(), city.getLon());
+                }
+            }
+            if (indexed == null) {
+                indexed = new IndexedCity(city.getName(), city.getLat(), city.getLon(), city.getCountry(), city.getState());
+                cityCount++;
+            }
+            for (int i = 0; i < terminals.size(); i++) {
+                Node terminal = terminals.get(i);
+                if (terminal.find(indexed.lat, indexed.lon) == null) {
+                    terminal.add(new Entry(matchedNames.get(i), indexed));
+                    indexed.keys.add(keys.get(i));
+                    nameCount++;
+                }
+            }
+            indexed.popularity++;
+            for (char[] key : indexed.keys) {
+                raiseMaxPopularity(key, indexed.popularity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the city as {@link #add(GetGeocodingResponseDTO) add} does only the first time it is passed to this method.
+     * Later calls with the same city don't take the lock and don't change its popularity, so it can be called on
+     * every lookup of a city found in local data such as a {@link Gazetteer}
+     *
+     * @param city city found in local data, cities without name are ignored
+     */
+    public void addIfAbsent(GetGeocodingResponseDTO city) {
+        if (city == null || city.getName() == null) {
+            return;
+        }
+        if (seenCities.add(Gazetteer.normalize(city.getName()) + '|' + city.getLat() + '|' + city.getLon())) {
+            add(city);
+        }
+    }
+
+    /**
+     * Returns the most popular cities with a name starting with specified prefix. Case, surrounding whitespaces,
+     * underscores and hyphens are ignored, so partial input such as "rostov na" can be passed as is
+     *
+     * @param prefix beginning of city name typed so far
+     * @param limit maximum number of returned cities
+     * @return list of {@link CitySuggestion} from the most popular, each city once
+     */
+    public List<CitySuggestion> searchPrefix(String prefix, int limit) {
+        char[] key = Gazetteer.normalize(prefix).toCharArray();
+        List<CitySuggestion> suggestions = new ArrayList<>(Math.max(0, Math.min(limit, 16)));
+        lock.readLock().lock();
+        try {
+            Node node = locate(key);
+            if (node == null || limit < 1) {
+                return suggestions;
+            }
+            // best-first traversal: a node is expanded only when no entry found so far is more popular than its subtree
+            PriorityQueue<Object> queue = new PriorityQueue<>(Comparator.comparingLong(CityNameIndex::priority).reversed()
+                    .thenComparing(candidate -> candidate instanceof Node));
+            queue.add(node);
+            Set<IndexedCity> suggested = new HashSet<>();
+            while (!queue.isEmpty() && suggestions.size() < limit) {
+                Object candidate = queue.poll();
+                if (candidate instanceof Entry entry) {
+                    if (suggested.add(entry.city)) {
+                        suggestions.add(entry.toSuggestion(0));
+                    }
+                    continue;
+                }
+                Node expanded = (Node) candidate;
+                queue.addAll(expanded.entries);
+                queue.addAll(Arrays.asList(expanded.children));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns cities with a name within specified edit distance (Levenshtein distance) from the query, closest first
+     * and the most popular among equally close ones. Names are compared after normalization as in {@link #searchPrefix(String, int)}
+     *
+     * @param query possibly misspelled city name
+     * @param maxDistance maximum number of inserted, deleted or replaced characters, 1 or 2 is usually enough
+     * @param limit maximum number of returned cities
+     * @return list of {@link CitySuggestion}, each city once
+     */
+    public List<CitySuggestion> searchFuzzy(String query, int maxDistance, int limit) {
+        char[] key = Gazetteer.normalize(query).toCharArray();
+        List<CitySuggestion> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int[] row = new int[key.length + 1];
+            for (int i = 0; i <= key.length; i++) {
+                row[i] = i;
+            }
+            collectFuzzy(root, row, key, maxDistance, matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingInt(CitySuggestion::getDistance)
+                .thenComparing(Comparator.comparingLong(CitySuggestion::getPopularity).reversed())
+                .thenComparing(CitySuggestion::getMatchedName));
+        List<CitySuggestion> suggestions = new ArrayList<>(Math.max(0, Math.min(limit, matches.size())));
+        Set<String> suggested = new HashSet<>();
+        for (CitySuggestion match : matches) {
+            if (suggestions.size() >= limit) {
+                break;
+            }
+            if (suggested.add(match.getName() + '|' + match.getLat() + '|' + match.getLon())) {
+                suggestions.add(match);
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns number of indexed names, a city with local names is indexed under several names
+     *
+     * @return number of names
+     */
+    public int getNameCount() {
+        lock.readLock().lock();
+        try {
+            return nameCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of indexed cities
+     *
+     * @return number of cities
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return cityCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all cities
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children = Node.NO_CHILDREN;
+            root.entries = List.of();
+            root.maxPopularity = 0;
+            nameCount = 0;
+            cityCount = 0;
+            seenCities.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns node of the key, splitting an edge or adding a node if there is none
+     */
+    private Node insert(char[] key) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length) {
+            Node child = node.child(key[i]);
+            if (child == null) {
+                child = new Node(Arrays.copyOfRange(key, i, key.length));
+                node.addChild(child);
+                return child;
+            }
+            int common = 1;
+            while (common < child.label.length && i + common < key.length && child.label[common] == key[i + common]) {
+                common++;
+            }
+            if (common < child.label.length) {
+                Node middle = new Node(Arrays.copyOf(child.label, common));
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                middle.children = new Node[]{child};
+                middle.maxPopularity = child.maxPopularity;
+                node.replaceChild(child, middle);
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    /**
+     * Returns node whose subtree holds all names starting with the key, or null if there are none
+     */
+    private Node locate(char[] key) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length) {
+            Node child = node.child(key[i]);
+            if (child == null) {
+                return null;
+            }
+            for (int j = 0; j < child.label.length && i < key.length; j++, i++) {
+                if (child.label[j] != key[i]) {
+                    return null;
+                }
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Raises highest popularity of nodes on the path of the key, popularity never decreases
+     */
+    private void raiseMaxPopularity(char[] key, long popularity) {
+        Node node = root;
+        node.maxPopularity = Math.max(node.maxPopularity, popularity);
+        for (int i = 0; i < key.length; i += node.label.length) {
+            node = node.child(key[i]);
+            node.maxPopularity = Math.max(node.maxPopularity, popularity);
+        }
+    }
+
+    /**
+     * Walks the subtree computing one row of the Levenshtein matrix per character of the edges, skipping subtrees
+     * whose best row value already exceeds the maximum distance
+     */
+    private static void collectFuzzy(Node node, int[] row, char[] key, int maxDistance, List<CitySuggestion> matches) {
+        for (char c : node.label) {
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            int best = next[0];
+            for (int i = 1; i < row.length; i++) {
+                next[i] = Math.min(Math.min(next[i - 1], row[i]) + 1, row[i - 1] + (key[i - 1] == c ? 0 : 1));
+                best = Math.min(best, next[i]);
+            }
+            if (best > maxDistance) {
+                return;
+            }
+            row = next;
+        }
+        int distance = row[row.length - 1];
+        if (distance <= maxDistance) {
+            for (Entry entry : node.entries) {
+                matches.add(entry.toSuggestion(distance));
+            }
+        }
+        for (Node child : node.children) {
+            collectFuzzy(child, row, key, maxDistance, matches);
+        }
+    }
+
+    private static long priority(Object candidate) {
+        return candidate instanceof Entry entry ? entry.city.popularity : ((Node) candidate).maxPopularity;
+    }
+
+    /**
+     * Node of the trie with the edge label leading to it
+     */
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] label;
+        /**
+         * Children sorted by the first character of their labels
+         */
+        private Node[] children = NO_CHILDREN;
+        private List<Entry> entries = List.of();
+        private long maxPopularity;
+
+        private Node(char[] label) {
+            this.label = label;
+        }
+
+        private Node child(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char c = children[middle].label[0];
+                if (c < first) {
+                    low = middle + 1;
+                } else if (c > first) {
+                    high = middle - 1;
+                } else {
+                    return children[middle];
+                }
+            }
+            return null;
+        }
+
+        private void addChild(Node child) {
+            int position = 0;
+            while (position < children.length && children[position].label[0] < child.label[0]) {
+                position++;
+            }
+            Node[] extended = new Node[children.length + 1];
+            System.arraycopy(children, 0, extended, 0, position);
+            extended[position] = child;
+            System.arraycopy(children, position, extended, position + 1, children.length - position);
+            children = extended;
+        }
+
+        private void replaceChild(Node child, Node replacement) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == child) {
+                    children[i] = replacement;
+                    return;
+                }
+            }
+        }
+
+        private void add(Entry entry) {
+            if (entries.isEmpty()) {
+                entries = new ArrayList<>(1);
+            }
+            entries.add(entry);
+        }
+
+        private IndexedCity find(double lat, double lon) {
+            for (Entry entry : entries) {
+                if (CoordinateGrid.isSameLocation(entry.city.lat, entry.city.lon, lat, lon)) {
+                    return entry.city;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * City indexed under one of its names
+     */
+    private static final class Entry {
+        private final String matchedName;
+        private final IndexedCity city;
+
+        private Entry(String matchedName, IndexedCity city) {
+            this.matchedName = matchedName;
+            this.city = city;
+        }
+
+        private CitySuggestion toSuggestion(int distance) {
+            return new CitySuggestion(matchedName, city.name, city.lat, city.lon, city.country, city.state, distance, city.popularity);
+        }
+    }
+
+    /**
+     * City shared by entries of all its names
+     */
+    private static final class IndexedCity {
+        private final String name;
+        private final double lat;
+        private final double lon;
+        private final String country;
+        private final String state;
+        /**
+         * Normalized names the city is indexed under
+         */
+        private final List<char[]> keys = new ArrayList<>(1);
+        private long popularity;
+
+        private IndexedCity(String name, double lat, double lon, String country, String state) {
+            this.name = name;
+            this.lat = lat;
+            this.lon = lon;
+            this.country = country;
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.entity.Coordinates;
+import lombok.Value;
+
+/**
+ * City found by {@link CityNameIndex} for a typed prefix or a misspelled name
+ */
+@Value
+public class CitySuggestion {
+    /**
+     * Name the query matched, the city name or one of its local names
+     */
+    String matchedName;
+    /**
+     * Name of the city returned by geocoding API
+     */
+    String name;
+    /**
+     * Latitude of the city
+     */
+    double lat;
+    /**
+     * Longitude of the city
+     */
+    double lon;
+    /**
+     * Country code of the city, may be null
+     */
+    String country;
+    /**
+     * State of the city, may be null
+     */
+    String state;
+    /**
+     * Edit distance between the query and the matched name, 0 for prefix matches
+     */
+    int distance;
+    /**
+     * Number of times the city was added to the index, higher is ranked first
+     */
+    long popularity;
+
+    /**
+     * Returns coordinates of the city, e.g. for {@link com.github.maxonrash.CurrentWeatherSDK#retrieveCurrentWeatherJSON(Coordinates)
+     * retrieving its weather} without geocoding
+     *
+     * @return {@link Coordinates} of the city
+     */
+    public Coordinates getCoordinates() {
+        return Coordinates.of(lat, lon);
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.metrics.Metrics;
+import com.github.maxonrash.store.StoredCitiesData.StoredWeather;
+import com.github.maxonrash.store.cache.CacheStats;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * {@link WeatherEntries} kept in {@link ColumnarWeatherStore}. Weather is copied into primitive arrays when it is stored
+ * and read as a new entity, whose JSON is serialized only if it is requested. Locations are looked up in the arrays,
+ * so a lookup builds an entity only for the city it returns
+ */
+class ColumnarWeatherEntries implements WeatherEntries {
+    private final ColumnarWeatherStore store;
+    private final String metricsName;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    ColumnarWeatherEntries(int capacity, String metricsName) {
+        this.store = new ColumnarWeatherStore(capacity, metricsName);
+        this.metricsName = metricsName;
+    }
+
+    @Override
+    public Long findKey(double lat, double lon) {
+        return store.findKey(lat, lon);
+    }
+
+    @Override
+    public StoredWeather peek(long key) {
+        CurrentWeatherEntity entity = store.get(key);
+        return entity == null ? null : StoredWeather.lazy(entity);
+    }
+
+    @Override
+    public StoredWeather find(long key, Predicate<? super StoredWeather> isHit) {
+        StoredWeather stored = peek(key);
+        if (stored == null || !isHit.test(stored)) {
+            missCount.increment();
+            if (metricsName != null) {
+                Metrics.getRecorder().recordCacheMiss(metricsName);
+            }
+            return null;
+        }
+        hitCount.increment();
+        if (metricsName != null) {
+            Metrics.getRecorder().recordCacheHit(metricsName);
+        }
+        return stored;
+    }
+
+    @Override
+    public void put(long key, CurrentWeatherEntity currentWeatherEntity, byte[] json) {
+        store.put(currentWeatherEntity);
+    }
+
+    @Override
+    public void remove(long key) {
+        store.remove(key);
+    }
+
+    @Override
+    public Collection<StoredWeather> values() {
+        return store.getAll().stream().map(StoredWeather::lazy).toList();
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return store.getCapacity();
+    }
+
+    @Override
+    public void clear() {
+        store.clear();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), store.getEvictionCount(), store.size(), store.getCapacity());
+    }
+}
@@ -0,0 +1,458 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.entity.Sys;
+import com.github.maxonrash.entity.Temperature;
+import com.github.maxonrash.entity.Weather;
+import com.github.maxonrash.entity.Wind;
+import com.github.maxonrash.metrics.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compact storage of weather of many locations, e.g. every {@link CoordinateGrid} cell of a region. Instead of a
+ * {@link CurrentWeatherEntity} with its nested objects per city, fields of all cities are kept in parallel primitive
+ * arrays indexed by slot, about 125 bytes per city with the index. Repeated strings, such as weather descriptions
+ * and city names, are dictionary-encoded into int codes. A {@link CurrentWeatherEntity} is built only when a city
+ * is read, and checks of its age read a single array element.
+ * <p>Locations are looked up the same way as in {@link StoredCitiesData}: a city is found within
+ * {@link CoordinateGrid#CELL_SIZE} degree from the requested location. When the storage is full, the city stored
+ * earliest is replaced: slots are linked in the order their cities were first stored, and updating weather of a stored
+ * city keeps its place. Can back a {@link WeatherStorage#columnar(int, String) WeatherStorage}.
+ * Safe to use from many threads at once: reads share a lock, writes hold it exclusively
+ */
+@Slf4j
+public class ColumnarWeatherStore {
+    private static final long FREE = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final long[] slotKeys;
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] temp;
+    private final double[] feelsLike;
+    private final double[] windSpeed;
+    private final long[] dateTime;
+    private final long[] sunrise;
+    private final long[] sunset;
+    private final long[] cityId;
+    private final long[] timezone;
+    private final int[] visibility;
+    private final int[] weatherMain;
+    private final int[] weatherDescription;
+    private final int[] name;
+    // slots linked from the city stored earliest to the latest one
+    private final int[] earlierSlot;
+    private final int[] laterSlot;
+
+    private final LongIntIndex index;
+    private StringDictionary dictionary = new StringDictionary();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int[] freeSlots;
+    private final String metricsName;
+    private int freeCount;
+    private int usedSlots;
+    private int earliestSlot = -1;
+    private int latestSlot = -1;
+    private int size;
+    private long evictionCount;
+
+    /**
+     * Constructs an empty storage. All arrays are allocated at once
+     *
+     * @param capacity maximum number of stored cities, must be positive
+     */
+    public ColumnarWeatherStore(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Constructs an empty storage reporting its evictions to {@link Metrics#getRecorder() metrics recorder}.
+     * All arrays are allocated at once
+     *
+     * @param capacity maximum number of stored cities, must be positive
+     * @param metricsName name of the storage in metrics, or null to not report them
+     */
+    public ColumnarWeatherStore(int capacity, String metricsName) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.slotKeys = new long[capacity];
+        Arrays.fill(slotKeys, FREE);
+        this.lat = new double[capacity];
+        this.lon = new double[capacity];
+        this.temp = new double[capacity];
+        this.feelsLike = new double[capacity];
+        this.windSpeed = new double[capacity];
+        this.dateTime = new long[capacity];
+        this.sunrise = new long[capacity];
+        this.sunset = new long[capacity];
+        this.cityId = new long[capacity];
+        this.timezone = new long[capacity];
+        this.visibility = new int[capacity];
+        this.weatherMain = new int[capacity];
+        this.weatherDescription = new int[capacity];
+        this.name = new int[capacity];
+        this.index = new LongIntIndex(capacity);
+        this.freeSlots = new int[capacity];
+        this.earlierSlot = new int[capacity];
+        this.laterSlot = new int[capacity];
+        this.metricsName = metricsName;
+    }
+
+    /**
+     * Stores weather of the city, replacing weather of the city at the same location. The entity is copied into
+     * the arrays and is not referenced by the storage
+     *
+     * @param currentWeatherEntity weather to store
+     */
+    public void put(CurrentWeatherEntity currentWeatherEntity) {
+        double entityLat = currentWeatherEntity.getLat();
+        double entityLon = currentWeatherEntity.getLon();
+        long key = CoordinateGrid.keyOf(entityLat, entityLon);
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(entityLat, entityLon);
+            if (slot < 0) {
+                slot = allocateSlot();
+            } else if (slotKeys[slot] != key) {
+                index.remove(slotKeys[slot]);
+            }
+            slotKeys[slot] = key;
+            index.put(key, slot);
+            lat[slot] = entityLat;
+            lon[slot] = entityLon;
+            Temperature temperature = currentWeatherEntity.getTemperature();
+            temp[slot] = temperature == null ? Double.NaN : temperature.getTemp();
+            feelsLike[slot] = temperature == null ? Double.NaN : temperature.getFeelsLike();
+            windSpeed[slot] = currentWeatherEntity.getWind() == null ? Double.NaN : currentWeatherEntity.getWind().getSpeed();
+            dateTime[slot] = currentWeatherEntity.getDateTime();
+            Sys sys = currentWeatherEntity.getSys();
+            sunrise[slot] = sys == null ? Long.MIN_VALUE : sys.getSunrise();
+            sunset[slot] = sys == null ? Long.MIN_VALUE : sys.getSunset();
+            cityId[slot] = currentWeatherEntity.getId();
+            timezone[slot] = currentWeatherEntity.getTimezone();
+            visibility[slot] = currentWeatherEntity.getVisibility();
+            Weather weather = currentWeatherEntity.getWeather();
+            weatherMain[slot] = weather == null ? StringDictionary.NULL_CODE - 1 : dictionary.encode(weather.getMain());
+            weatherDescription[slot] = weather == null ? StringDictionary.NULL_CODE : dictionary.encode(weather.getDescription());
+            name[slot] = dictionary.encode(currentWeatherEntity.getName());
+            if (dictionary.size() > 2 * capacity + 256) {
+                compactDictionary();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns weather of the city at specified location built from the arrays
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return new {@link CurrentWeatherEntity} or null if there is no such city in the storage
+     */
+    public CurrentWeatherEntity get(double lat, double lon) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(lat, lon);
+            return slot < 0 ? null : view(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns weather of the city stored under specified {@link CoordinateGrid} key built from the arrays
+     *
+     * @param key {@link CoordinateGrid#keyOf(double, double) key} of the city
+     * @return new {@link CurrentWeatherEntity} or null if there is no such city in the storage
+     */
+    CurrentWeatherEntity get(long key) {
+        lock.readLock().lock();
+        try {
+            int slot = index.get(key);
+            return slot < 0 ? null : view(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns {@link CoordinateGrid} key of the city within {@link CoordinateGrid#CELL_SIZE} degree from the location.
+     * Reads only the coordinate arrays, no {@link CurrentWeatherEntity} is built
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return {@link CoordinateGrid#keyOf(double, double) key} of the city or null if there is no such city in the storage
+     */
+    Long findKey(double lat, double lon) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(lat, lon);
+            return slot < 0 ? null : slotKeys[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the city stored under specified {@link CoordinateGrid} key
+     *
+     * @param key {@link CoordinateGrid#keyOf(double, double) key} of the city
+     * @return true if the city was stored
+     */
+    boolean remove(long key) {
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(key);
+            if (slot < 0) {
+                return false;
+            }
+            release(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns weather of all stored cities at the moment of the call, built from the arrays
+     *
+     * @return list of new {@link CurrentWeatherEntity}
+     */
+    List<CurrentWeatherEntity> getAll() {
+        lock.readLock().lock();
+        try {
+            List<CurrentWeatherEntity> all = new ArrayList<>(size);
+            for (int slot = earliestSlot; slot >= 0; slot = laterSlot[slot]) {
+                all.add(view(slot));
+            }
+            return all;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns time of the weather of the city at specified location without building {@link CurrentWeatherEntity}
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return unix time of the weather in seconds, or -1 if there is no such city in the storage
+     */
+    public long getDateTime(double lat, double lon) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(lat, lon);
+            return slot < 0 ? -1 : dateTime[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns true if the city at specified location is stored and its weather is younger than
+     * {@link StoredCitiesData#getTimeToLiveSeconds() time to live}
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return true if the stored weather is up-to-date
+     */
+    public boolean isUpToDate(double lat, double lon) {
+        long storedDateTime = getDateTime(lat, lon);
+        return storedDateTime >= 0 && System.currentTimeMillis() / 1000 - storedDateTime < StoredCitiesData.getTimeToLiveSeconds();
+    }
+
+    /**
+     * Removes the city at specified location
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return true if the city was stored
+     */
+    public boolean remove(double lat, double lon) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(lat, lon);
+            if (slot < 0) {
+                return false;
+            }
+            release(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all cities and strings of the dictionary. Arrays are kept allocated
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(slotKeys, FREE);
+            index.clear();
+            dictionary.clear();
+            freeCount = 0;
+            usedSlots = 0;
+            earliestSlot = -1;
+            latestSlot = -1;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of stored cities
+     *
+     * @return number of stored cities
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns maximum number of stored cities
+     *
+     * @return capacity of the storage
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns number of cities replaced because the storage was full
+     *
+     * @return number of evictions
+     */
+    public long getEvictionCount() {
+        lock.readLock().lock();
+        try {
+            return evictionCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of distinct strings kept in the dictionary
+     *
+     * @return size of the dictionary
+     */
+    public int getDictionarySize() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns slot of the city within {@link CoordinateGrid#CELL_SIZE} degree from the location, the same
+     * neighbourhood probe as {@link StoredCitiesData} does
+     */
+    private int findSlot(double lat, double lon) {
+        for (long key : CoordinateGrid.neighbourhoodOf(lat, lon)) {
+            int slot = index.get(key);
+            if (slot >= 0 && CoordinateGrid.isSameLocation(this.lat[slot], this.lon[slot], lat, lon)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a free slot linked as the latest one, replacing the city stored earliest if there is none
+     */
+    private int allocateSlot() {
+        if (freeCount == 0 && usedSlots == capacity) {
+            release(earliestSlot);
+            evictionCount++;
+            if (metricsName != null) {
+                Metrics.getRecorder().recordCacheEviction(metricsName);
+            }
+        }
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : usedSlots++;
+        earlierSlot[slot] = latestSlot;
+        laterSlot[slot] = -1;
+        if (latestSlot < 0) {
+            earliestSlot = slot;
+        } else {
+            laterSlot[latestSlot] = slot;
+        }
+        latestSlot = slot;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Removes the city of the slot from the index and the order of storing and makes the slot free
+     */
+    private void release(int slot) {
+        index.remove(slotKeys[slot]);
+        slotKeys[slot] = FREE;
+        int earlier = earlierSlot[slot];
+        int later = laterSlot[slot];
+        if (earlier < 0) {
+            earliestSlot = later;
+        } else {
+            laterSlot[earlier] = later;
+        }
+        if (later < 0) {
+            latestSlot = earlier;
+        } else {
+            earlierSlot[later] = earlier;
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    private CurrentWeatherEntity view(int slot) {
+        return CurrentWeatherEntity.builder()
+                .lat(lat[slot])
+                .lon(lon[slot])
+                .weather(weatherMain[slot] < StringDictionary.NULL_CODE ? null
+                        : new Weather(dictionary.decode(weatherMain[slot]), dictionary.decode(weatherDescription[slot])))
+                .temperature(Double.isNaN(temp[slot]) ? null : new Temperature(temp[slot], feelsLike[slot]))
+                .visibility(visibility[slot])
+                .wind(Double.isNaN(windSpeed[slot]) ? null : new Wind(windSpeed[slot]))
+                .dateTime(dateTime[slot])
+                .sys(sunrise[slot] == Long.MIN_VALUE ? null : new Sys(sunrise[slot], sunset[slot]))
+                .timezone(timezone[slot])
+                .name(dictionary.decode(name[slot]))
+                .id(cityId[slot])
+                .build();
+    }
+
+    /**
+     * Rebuilds the dictionary from strings of stored cities, dropping strings of replaced ones
+     */
+    private void compactDictionary() {
+        StringDictionary compacted = new StringDictionary();
+        for (int slot = 0; slot < usedSlots; slot++) {
+            if (slotKeys[slot] == FREE) {
+                continue;
+            }
+            if (weatherMain[slot] >= StringDictionary.NULL_CODE) {
+                weatherMain[slot] = compacted.encode(dictionary.decode(weatherMain[slot]));
+                weatherDescription[slot] = compacted.encode(dictionary.decode(weatherDescription[slot]));
+            }
+            name[slot] = compacted.encode(dictionary.decode(name[slot]));
+        }
+        log.info("compacted dictionary of columnar storage from " + dictionary.size() + " to " + compacted.size() + " strings");
+        dictionary = compacted;
+    }
+}
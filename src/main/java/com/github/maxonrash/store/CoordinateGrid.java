@@ -0,0 +1,70 @@
+package com.github.maxonrash.store;
+
+/**
+ * Snaps coordinates onto a grid of {@link #CELL_SIZE} degree cells and packs the cell into a primitive long key:
+ * latitude cell in the high 32 bits and longitude cell in the low 32 bits. Two locations within {@link #CELL_SIZE}
+ * degree from each other always get into the same or adjacent cells, so probing a cell and its neighbours
+ * finds every stored location matching within the tolerance
+ */
+public final class CoordinateGrid {
+    /**
+     * Size of a cell in degrees. Equals the tolerance used to decide that two locations are the same city
+     */
+    public static final double CELL_SIZE = 0.01;
+    private static final double CELLS_PER_DEGREE = 100.0;
+    /**
+     * Offsets of the cell itself and its eight neighbours, the cell itself goes first as the most likely match
+     */
+    private static final int[][] NEIGHBOURHOOD = {
+            {0, 0}, {0, -1}, {0, 1}, {-1, 0}, {1, 0}, {-1, -1}, {-1, 1}, {1, -1}, {1, 1}
+    };
+
+    private CoordinateGrid() {
+    }
+
+    /**
+     * Returns packed key of the cell containing specified location
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return packed cell key
+     */
+    public static long keyOf(double lat, double lon) {
+        return pack((int) Math.round(lat * CELLS_PER_DEGREE), (int) Math.round(lon * CELLS_PER_DEGREE));
+    }
+
+    /**
+     * Returns keys of the cell containing specified location and its eight neighbours,
+     * the cell of the location goes first
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return array of nine packed cell keys
+     */
+    public static long[] neighbourhoodOf(double lat, double lon) {
+        int latCell = (int) Math.round(lat * CELLS_PER_DEGREE);
+        int lonCell = (int) Math.round(lon * CELLS_PER_DEGREE);
+        long[] keys = new long[NEIGHBOURHOOD.length];
+        for (int i = 0; i < NEIGHBOURHOOD.length; i++) {
+            keys[i] = pack(latCell + NEIGHBOURHOOD[i][0], lonCell + NEIGHBOURHOOD[i][1]);
+        }
+        return keys;
+    }
+
+    /**
+     * Returns true if two locations are within {@link #CELL_SIZE} degree from each other by both coordinates
+     *
+     * @param lat1 latitude of the first location
+     * @param lon1 longitude of the first location
+     * @param lat2 latitude of the second location
+     * @param lon2 longitude of the second location
+     * @return true if the locations are considered the same city
+     */
+    public static boolean isSameLocation(double lat1, double lon1, double lat2, double lon2) {
+        return (Math.abs(lat1 - lat2) <= CELL_SIZE) && (Math.abs(lon1 - lon2) <= CELL_SIZE);
+    }
+
+    private static long pack(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+}
@@ -0,0 +1,337 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read-only local list of cities with their coordinates, country and state, used to geocode city names without
+ * calling geocoding API. Cities are kept in one buffer instead of an object per city: an open addressing hash table
+ * of entry offsets by {@link #normalize(String) normalized} name followed by the entries. The buffer is built on the
+ * heap from a CSV file or a collection of cities, or is memory-mapped from a binary file written by
+ * {@link #writeBinary(Path) writeBinary}, so a large gazetteer is paged in by the OS instead of being copied.
+ * <p>Binary layout: header <i>magic, version, number of cities, table size</i>, then the table of entry offsets
+ * (-1 for empty slots), then entries <i>lat, lon, normalized name, name, country, state</i> with each string written
+ * as short length (-1 for null) and UTF-8 bytes. Safe to use from many threads at once
+ */
+@Slf4j
+public final class Gazetteer {
+    private static final int MAGIC = 0x4F574D47; // "OWMG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4;
+    private static final int EMPTY = -1;
+    private static final short NULL_LENGTH = -1;
+    private static final GetGeocodingResponseDTO[] NOT_FOUND = new GetGeocodingResponseDTO[0];
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int mask;
+
+    private Gazetteer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        this.mask = buffer.getInt(12) - 1;
+    }
+
+    /**
+     * Loads the gazetteer from a binary file written by {@link #writeBinary(Path) writeBinary}, which is memory-mapped,
+     * or from a CSV file read by {@link #readCsv(Path) readCsv}
+     *
+     * @param file binary or CSV file
+     * @return loaded {@link Gazetteer}
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static Gazetteer load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+                return readCsv(file);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported gazetteer version " + header.getInt(4) + ": " + file);
+            }
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Gazetteer is larger than 2 GB: " + file);
+            }
+            Gazetteer gazetteer = new Gazetteer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            log.info("mapped gazetteer of " + gazetteer.size() + " cities from " + file);
+            return gazetteer;
+        }
+    }
+
+    /**
+     * Reads the gazetteer from a CSV file with columns <i>name, lat, lon, country, state</i>. Country and state may be
+     * empty, fields may be enclosed in double quotes. Empty lines, lines starting with '#' and a header line starting
+     * with "name," are skipped. When several cities have the same name, they are returned in the order of the file
+     *
+     * @param file CSV file in UTF-8
+     * @return loaded {@link Gazetteer}
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public static Gazetteer readCsv(Path file) throws IOException {
+        List<GetGeocodingResponseDTO> cities = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            for (int lineNumber = 1; (line = reader.readLine()) != null; lineNumber++) {
+                if (line.isBlank() || line.startsWith("#") || (cities.isEmpty() && line.regionMatches(true, 0, "name,", 0, 5))) {
+                    continue;
+                }
+                List<String> fields = splitCsvLine(line);
+                try {
+                    String name = field(fields, 0);
+                    if (name == null) {
+                        throw new IllegalArgumentException("City name is empty");
+                    }
+                    cities.add(new GetGeocodingResponseDTO(name, null, Double.parseDouble(fields.get(1)),
+                            Double.parseDouble(fields.get(2)), field(fields, 3), field(fields, 4)));
+                } catch (RuntimeException e) {
+                    throw new IOException("Malformed line " + lineNumber + " of gazetteer " + file + ": " + line, e);
+                }
+            }
+        }
+        Gazetteer gazetteer = of(cities);
+        log.info("read gazetteer of " + gazetteer.size() + " cities from " + file);
+        return gazetteer;
+    }
+
+    /**
+     * Builds the gazetteer of specified cities. Their names, coordinates, countries and states are copied
+     *
+     * @param cities cities with names, in the order they are returned for the same name
+     * @return built {@link Gazetteer}
+     * @throws IllegalArgumentException if a city has no name, a string is longer than 32767 bytes or the gazetteer
+     * doesn't fit into 2 GB
+     */
+    public static Gazetteer of(Collection<GetGeocodingResponseDTO> cities) {
+        List<byte[][]> strings = new ArrayList<>(cities.size());
+        int tableSize = Integer.highestOneBit(Math.max(2, cities.size()) * 2 - 1) << 1;
+        long length = HEADER_SIZE + 4L * tableSize;
+        for (GetGeocodingResponseDTO city : cities) {
+            if (city.getName() == null) {
+                throw new IllegalArgumentException("City without name at lat=" + city.getLat() + " & lon=" + city.getLon());
+            }
+            byte[][] encoded = {utf8(normalize(city.getName())), utf8(city.getName()), utf8(city.getCountry()), utf8(city.getState())};
+            length += 8 + 8;
+            for (byte[] string : encoded) {
+                length += 2 + (string == null ? 0 : string.length);
+            }
+            strings.add(encoded);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Gazetteer of " + cities.size() + " cities doesn't fit into 2 GB");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(cities.size()).putInt(tableSize);
+        for (int slot = 0; slot < tableSize; slot++) {
+            buffer.putInt(EMPTY);
+        }
+        int mask = tableSize - 1;
+        int i = 0;
+        for (GetGeocodingResponseDTO city : cities) {
+            byte[][] encoded = strings.get(i++);
+            int slot = hash(encoded[0]) & mask;
+            while (buffer.getInt(HEADER_SIZE + 4 * slot) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            buffer.putInt(HEADER_SIZE + 4 * slot, buffer.position());
+            buffer.putDouble(city.getLat()).putDouble(city.getLon());
+            for (byte[] string : encoded) {
+                if (string == null) {
+                    buffer.putShort(NULL_LENGTH);
+                } else {
+                    buffer.putShort((short) string.length).put(string);
+                }
+            }
+        }
+        return new Gazetteer(buffer);
+    }
+
+    /**
+     * Writes the gazetteer to specified binary file, replacing the previous one atomically. The file is loaded by
+     * {@link #load(Path) load} with memory mapping, without parsing
+     *
+     * @param file binary file, its directory must exist
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinary(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer content = buffer.duplicate().clear();
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.info("written gazetteer of " + size + " cities to " + file);
+    }
+
+    /**
+     * Returns cities with specified name, compared after {@link #normalize(String) normalization}
+     *
+     * @param cityName name of city
+     * @return new {@link GetGeocodingResponseDTO} of each found city in the order they were added, empty array if none
+     */
+    public GetGeocodingResponseDTO[] find(String cityName) {
+        byte[] key = utf8(normalize(cityName));
+        List<GetGeocodingResponseDTO> found = null;
+        for (int slot = hash(key) & mask, offset; (offset = buffer.getInt(HEADER_SIZE + 4 * slot)) != EMPTY; slot = (slot + 1) & mask) {
+            if (matches(offset + 16, key)) {
+                if (found == null) {
+                    found = new ArrayList<>(1);
+                }
+                found.add(read(offset));
+            }
+        }
+        return found == null ? NOT_FOUND : found.toArray(GetGeocodingResponseDTO[]::new);
+    }
+
+    /**
+     * Returns true if there is a city with specified name
+     *
+     * @param cityName name of city
+     * @return true if the city is found
+     */
+    public boolean contains(String cityName) {
+        return find(cityName).length > 0;
+    }
+
+    /**
+     * Returns number of cities
+     *
+     * @return number of cities
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns city name normalized the same way as {@link StoredGeocodingData#normalize(String)}, with underscores,
+     * which city names passed to geocoding API use instead of spaces, and hyphens replaced with spaces, so
+     * "Rostov_na_donu" finds "Rostov-na-Donu"
+     *
+     * @param cityName name of city
+     * @return normalized name of city
+     */
+    public static String normalize(String cityName) {
+        return StoredGeocodingData.normalize(cityName.replace('_', ' ').replace('-', ' '));
+    }
+
+    private boolean matches(int position, byte[] key) {
+        if (buffer.getShort(position) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(position + 2 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private GetGeocodingResponseDTO read(int offset) {
+        GetGeocodingResponseDTO city = new GetGeocodingResponseDTO();
+        city.setLat(buffer.getDouble(offset));
+        city.setLon(buffer.getDouble(offset + 8));
+        int position = skip(offset + 16);
+        city.setName(string(position));
+        position = skip(position);
+        city.setCountry(string(position));
+        city.setState(string(skip(position)));
+        return city;
+    }
+
+    private int skip(int position) {
+        return position + 2 + Math.max(0, buffer.getShort(position));
+    }
+
+    private String string(int position) {
+        short length = buffer.getShort(position);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String of gazetteer is longer than " + Short.MAX_VALUE + " bytes: " + value.substring(0, 50) + "...");
+        }
+        return bytes;
+    }
+
+    /**
+     * FNV-1a hash of the bytes with high bits mixed into low ones, which select the slot
+     */
+    private static int hash(byte[] bytes) {
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index >= fields.size() || fields.get(index).isBlank()) {
+            return null;
+        }
+        return fields.get(index).strip();
+    }
+
+    /**
+     * Splits a CSV line by commas outside double quotes, two double quotes inside quotes stand for one
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.maxonrash.store;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map of primitive long keys to non-negative int values with linear probing, so lookups of
+ * {@link CoordinateGrid} keys don't box them. Removal shifts following entries back instead of leaving tombstones.
+ * Not thread-safe, guarded by the owner
+ */
+class LongIntIndex {
+    private static final int EMPTY = -1;
+
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+
+    /**
+     * Constructs an empty index
+     *
+     * @param maxSize maximum number of entries, the table is kept at most half full
+     */
+    LongIntIndex(int maxSize) {
+        int tableSize = Integer.highestOneBit(Math.max(2, maxSize) * 2 - 1) << 1;
+        this.keys = new long[tableSize];
+        this.values = new int[tableSize];
+        this.mask = tableSize - 1;
+        Arrays.fill(values, EMPTY);
+    }
+
+    /**
+     * Returns value of the key
+     *
+     * @param key key to look for
+     * @return value or -1 if there is none
+     */
+    int get(long key) {
+        for (int i = indexOf(key); values[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Stores value of the key replacing the previous one
+     *
+     * @param key key
+     * @param value non-negative value
+     */
+    void put(long key, int value) {
+        int i = indexOf(key);
+        while (values[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * Removes the key
+     *
+     * @param key key to remove
+     */
+    void remove(long key) {
+        int i = indexOf(key);
+        while (values[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == EMPTY) {
+            return;
+        }
+        // shift back entries of the probe chain that would become unreachable
+        int hole = i;
+        for (int j = (hole + 1) & mask; values[j] != EMPTY; j = (j + 1) & mask) {
+            int home = indexOf(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        values[hole] = EMPTY;
+    }
+
+    /**
+     * Removes all entries
+     */
+    void clear() {
+        Arrays.fill(values, EMPTY);
+    }
+
+    private int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
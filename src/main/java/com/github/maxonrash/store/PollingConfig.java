@@ -0,0 +1,48 @@
+package com.github.maxonrash.store;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Parameters of {@link StoredCitiesRefresher} used in {@link com.github.maxonrash.Type#POLLING POLLING} mode.
+ * Every parameter has a default value, so only the ones that differ need to be set
+ */
+@Getter
+@Builder
+@ToString
+public class PollingConfig {
+    /**
+     * How often the storage is checked for cities to refresh
+     */
+    @Builder.Default
+    private Duration checkInterval = Duration.ofSeconds(1);
+    /**
+     * How long before getting outdated a city is refreshed
+     */
+    @Builder.Default
+    private Duration refreshAhead = Duration.ofMinutes(1);
+    /**
+     * Maximum number of requests refreshing cities per check, so refreshes of many cities are spread over time instead of a burst.
+     * A group request refreshes up to {@link com.github.maxonrash.service.GetCurrentWeatherService#MAX_GROUP_SIZE} cities
+     */
+    @Builder.Default
+    private int maxRefreshesPerCheck = 5;
+    /**
+     * Minimal time between two refresh attempts of the same city, so a failing city or a city which weather
+     * API keeps returning old data for doesn't take the whole calls limit
+     */
+    @Builder.Default
+    private Duration retryInterval = Duration.ofMinutes(1);
+
+    /**
+     * Returns config with default values of all parameters
+     *
+     * @return default {@link PollingConfig}
+     */
+    public static PollingConfig defaults() {
+        return PollingConfig.builder().build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.maxonrash.store;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Result of {@link StoredCitiesData#updateAllCitiesInMemoryInParallel(String, com.github.maxonrash.service.GetCurrentWeatherService, int)
+ * parallel refresh} of stored cities. A failure of one city doesn't stop refreshing of the others, so every failure
+ * is collected here together with the coordinates of the city
+ */
+@Value
+public class RefreshResult {
+    /**
+     * Number of outdated cities that were refreshed successfully
+     */
+    int refreshedCount;
+    /**
+     * Exceptions of cities that failed to refresh keyed by "lat=...&amp;lon=..." string of the city
+     */
+    Map<String, Exception> failures;
+
+    /**
+     * Returns true if every outdated city was refreshed
+     *
+     * @return true if there are no failures
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
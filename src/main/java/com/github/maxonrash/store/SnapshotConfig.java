@@ -0,0 +1,48 @@
+package com.github.maxonrash.store;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Parameters of {@link CacheSnapshotter}. Every parameter has a default value, so only the ones that differ need to be set
+ */
+@Getter
+@Builder
+@ToString
+public class SnapshotConfig {
+    /**
+     * File the snapshot is written to and restored from
+     */
+    @Builder.Default
+    private Path file = Path.of("openweathermap-cache.snapshot");
+    /**
+     * How often the snapshot is written
+     */
+    @Builder.Default
+    private Duration writeInterval = Duration.ofMinutes(1);
+    /**
+     * Weather older than this is not restored. Restored weather is returned as up-to-date only while it is within
+     * {@link StoredCitiesData#getTimeToLiveSeconds() time to live}, older one can still be returned in
+     * {@link com.github.maxonrash.Type#STALE_WHILE_REVALIDATE STALE_WHILE_REVALIDATE} mode and refreshed by ID
+     */
+    @Builder.Default
+    private Duration maxWeatherAge = Duration.ofHours(1);
+    /**
+     * Whether the snapshot is written when the JVM shuts down
+     */
+    @Builder.Default
+    private boolean writeOnShutdown = true;
+
+    /**
+     * Returns config with default values of all parameters
+     *
+     * @return default {@link SnapshotConfig}
+     */
+    public static SnapshotConfig defaults() {
+        return SnapshotConfig.builder().build();
+    }
+}
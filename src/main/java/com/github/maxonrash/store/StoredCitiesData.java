@@ -1,52 +1,135 @@
 package com.github.maxonrash.store;
 
-import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.github.maxonrash.entity.CurrentWeatherEntity;
 import com.github.maxonrash.exception.CallPerMinuteExceededException;
 import com.github.maxonrash.exception.InternalErrorException;
 import com.github.maxonrash.exception.InvalidApiKeyException;
-import com.github.maxonrash.service.GetCurrentWeatherServiceImpl;
+import com.github.maxonrash.metrics.Metrics;
+import com.github.maxonrash.service.GetCurrentWeatherService;
+import com.github.maxonrash.store.cache.CacheEngine;
+import com.github.maxonrash.store.cache.CacheStats;
+import com.github.maxonrash.store.cache.EvictionPolicy;
+import com.github.maxonrash.store.cache.EvictionPolicyType;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Stores information about cities' weather that have been requested earlier. All requested
- * weather from API stores in internal array <i>data[]</i> and is retrieved from there if
- * it is up-to-date (<10 min delay). Can store only 10 cities at a time, and if new data is
- * added while the storage is full, it replaces the one that was added earlier than the others
+ * weather from API stores in shared {@link WeatherStorage} <i>data</i> backed by {@link CacheEngine} and is retrieved
+ * from there if it is up-to-date (<10 min delay). Stores {@link #DEFAULT_CAPACITY} cities by default, the capacity and
+ * {@link EvictionPolicy} choosing which city to drop when the storage is full can be changed with
+ * {@link #configure(int, EvictionPolicyType) configure}. Each {@link com.github.maxonrash.CurrentWeatherSDK CurrentWeatherSDK}
+ * keeps cities in a {@link WeatherStorage} of its own instead, so this one is used by code working without an SDK instance,
+ * such as {@link StoredCitiesRefresher} created by the user and {@link CacheSnapshot}. Safe to use from many threads at once
  */
 @Slf4j
 public class StoredCitiesData {
     /**
-     * Internal storage of requested cities' weather containing 10 cities at a time
+     * Number of cities stored if the storage hasn't been {@link #configure(int, EvictionPolicyType) configured}
+     */
+    public static final int DEFAULT_CAPACITY = 10;
+    /**
+     * Name of the shared storage in {@link Metrics}. Besides hits, misses and evictions it reports gauges
+     * <i>cache.weather.size</i> and <i>cache.weather.oldestEntryAgeSeconds</i>. Storage of each
+     * {@link com.github.maxonrash.CurrentWeatherSDK CurrentWeatherSDK} reports the same metrics under
+     * {@link com.github.maxonrash.CurrentWeatherSDK#getMetricsName() a name of its own} starting with this one
+     */
+    public static final String METRICS_NAME = "weather";
+    /**
+     * Shared storage of requested cities' weather
      */
-    private static CurrentWeatherEntity[] data = new CurrentWeatherEntity[10];
+    private static volatile WeatherStorage data = new WeatherStorage(DEFAULT_CAPACITY, EvictionPolicyType.LRU);
+    /**
+     * Writer serializing stored entities, shared as it is immutable and thread-safe
+     */
+    private static final ObjectWriter ENTITY_WRITER = new ObjectMapper().writer();
     /**
      * Ten minutes in seconds to use when checking if the weather is up-to-date
      */
     private static final long TEN_MINUTES_IN_SECONDS = 600L;
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} if the JVM supports virtual threads, null otherwise
+     */
+    private static final MethodHandle VIRTUAL_THREAD_EXECUTOR_FACTORY = findVirtualThreadExecutorFactory();
+
+    static {
+        Metrics.registerGauge("cache." + METRICS_NAME + ".size", () -> data.size());
+        Metrics.registerGauge("cache." + METRICS_NAME + ".oldestEntryAgeSeconds", StoredCitiesData::getOldestEntryAgeSeconds);
+    }
+
+    /**
+     * Replaces the shared storage with an empty one of specified capacity using one of built-in eviction policies.
+     * Already stored cities are dropped
+     *
+     * @param capacity maximum number of stored cities, must be positive
+     * @param policyType {@link EvictionPolicyType} choosing which city to drop when the storage is full
+     */
+    public static void configure(int capacity, EvictionPolicyType policyType) {
+        data = new WeatherStorage(capacity, policyType);
+        log.info("storage is configured with capacity " + capacity + " and " + policyType.name() + " eviction policy");
+    }
+
+    /**
+     * Replaces the shared storage with an empty one of specified capacity using custom eviction policy.
+     * Already stored cities are dropped
+     *
+     * @param capacity maximum number of stored cities, must be positive
+     * @param policy {@link EvictionPolicy} choosing which city to drop when the storage is full
+     */
+    public static void configure(int capacity, EvictionPolicy<Long> policy) {
+        data = new WeatherStorage(capacity, policy);
+        log.info("storage is configured with capacity " + capacity + " and custom eviction policy");
+    }
+
+    /**
+     * Returns the shared storage all static methods of this class work with
+     *
+     * @return shared {@link WeatherStorage}
+     */
+    public static WeatherStorage getSharedStorage() {
+        return data;
+    }
+
+    /**
+     * Returns hit, miss and eviction counters of the storage
+     *
+     * @return {@link CacheStats}
+     */
+    public static CacheStats getStats() {
+        return data.getStats();
+    }
+
+    /**
+     * Removes all cities from the storage
+     */
+    public static void clear() {
+        data.clear();
+    }
 
     /**
      * Adds weather data to internal storage if it is not present, updates if it is already present
-     * or replaces the oldest added one if the storage is already full
+     * or evicts a city chosen by the eviction policy if the storage is already full. The entity is serialized into JSON
+     * once here, so it must not be modified after it is added
      *
      * @param currentWeatherEntity data to be added
      */
     public static void addCurrentWeatherData(CurrentWeatherEntity currentWeatherEntity) {
-        int index = indexOfSpecifiedCityInData(currentWeatherEntity.getLat(), currentWeatherEntity.getLon());
-        if (index != -1) { // if is already in data[]
-            data[index] = currentWeatherEntity;
-        } else { // if not in data[] and it is not full
-            for (int i = 0; i < data.length; i++) {
-                if (data[i] == null) {
-                    data[i] = currentWeatherEntity;
-                    return;
-                }
-            }
-            for (int i = 1; i < data.length; i++) { // if data[] is already full
-                data[i-1] = data[i];
-            }
-            data[data.length - 1] = currentWeatherEntity;
-        }
+        data.addCurrentWeatherData(currentWeatherEntity);
     }
 
     /**
@@ -59,35 +142,167 @@ public class StoredCitiesData {
      * @return {@link CurrentWeatherEntity}
      */
     public static CurrentWeatherEntity getCurrentWeatherData(double lat, double lon) {
-        int indexOfTheCity = indexOfSpecifiedCityInData(lat, lon);
-        if (indexOfTheCity != -1) {
-            return data[indexOfTheCity];
-        }
-        else return new CurrentWeatherEntity();
+        return data.getCurrentWeatherData(lat, lon);
+    }
+
+    /**
+     * Returns stored {@link CurrentWeatherEntity} of the city at specified location regardless of its age.
+     * Doesn't count as a hit or a miss of the storage
+     *
+     * @param lat latitude (can be got with {@link com.github.maxonrash.service.GetGeocodingService GetGeocodingService}
+     * @param lon longitude (can be got with {@link com.github.maxonrash.service.GetGeocodingService GetGeocodingService}
+     * @return {@link CurrentWeatherEntity} or null if there is no such city in the storage
+     */
+    public static CurrentWeatherEntity findCurrentWeatherData(double lat, double lon) {
+        return data.findCurrentWeatherData(lat, lon);
+    }
+
+    /**
+     * Returns stored weather of the city at specified location together with its JSON serialized on insertion.
+     * Doesn't count as a hit or a miss of the storage, as it is intended to be used after the city has been looked up
+     *
+     * @param lat latitude (can be got with {@link com.github.maxonrash.service.GetGeocodingService GetGeocodingService}
+     * @param lon longitude (can be got with {@link com.github.maxonrash.service.GetGeocodingService GetGeocodingService}
+     * @return {@link StoredWeather} or null if there is no such city in the storage
+     */
+    public static StoredWeather findStoredWeather(double lat, double lon) {
+        return data.findStoredWeather(lat, lon);
+    }
+
+    /**
+     * Returns all stored cities at the moment of the call
+     *
+     * @return unmodifiable collection of stored {@link CurrentWeatherEntity}
+     */
+    public static Collection<CurrentWeatherEntity> getAllCurrentWeatherData() {
+        return data.getAllCurrentWeatherData();
+    }
+
+    /**
+     * Returns age of the oldest stored weather, it shows how late refreshing of stored cities is
+     *
+     * @return age in seconds, 0 if the storage is empty
+     */
+    public static long getOldestEntryAgeSeconds() {
+        return data.getOldestEntryAgeSeconds();
+    }
+
+    /**
+     * Returns age in seconds after which stored weather is considered outdated
+     *
+     * @return time to live of stored weather in seconds
+     */
+    public static long getTimeToLiveSeconds() {
+        return TEN_MINUTES_IN_SECONDS;
+    }
+
+    /**
+     * Returns true if the difference between current time and time of the weather is not more than
+     * {@link #getTimeToLiveSeconds() time to live}
+     *
+     * @param currentWeatherEntity stored weather
+     * @return true if the weather is up-to-date
+     */
+    public static boolean isUpToDate(CurrentWeatherEntity currentWeatherEntity) {
+        return System.currentTimeMillis() / 1000 - currentWeatherEntity.getDateTime() <= TEN_MINUTES_IN_SECONDS;
     }
 
     /**
-     * Updates information for each city in storage. Used when {@link com.github.maxonrash.Type Type} is set to "POLLING" mode
+     * Updates outdated information for each city in storage with specified service. If the service
+     * {@link GetCurrentWeatherService#isGroupRequestSupported() supports group requests}, cities with known
+     * {@link CurrentWeatherEntity#getId() ID} are updated with one request per {@link GetCurrentWeatherService#MAX_GROUP_SIZE} cities
      *
      * @param apiKey API Key for accessing a weather API
+     * @param getCurrentWeatherService service for retrieving current weather data
      * @throws InvalidApiKeyException if API key is incorrect
      * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
      * @throws InternalErrorException if an error on weather API side has occurred
      */
-    public static void updateAllCitiesInMemory(String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
-        GetCurrentWeatherServiceImpl service = new GetCurrentWeatherServiceImpl();
-        for (int i = 0; i < data.length; i ++) {
-            if (data[i] != null) {
-                log.info("checking if data for city with lat=" + data[i].getLat() + "&lon=" + data[i].getLon() + " is up-to-date");
-                if ( (System.currentTimeMillis() / 1000 - data[i].getDateTime()) > TEN_MINUTES_IN_SECONDS ) {
-                    log.info("data is outdated: delay is " + (System.currentTimeMillis() / 1000 - data[i].getDateTime()) + " sec");
-                    var newInfo = service.getCurrentWeatherByLatAndLonString( "lat=" + data[i].getLat() + "&lon=" + data[i].getLon(), apiKey);
-                    data[i] = CurrentWeatherResponseDTO.convertDTOtoEntity(newInfo);
-                } else {
-                    log.info("data in storage is up-to-date, no need to update");
-                }
+    public static void updateAllCitiesInMemory(String apiKey, GetCurrentWeatherService getCurrentWeatherService) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        data.updateAllCitiesInMemory(apiKey, getCurrentWeatherService);
+    }
+
+    /**
+     * Updates outdated information for each city in storage with specified service, sending up to
+     * <i>maxConcurrency</i> requests at once. See {@link WeatherStorage#updateAllCitiesInMemoryInParallel(String, GetCurrentWeatherService, int)}
+     *
+     * @param apiKey API Key for accessing a weather API
+     * @param getCurrentWeatherService service for retrieving current weather data
+     * @param maxConcurrency maximum number of requests to weather API in flight, must be positive
+     * @return {@link RefreshResult} with number of refreshed cities and failures of the others
+     */
+    public static RefreshResult updateAllCitiesInMemoryInParallel(String apiKey, GetCurrentWeatherService getCurrentWeatherService, int maxConcurrency) {
+        return data.updateAllCitiesInMemoryInParallel(apiKey, getCurrentWeatherService, maxConcurrency);
+    }
+
+    /**
+     * Splits cities to refresh into requests. Cities with known {@link CurrentWeatherEntity#getId() ID} are put into groups
+     * of up to {@link GetCurrentWeatherService#MAX_GROUP_SIZE} cities if group requests are supported,
+     * every other city is a group of its own
+     *
+     * @param entities cities to refresh
+     * @param groupRequestSupported true if the service supports group requests
+     * @return groups of cities, each refreshed with one request
+     */
+    static List<List<CurrentWeatherEntity>> groupForRefresh(List<CurrentWeatherEntity> entities, boolean groupRequestSupported) {
+        List<List<CurrentWeatherEntity>> groups = new ArrayList<>();
+        List<CurrentWeatherEntity> group = new ArrayList<>();
+        for (CurrentWeatherEntity entity : entities) {
+            if (!groupRequestSupported || entity.getId() <= 0) {
+                groups.add(List.of(entity));
+                continue;
+            }
+            group.add(entity);
+            if (group.size() == GetCurrentWeatherService.MAX_GROUP_SIZE) {
+                groups.add(group);
+                group = new ArrayList<>();
+            }
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    static String latAndLonOf(CurrentWeatherEntity entity) {
+        return "lat=" + entity.getLat() + "&lon=" + entity.getLon();
+    }
+
+    /**
+     * Returns executor for parallel refresh: a virtual thread per task if the JVM supports it (Java 21+),
+     * a fixed pool of daemon platform threads otherwise
+     *
+     * @param poolSize size of the pool of platform threads
+     * @return {@link ExecutorService}
+     */
+    static ExecutorService newRefreshExecutor(int poolSize) {
+        if (VIRTUAL_THREAD_EXECUTOR_FACTORY != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_EXECUTOR_FACTORY.invoke();
+            } catch (Throwable e) {
+                log.info("virtual threads are not available: " + e.getMessage());
             }
         }
+        return Executors.newFixedThreadPool(poolSize, task -> {
+            Thread thread = new Thread(task, "openweathermap-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Updates outdated information for each city in storage with {@link GetCurrentWeatherService#DEFAULT_SERVICE default service}
+     *
+     * @param apiKey API Key for accessing a weather API
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     * @deprecated {@link com.github.maxonrash.Type#POLLING POLLING} mode refreshes the storage in background with
+     * {@link StoredCitiesRefresher}. Use {@link #updateAllCitiesInMemory(String, GetCurrentWeatherService)} to refresh it explicitly
+     */
+    @Deprecated
+    public static void updateAllCitiesInMemory(String apiKey) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        updateAllCitiesInMemory(apiKey, GetCurrentWeatherService.DEFAULT_SERVICE);
     }
 
     /**
@@ -97,38 +312,114 @@ public class StoredCitiesData {
      * @param lat latitude (can be got with {@link com.github.maxonrash.service.GetGeocodingService GetGeocodingService}
      * @param lon longitude (can be got with {@link com.github.maxonrash.service.GetGeocodingService GetGeocodingService}
      * @return true if the difference between current time and time of the city at specified location is less than 10 minutes.
-     * False if there is no such city in the storage or the difference is more than 10 minutes
+     * False if there is no such city in the storage or the difference is more than 10 minutes, which is counted as a miss of the storage
      */
     public static boolean isStoredCityWeatherIsUpToDate(double lat, double lon) {
-        long timeOfStoredCity;
-        int storedCityIndex = indexOfSpecifiedCityInData(lat, lon);
-        if (storedCityIndex != -1) {
-            log.info("Found city with name \"" + data[storedCityIndex].getName() + "\" in storage with index " + storedCityIndex);
-            timeOfStoredCity = data[storedCityIndex].getDateTime();
-            log.info("Time of " + data[storedCityIndex].getName() + " at index " + storedCityIndex + " is " + timeOfStoredCity);
-            long currentTimeMillis = System.currentTimeMillis() / 1000; // to get seconds to match API response
-            log.info("Current time in seconds is " + currentTimeMillis);
-            log.info("The difference in time is " + (currentTimeMillis - timeOfStoredCity) + " sec");
-            return currentTimeMillis - timeOfStoredCity <= TEN_MINUTES_IN_SECONDS; // True if the difference is less than ten minutes
+        return data.isStoredCityWeatherIsUpToDate(lat, lon);
+    }
+
+    private static MethodHandle findVirtualThreadExecutorFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
         }
-        log.info("City with coordinates lat=" + lat + " & lon=" + lon + " is not found in storage");
-        return false;
     }
 
     /**
-     * Returns the index of city with specified location. Returns -1 if there is no such city in data
-     * @param lat latitude (can be got with {@link com.github.maxonrash.service.GetGeocodingService GetGeocodingService}
-     * @param lon longitude (can be got with {@link com.github.maxonrash.service.GetGeocodingService GetGeocodingService}
-     * @return int index of city with specified location. Returns -1 if there is no such city in data
+     * Weather of a city kept in the storage together with its UTF-8 JSON, so serving the city doesn't serialize it again.
+     * Weather read from {@link ColumnarWeatherStore} is serialized on first use instead, as the store doesn't keep JSON
      */
-    public static int indexOfSpecifiedCityInData(double lat, double lon) {
-        for (int i = 0; i < data.length; i++) {
-            if (data[i] != null) {
-                if ( (Math.abs(data[i].getLat() - lat) <= 0.01) && (Math.abs(data[i].getLon() - lon) <= 0.01) ){
-                    return i;
+    public static final class StoredWeather {
+        private final CurrentWeatherEntity currentWeatherEntity;
+        private volatile byte[] json;
+
+        StoredWeather(CurrentWeatherEntity currentWeatherEntity, byte[] json) {
+            this.currentWeatherEntity = currentWeatherEntity;
+            this.json = json;
+        }
+
+        /**
+         * Wraps specified entity without serializing it until its JSON is requested
+         *
+         * @param currentWeatherEntity entity to wrap
+         * @return {@link StoredWeather} with the entity
+         */
+        static StoredWeather lazy(CurrentWeatherEntity currentWeatherEntity) {
+            return new StoredWeather(currentWeatherEntity, null);
+        }
+
+        /**
+         * Serializes specified entity into JSON
+         *
+         * @param currentWeatherEntity entity to serialize
+         * @return {@link StoredWeather} with the entity and its JSON
+         */
+        public static StoredWeather of(CurrentWeatherEntity currentWeatherEntity) {
+            try {
+                return new StoredWeather(currentWeatherEntity, ENTITY_WRITER.writeValueAsBytes(currentWeatherEntity));
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * Returns stored weather
+         *
+         * @return {@link CurrentWeatherEntity}
+         */
+        public CurrentWeatherEntity getCurrentWeatherEntity() {
+            return currentWeatherEntity;
+        }
+
+        /**
+         * Returns length of JSON of the weather in bytes
+         *
+         * @return number of bytes of UTF-8 JSON
+         */
+        public int getJsonLength() {
+            return json().length;
+        }
+
+        /**
+         * Returns JSON of the weather as a string
+         *
+         * @return JSON string of {@link CurrentWeatherEntity}
+         */
+        public String getJsonString() {
+            return new String(json(), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Returns read-only view of UTF-8 JSON of the weather. The bytes are not copied
+         *
+         * @return read-only {@link ByteBuffer} positioned at the beginning of JSON
+         */
+        public ByteBuffer getJsonBuffer() {
+            return ByteBuffer.wrap(json()).asReadOnlyBuffer();
+        }
+
+        /**
+         * Writes UTF-8 JSON of the weather to specified stream without copying it
+         *
+         * @param out stream to write to
+         * @throws IOException if an I/O error occurs
+         */
+        public void writeJsonTo(OutputStream out) throws IOException {
+            out.write(json());
+        }
+
+        byte[] json() {
+            byte[] serialized = json;
+            if (serialized == null) {
+                try {
+                    serialized = ENTITY_WRITER.writeValueAsBytes(currentWeatherEntity);
+                } catch (JsonProcessingException e) {
+                    throw new RuntimeException(e);
                 }
+                json = serialized;
             }
+            return serialized;
         }
-        return -1; // If the city is not found in data stored array
     }
 }
@@ -0,0 +1,177 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.exception.CallPerMinuteExceededException;
+import com.github.maxonrash.exception.InternalErrorException;
+import com.github.maxonrash.exception.InvalidApiKeyException;
+import com.github.maxonrash.service.GetCurrentWeatherService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Background refresher of {@link WeatherStorage}, the {@link StoredCitiesData shared one} by default, used in {@link com.github.maxonrash.Type#POLLING POLLING} mode.
+ * Periodically looks for cities that are going to get outdated soon and refreshes a few of them per check with
+ * the specified {@link GetCurrentWeatherService}, so requests never wait for refreshing of other cities
+ */
+@Slf4j
+public class StoredCitiesRefresher {
+    private final String apiKey;
+    private final GetCurrentWeatherService getCurrentWeatherService;
+    private final PollingConfig config;
+    /**
+     * Asked before every call to weather API, false means the call is not allowed by client-side rate limiting
+     */
+    private final BooleanSupplier callPermit;
+    /**
+     * Storage of refreshed cities, asked on each check as the shared one may be replaced
+     */
+    private final Supplier<WeatherStorage> weatherStorage;
+    /**
+     * Time of the last refresh attempt of each city in millis keyed by {@link CoordinateGrid} cell
+     */
+    private final ConcurrentHashMap<Long, Long> lastAttempts = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs the refresher. It doesn't run until {@link #start() started}
+     *
+     * @param apiKey API Key for accessing a weather API
+     * @param getCurrentWeatherService service for retrieving current weather data
+     * @param config {@link PollingConfig} with parameters of refreshing
+     */
+    public StoredCitiesRefresher(String apiKey, GetCurrentWeatherService getCurrentWeatherService, PollingConfig config) {
+        this(apiKey, getCurrentWeatherService, config, () -> true);
+    }
+
+    /**
+     * Constructs the refresher that asks for a permit before every call to weather API. It doesn't run until {@link #start() started}
+     *
+     * @param apiKey API Key for accessing a weather API
+     * @param getCurrentWeatherService service for retrieving current weather data
+     * @param config {@link PollingConfig} with parameters of refreshing
+     * @param callPermit returns true if a call to weather API is allowed right now
+     */
+    public StoredCitiesRefresher(String apiKey, GetCurrentWeatherService getCurrentWeatherService, PollingConfig config, BooleanSupplier callPermit) {
+        this(apiKey, getCurrentWeatherService, config, callPermit, StoredCitiesData::getSharedStorage);
+    }
+
+    /**
+     * Constructs the refresher of specified storage that asks for a permit before every call to weather API.
+     * It doesn't run until {@link #start() started}
+     *
+     * @param apiKey API Key for accessing a weather API
+     * @param getCurrentWeatherService service for retrieving current weather data
+     * @param config {@link PollingConfig} with parameters of refreshing
+     * @param callPermit returns true if a call to weather API is allowed right now
+     * @param weatherStorage returns {@link WeatherStorage} to refresh
+     */
+    public StoredCitiesRefresher(String apiKey, GetCurrentWeatherService getCurrentWeatherService, PollingConfig config, BooleanSupplier callPermit,
+                                 Supplier<WeatherStorage> weatherStorage) {
+        this.apiKey = apiKey;
+        this.getCurrentWeatherService = getCurrentWeatherService;
+        this.config = config;
+        this.callPermit = callPermit;
+        this.weatherStorage = weatherStorage;
+    }
+
+    /**
+     * Starts periodic refreshing in a background daemon thread. Does nothing if it is already running
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "openweathermap-polling-" + apiKey.substring(0, Math.min(apiKey.length(), 6)));
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::refreshDueCitiesSafely, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("started refreshing of stored cities for apiKey \"" + apiKey.substring(0, Math.min(apiKey.length(), 15)) + "...\"");
+    }
+
+    /**
+     * Stops periodic refreshing. A refresh in progress is interrupted. Does nothing if it is not running
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        lastAttempts.clear();
+        log.info("stopped refreshing of stored cities for apiKey \"" + apiKey.substring(0, Math.min(apiKey.length(), 15)) + "...\"");
+    }
+
+    /**
+     * Returns true if periodic refreshing is running
+     *
+     * @return true if the refresher is {@link #start() started}
+     */
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * Sends up to {@link PollingConfig#getMaxRefreshesPerCheck() maxRefreshesPerCheck} requests refreshing cities that are
+     * outdated or are going to get outdated within {@link PollingConfig#getRefreshAhead() refreshAhead}, the oldest ones first.
+     * If the service {@link GetCurrentWeatherService#isGroupRequestSupported() supports group requests}, each request
+     * refreshes up to {@link GetCurrentWeatherService#MAX_GROUP_SIZE} cities with known ID, otherwise one city.
+     * Stops early if the limit of calls per minute is exceeded or the call is not permitted by client-side rate limiting
+     */
+    public void refreshDueCities() {
+        long nowMillis = System.currentTimeMillis();
+        long now = nowMillis / 1000;
+        long retryMillis = config.getRetryInterval().toMillis();
+        long refreshAge = StoredCitiesData.getTimeToLiveSeconds() - config.getRefreshAhead().toSeconds();
+        lastAttempts.values().removeIf(attempt -> nowMillis - attempt >= retryMillis);
+
+        WeatherStorage storage = weatherStorage.get();
+        boolean groupRequestSupported = getCurrentWeatherService.isGroupRequestSupported();
+        List<CurrentWeatherEntity> due = storage.getAllCurrentWeatherData().stream()
+                .filter(entity -> now - entity.getDateTime() >= refreshAge)
+                .filter(entity -> !lastAttempts.containsKey(CoordinateGrid.keyOf(entity.getLat(), entity.getLon())))
+                .sorted(Comparator.comparingLong(CurrentWeatherEntity::getDateTime))
+                .limit((long) config.getMaxRefreshesPerCheck() * (groupRequestSupported ? GetCurrentWeatherService.MAX_GROUP_SIZE : 1))
+                .toList();
+        List<List<CurrentWeatherEntity>> groups = StoredCitiesData.groupForRefresh(due, groupRequestSupported);
+        for (List<CurrentWeatherEntity> group : groups.subList(0, Math.min(groups.size(), config.getMaxRefreshesPerCheck()))) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (!callPermit.getAsBoolean()) {
+                log.info("client-side calls limit is reached, refreshing is postponed till the next check");
+                return;
+            }
+            for (CurrentWeatherEntity entity : group) {
+                lastAttempts.put(CoordinateGrid.keyOf(entity.getLat(), entity.getLon()), nowMillis);
+                log.info("refreshing data for city \"" + entity.getName() + "\": delay is " + (now - entity.getDateTime()) + " sec");
+            }
+            try {
+                storage.refreshGroup(group, apiKey, getCurrentWeatherService);
+            } catch (CallPerMinuteExceededException e) {
+                log.info("calls limit is exceeded, refreshing is postponed till the next check");
+                return;
+            } catch (InvalidApiKeyException | InternalErrorException | RuntimeException e) {
+                log.info("failed to refresh data for " + group.size() + " cities starting with \"" + group.get(0).getName() + "\": " + e.getMessage());
+            }
+        }
+    }
+
+    private void refreshDueCitiesSafely() {
+        try {
+            refreshDueCities();
+        } catch (RuntimeException e) { // an exception would cancel further checks
+            log.info("check of stored cities failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.metrics.Metrics;
+import com.github.maxonrash.store.cache.CacheEngine;
+import com.github.maxonrash.store.cache.CacheStats;
+import com.github.maxonrash.store.cache.EvictionPolicyType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Stores geocoding results of cities that have been requested earlier, so a city name is sent to geocoding API
+ * only once per {@link #DEFAULT_TIME_TO_LIVE time to live}. Names that were not found by API are remembered too,
+ * but for a much shorter {@link #DEFAULT_NOT_FOUND_TIME_TO_LIVE time}, so repeated requests of a wrong name don't
+ * spend the calls limit. City names are compared ignoring case and surrounding whitespace. Found cities are also added
+ * to {@link #getCityNameIndex() city name index} for type-ahead search. Safe to use from many threads at once
+ */
+@Slf4j
+public class StoredGeocodingData {
+    /**
+     * Number of city names stored if the storage hasn't been {@link #configure(int, Duration, Duration) configured}
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+    /**
+     * Time a found city is stored for if the storage hasn't been {@link #configure(int, Duration, Duration) configured}
+     */
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofDays(1);
+    /**
+     * Time a not found city name is stored for if the storage hasn't been {@link #configure(int, Duration, Duration) configured}
+     */
+    public static final Duration DEFAULT_NOT_FOUND_TIME_TO_LIVE = Duration.ofMinutes(5);
+    /**
+     * Name of the storage in {@link Metrics}. Besides hits, misses and evictions it reports gauge <i>cache.geocoding.size</i>
+     */
+    public static final String METRICS_NAME = "geocoding";
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+    private static volatile CacheEngine<String, StoredGeocode> data = new CacheEngine<>(DEFAULT_CAPACITY, EvictionPolicyType.LRU, METRICS_NAME);
+    private static volatile long timeToLiveMillis = DEFAULT_TIME_TO_LIVE.toMillis();
+    private static volatile long notFoundTimeToLiveMillis = DEFAULT_NOT_FOUND_TIME_TO_LIVE.toMillis();
+    private static final CityNameIndex CITY_NAME_INDEX = new CityNameIndex();
+
+    static {
+        Metrics.registerGauge("cache." + METRICS_NAME + ".size", () -> data.size());
+    }
+
+    /**
+     * Replaces the storage with an empty one with specified parameters. Already stored city names are dropped
+     *
+     * @param capacity maximum number of stored city names, must be positive
+     * @param timeToLive time a found city is stored for
+     * @param notFoundTimeToLive time a city name not found by API is stored for
+     */
+    public static void configure(int capacity, Duration timeToLive, Duration notFoundTimeToLive) {
+        timeToLiveMillis = timeToLive.toMillis();
+        notFoundTimeToLiveMillis = notFoundTimeToLive.toMillis();
+        data = new CacheEngine<>(capacity, EvictionPolicyType.LRU, METRICS_NAME);
+        log.info("geocoding storage is configured with capacity " + capacity + ", time to live " + timeToLive + " and not found time to live " + notFoundTimeToLive);
+    }
+
+    /**
+     * Returns stored result for specified city name
+     *
+     * @param cityName name of city in any case, may be surrounded by whitespaces
+     * @return {@link StoredGeocode} or null if the name is not stored or its time to live is over
+     */
+    public static StoredGeocode getGeocodingData(String cityName) {
+        long now = System.currentTimeMillis();
+        return data.get(normalize(cityName), stored -> stored.expiresAtMillis > now);
+    }
+
+    /**
+     * Stores found city for specified city name
+     *
+     * @param cityName name of city that was requested
+     * @param geocodingResponseDTO city found by API
+     */
+    public static void addGeocodingData(String cityName, GetGeocodingResponseDTO geocodingResponseDTO) {
+        data.put(normalize(cityName), new StoredGeocode(geocodingResponseDTO, System.currentTimeMillis() + timeToLiveMillis));
+        CITY_NAME_INDEX.add(geocodingResponseDTO);
+    }
+
+    /**
+     * Stores that specified city name is not found by API
+     *
+     * @param cityName name of city that was requested
+     */
+    public static void addNotFoundCityName(String cityName) {
+        data.put(normalize(cityName), new StoredGeocode(null, System.currentTimeMillis() + notFoundTimeToLiveMillis));
+    }
+
+    /**
+     * Returns all stored results keyed by {@link #normalize(String) normalized} city name. Used by {@link CacheSnapshot}
+     *
+     * @return unmodifiable live view of stored results
+     */
+    static Map<String, StoredGeocode> getAllGeocodingData() {
+        return data.asMap();
+    }
+
+    /**
+     * Stores result restored from {@link CacheSnapshot} until its original expiration time unless the city name
+     * is already stored or the time is over
+     *
+     * @param normalizedCityName {@link #normalize(String) normalized} city name
+     * @param geocodingResponseDTO found city, or null if the name is not found by API
+     * @param expiresAtMillis time the result expires at in millis
+     * @return true if the result is stored
+     */
+    static boolean restoreGeocodingData(String normalizedCityName, GetGeocodingResponseDTO geocodingResponseDTO, long expiresAtMillis) {
+        CacheEngine<String, StoredGeocode> storage = data;
+        if (expiresAtMillis <= System.currentTimeMillis() || storage.peek(normalizedCityName) != null) {
+            return false;
+        }
+        storage.put(normalizedCityName, new StoredGeocode(geocodingResponseDTO, expiresAtMillis));
+        CITY_NAME_INDEX.add(geocodingResponseDTO);
+        return true;
+    }
+
+    /**
+     * Returns hit, miss and eviction counters of the storage
+     *
+     * @return {@link CacheStats}
+     */
+    public static CacheStats getStats() {
+        return data.stats();
+    }
+
+    /**
+     * Returns search index of names of found cities. Cities stay in the index when their results expire, so names
+     * requested once keep being suggested
+     *
+     * @return {@link CityNameIndex} shared by all SDK instances
+     */
+    public static CityNameIndex getCityNameIndex() {
+        return CITY_NAME_INDEX;
+    }
+
+    /**
+     * Removes all city names from the storage and {@link #getCityNameIndex() city name index}
+     */
+    public static void clear() {
+        data.clear();
+        CITY_NAME_INDEX.clear();
+    }
+
+    /**
+     * Returns city name in lower case without surrounding whitespaces and with inner whitespaces collapsed into one space
+     *
+     * @param cityName name of city
+     * @return normalized name of city
+     */
+    public static String normalize(String cityName) {
+        return WHITESPACES.matcher(cityName.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Stored geocoding result of a city name
+     */
+    public static final class StoredGeocode {
+        private final GetGeocodingResponseDTO geocodingResponseDTO;
+        private final long expiresAtMillis;
+
+        private StoredGeocode(GetGeocodingResponseDTO geocodingResponseDTO, long expiresAtMillis) {
+            this.geocodingResponseDTO = geocodingResponseDTO;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        /**
+         * Returns true if the city name is stored as not found by API
+         *
+         * @return true if the city name is not found
+         */
+        public boolean isNotFound() {
+            return geocodingResponseDTO == null;
+        }
+
+        /**
+         * Returns found city
+         *
+         * @return {@link GetGeocodingResponseDTO} or null if the city name {@link #isNotFound() is not found}
+         */
+        public GetGeocodingResponseDTO getGeocodingResponseDTO() {
+            return geocodingResponseDTO;
+        }
+
+        /**
+         * Returns time the result expires at
+         *
+         * @return time in millis
+         */
+        long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.maxonrash.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding of strings repeated across many stored cities, such as weather descriptions, into int codes.
+ * Each distinct string is kept once. Not thread-safe, guarded by the owner
+ */
+class StringDictionary {
+    /**
+     * Code of null
+     */
+    static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Returns code of the string, adding it to the dictionary if it is not there yet
+     *
+     * @param value string to encode, may be null
+     * @return code of the string or {@link #NULL_CODE}
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Returns string of the code
+     *
+     * @param code code returned by {@link #encode(String) encode}
+     * @return the string or null for {@link #NULL_CODE}
+     */
+    String decode(int code) {
+        return code == NULL_CODE ? null : values.get(code);
+    }
+
+    /**
+     * Returns number of distinct strings
+     *
+     * @return number of strings in the dictionary
+     */
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * Removes all strings
+     */
+    void clear() {
+        codes.clear();
+        values.clear();
+    }
+}
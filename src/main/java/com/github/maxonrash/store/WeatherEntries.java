@@ -0,0 +1,92 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.store.StoredCitiesData.StoredWeather;
+import com.github.maxonrash.store.cache.CacheStats;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * Weather of cities kept by {@link WeatherStorage}, keyed by {@link CoordinateGrid} cell. Implemented by
+ * {@link CachedWeatherEntries} keeping {@link StoredWeather} objects and by {@link ColumnarWeatherEntries} keeping
+ * fields of cities in primitive arrays. Implementations are safe to use from many threads at once
+ */
+interface WeatherEntries {
+
+    /**
+     * Returns key of the stored city within {@link CoordinateGrid#CELL_SIZE} degree from the location. Probes the
+     * {@link CoordinateGrid} cell of the location and its neighbours without counting hits or misses
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return {@link CoordinateGrid#keyOf(double, double) key} of the city or null if there is no such city
+     */
+    Long findKey(double lat, double lon);
+
+    /**
+     * Returns weather stored for the key without counting it as a hit or a miss
+     *
+     * @param key {@link CoordinateGrid#keyOf(double, double) key} of the city
+     * @return {@link StoredWeather} or null if there is none
+     */
+    StoredWeather peek(long key);
+
+    /**
+     * Returns weather stored for the key if it passes the check and counts one hit or miss for the lookup
+     *
+     * @param key {@link CoordinateGrid#keyOf(double, double) key} of the city
+     * @param isHit check of the stored weather, called at most once
+     * @return {@link StoredWeather} or null if there is none or it doesn't pass the check
+     */
+    StoredWeather find(long key, Predicate<? super StoredWeather> isHit);
+
+    /**
+     * Stores the weather for the key, evicting a city if the quota is exceeded
+     *
+     * @param key {@link CoordinateGrid#keyOf(double, double) key} of the city
+     * @param currentWeatherEntity weather to store
+     * @param json UTF-8 JSON of the weather, or null to serialize it if the implementation keeps JSON
+     */
+    void put(long key, CurrentWeatherEntity currentWeatherEntity, byte[] json);
+
+    /**
+     * Removes the weather stored for the key
+     *
+     * @param key {@link CoordinateGrid#keyOf(double, double) key} of the city
+     */
+    void remove(long key);
+
+    /**
+     * Returns weather of all stored cities at the moment of the call
+     *
+     * @return collection of {@link StoredWeather}
+     */
+    Collection<StoredWeather> values();
+
+    /**
+     * Returns number of stored cities
+     *
+     * @return number of stored cities
+     */
+    int size();
+
+    /**
+     * Returns maximum number of stored cities
+     *
+     * @return quota of stored cities
+     */
+    int getCapacity();
+
+    /**
+     * Removes all cities, counters are kept
+     */
+    void clear();
+
+    /**
+     * Returns hit, miss and eviction counters
+     *
+     * @return {@link CacheStats}
+     */
+    CacheStats stats();
+}
@@ -0,0 +1,428 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.entity.Coordinates;
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.exception.CallPerMinuteExceededException;
+import com.github.maxonrash.exception.InternalErrorException;
+import com.github.maxonrash.exception.InvalidApiKeyException;
+import com.github.maxonrash.service.GetCurrentWeatherService;
+import com.github.maxonrash.store.StoredCitiesData.StoredWeather;
+import com.github.maxonrash.store.cache.CacheEngine;
+import com.github.maxonrash.store.cache.CacheStats;
+import com.github.maxonrash.store.cache.EvictionPolicy;
+import com.github.maxonrash.store.cache.EvictionPolicyType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Storage of cities' weather that have been requested earlier, bounded by a quota of stored cities. Cities are keyed
+ * by {@link CoordinateGrid} cell and kept together with their JSON serialized once on insertion, or in primitive arrays
+ * of {@link ColumnarWeatherStore} if the storage is {@link #columnar(int, String) columnar}. When the quota is
+ * reached the {@link EvictionPolicy} drops a city of this storage only, so every
+ * {@link com.github.maxonrash.CurrentWeatherSDK CurrentWeatherSDK} owns one and a busy API key can't evict cities
+ * of the others. {@link StoredCitiesData} keeps the one shared by code that doesn't have an SDK instance.
+ * Safe to use from many threads at once
+ */
+@Slf4j
+public class WeatherStorage {
+    private final WeatherEntries data;
+
+    /**
+     * Constructs an empty storage using one of built-in eviction policies, reporting its hits, misses and evictions
+     * under {@link StoredCitiesData#METRICS_NAME}
+     *
+     * @param capacity maximum number of stored cities, must be positive
+     * @param policyType {@link EvictionPolicyType} choosing which city to drop when the storage is full
+     */
+    public WeatherStorage(int capacity, EvictionPolicyType policyType) {
+        this(capacity, policyType, StoredCitiesData.METRICS_NAME);
+    }
+
+    /**
+     * Constructs an empty storage using one of built-in eviction policies, reporting its hits, misses and evictions
+     * under specified name
+     *
+     * @param capacity maximum number of stored cities, must be positive
+     * @param policyType {@link EvictionPolicyType} choosing which city to drop when the storage is full
+     * @param metricsName name of the storage in {@link com.github.maxonrash.metrics.Metrics Metrics}, or null to not report them
+     */
+    public WeatherStorage(int capacity, EvictionPolicyType policyType, String metricsName) {
+        this(new CachedWeatherEntries(new CacheEngine<>(capacity, policyType, metricsName)));
+    }
+
+    /**
+     * Constructs an empty storage using custom eviction policy
+     *
+     * @param capacity maximum number of stored cities, must be positive
+     * @param policy {@link EvictionPolicy} choosing which city to drop when the storage is full
+     */
+    public WeatherStorage(int capacity, EvictionPolicy<Long> policy) {
+        this(new CachedWeatherEntries(new CacheEngine<>(capacity, policy, StoredCitiesData.METRICS_NAME)));
+    }
+
+    private WeatherStorage(WeatherEntries data) {
+        this.data = data;
+    }
+
+    /**
+     * Constructs an empty storage keeping weather in {@link ColumnarWeatherStore}, for quotas of many thousands of cities.
+     * It takes about 125 bytes per city instead of an entity with its nested objects and JSON, at the cost of building
+     * the entity and its JSON when a city is served. When the storage is full, the city stored earliest is replaced
+     *
+     * @param capacity maximum number of stored cities, must be positive
+     * @param metricsName name of the storage in {@link com.github.maxonrash.metrics.Metrics Metrics}, or null to not report them
+     * @return new {@link WeatherStorage}
+     */
+    public static WeatherStorage columnar(int capacity, String metricsName) {
+        return new WeatherStorage(new ColumnarWeatherEntries(capacity, metricsName));
+    }
+
+    /**
+     * Returns hit, miss and eviction counters of the storage
+     *
+     * @return {@link CacheStats}
+     */
+    public CacheStats getStats() {
+        return data.stats();
+    }
+
+    /**
+     * Returns number of stored cities
+     *
+     * @return number of stored cities
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Returns maximum number of stored cities
+     *
+     * @return quota of the storage
+     */
+    public int getCapacity() {
+        return data.getCapacity();
+    }
+
+    /**
+     * Removes all cities from the storage
+     */
+    public void clear() {
+        data.clear();
+    }
+
+    /**
+     * Adds weather data to the storage if it is not present, updates if it is already present
+     * or evicts a city chosen by the eviction policy if the storage is already full. The entity is serialized into JSON
+     * once here, so it must not be modified after it is added
+     *
+     * @param currentWeatherEntity data to be added
+     */
+    public void addCurrentWeatherData(CurrentWeatherEntity currentWeatherEntity) {
+        put(currentWeatherEntity, null);
+    }
+
+    /**
+     * Adds weather data as {@link #addCurrentWeatherData(CurrentWeatherEntity) addCurrentWeatherData} does and returns
+     * it together with its JSON, which is serialized once for both the storage and the caller
+     *
+     * @param currentWeatherEntity data to be added
+     * @return {@link StoredWeather} with the entity and its JSON
+     */
+    public StoredWeather storeCurrentWeatherData(CurrentWeatherEntity currentWeatherEntity) {
+        StoredWeather stored = StoredWeather.of(currentWeatherEntity);
+        put(currentWeatherEntity, stored.json());
+        return stored;
+    }
+
+    private void put(CurrentWeatherEntity currentWeatherEntity, byte[] json) {
+        long newKey = CoordinateGrid.keyOf(currentWeatherEntity.getLat(), currentWeatherEntity.getLon());
+        Long key = findKeyOfSpecifiedCity(currentWeatherEntity.getLat(), currentWeatherEntity.getLon());
+        if (key != null && key != newKey) {
+            data.remove(key);
+        }
+        data.put(newKey, currentWeatherEntity, json);
+    }
+
+    /**
+     * Returns {@link CurrentWeatherEntity} from the storage. Is intended to be used
+     * after {@link #isStoredCityWeatherIsUpToDate(double, double) isStoredCityWeatherIsUpToDate} method
+     * as it returns empty {@link CurrentWeatherEntity} if city from specified location is not in the storage
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return {@link CurrentWeatherEntity}
+     */
+    public CurrentWeatherEntity getCurrentWeatherData(double lat, double lon) {
+        Long key = findKeyOfSpecifiedCity(lat, lon);
+        if (key != null) {
+            StoredWeather stored = data.peek(key);
+            if (stored != null) {
+                return stored.getCurrentWeatherEntity();
+            }
+        }
+        return new CurrentWeatherEntity();
+    }
+
+    /**
+     * Returns stored {@link CurrentWeatherEntity} of the city at specified location regardless of its age.
+     * Doesn't count as a hit or a miss of the storage, as it is intended to be used after the city has been looked up
+     * with {@link #findCurrentWeatherData(double, double, Predicate)}
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return {@link CurrentWeatherEntity} or null if there is no such city in the storage
+     */
+    public CurrentWeatherEntity findCurrentWeatherData(double lat, double lon) {
+        Long key = findKeyOfSpecifiedCity(lat, lon);
+        StoredWeather stored = key == null ? null : data.peek(key);
+        return stored == null ? null : stored.getCurrentWeatherEntity();
+    }
+
+    /**
+     * Looks up weather of the city at specified location and counts one hit of the storage if it is stored and can be
+     * served, e.g. is up-to-date, or one miss otherwise. Stored weather that can't be served is kept in the storage
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @param isServable check of the stored weather, called at most once
+     * @return stored {@link CurrentWeatherEntity} or null if there is no such city in the storage or it can't be served
+     */
+    public CurrentWeatherEntity findCurrentWeatherData(double lat, double lon, Predicate<? super CurrentWeatherEntity> isServable) {
+        StoredWeather stored = findStoredWeather(lat, lon, isServable);
+        return stored == null ? null : stored.getCurrentWeatherEntity();
+    }
+
+    /**
+     * Looks up weather of the city at specified location as {@link #findCurrentWeatherData(double, double, Predicate)}
+     * does and returns it together with its JSON, so serving the city doesn't look it up again
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @param isServable check of the stored weather, called at most once
+     * @return {@link StoredWeather} or null if there is no such city in the storage or it can't be served
+     */
+    public StoredWeather findStoredWeather(double lat, double lon, Predicate<? super CurrentWeatherEntity> isServable) {
+        Long key = findKeyOfSpecifiedCity(lat, lon);
+        return data.find(key == null ? CoordinateGrid.keyOf(lat, lon) : key, weather -> isServable.test(weather.getCurrentWeatherEntity()));
+    }
+
+    /**
+     * Returns stored weather of the city at specified location together with its JSON serialized on insertion.
+     * Doesn't count as a hit or a miss of the storage, as it is intended to be used after the city has been looked up
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return {@link StoredWeather} or null if there is no such city in the storage
+     */
+    public StoredWeather findStoredWeather(double lat, double lon) {
+        Long key = findKeyOfSpecifiedCity(lat, lon);
+        return key == null ? null : data.peek(key);
+    }
+
+    /**
+     * Returns all stored cities at the moment of the call
+     *
+     * @return unmodifiable collection of stored {@link CurrentWeatherEntity}
+     */
+    public Collection<CurrentWeatherEntity> getAllCurrentWeatherData() {
+        return data.values().stream().map(StoredWeather::getCurrentWeatherEntity).toList();
+    }
+
+    /**
+     * Returns stored weather of all cities together with their JSON at the moment of the call. Used by {@link CacheSnapshot}
+     *
+     * @return list of {@link StoredWeather}
+     */
+    List<StoredWeather> getAllStoredWeather() {
+        return List.copyOf(data.values());
+    }
+
+    /**
+     * Stores weather restored from {@link CacheSnapshot} with its JSON unless weather of the city is already stored,
+     * as it is not older than the restored one
+     *
+     * @param currentWeatherEntity restored weather
+     * @param json UTF-8 JSON of the weather written to the snapshot
+     * @return true if the weather is stored
+     */
+    boolean restoreCurrentWeatherData(CurrentWeatherEntity currentWeatherEntity, byte[] json) {
+        if (findKeyOfSpecifiedCity(currentWeatherEntity.getLat(), currentWeatherEntity.getLon()) != null) {
+            return false;
+        }
+        data.put(CoordinateGrid.keyOf(currentWeatherEntity.getLat(), currentWeatherEntity.getLon()), currentWeatherEntity, json);
+        return true;
+    }
+
+    /**
+     * Returns age of the oldest stored weather, it shows how late refreshing of stored cities is
+     *
+     * @return age in seconds, 0 if the storage is empty
+     */
+    public long getOldestEntryAgeSeconds() {
+        long now = System.currentTimeMillis() / 1000;
+        long oldest = now;
+        for (StoredWeather stored : data.values()) {
+            oldest = Math.min(oldest, stored.getCurrentWeatherEntity().getDateTime());
+        }
+        return now - oldest;
+    }
+
+    /**
+     * Returns true if the difference between current time and time of the city at specified location is not more than
+     * {@link StoredCitiesData#getTimeToLiveSeconds() time to live}. Returns false if there is no such city in the storage.
+     * Outdated weather is counted as a miss of the storage
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return true if the weather of the city is stored and up-to-date
+     */
+    public boolean isStoredCityWeatherIsUpToDate(double lat, double lon) {
+        CurrentWeatherEntity storedCity = findCurrentWeatherData(lat, lon, StoredCitiesData::isUpToDate);
+        if (storedCity != null) {
+            log.info("Found up-to-date city with name \"" + storedCity.getName() + "\" in storage, time of it is " + storedCity.getDateTime());
+            return true;
+        }
+        log.info("City with coordinates lat=" + lat + " & lon=" + lon + " is not found in storage or is outdated");
+        return false;
+    }
+
+    /**
+     * Updates outdated information for each city in the storage with specified service. If the service
+     * {@link GetCurrentWeatherService#isGroupRequestSupported() supports group requests}, cities with known
+     * {@link CurrentWeatherEntity#getId() ID} are updated with one request per {@link GetCurrentWeatherService#MAX_GROUP_SIZE} cities
+     *
+     * @param apiKey API Key for accessing a weather API
+     * @param getCurrentWeatherService service for retrieving current weather data
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    public void updateAllCitiesInMemory(String apiKey, GetCurrentWeatherService getCurrentWeatherService) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        long now = System.currentTimeMillis() / 1000;
+        List<CurrentWeatherEntity> outdated = new ArrayList<>();
+        for (CurrentWeatherEntity entity : getAllCurrentWeatherData()) {
+            log.info("checking if data for city with lat=" + entity.getLat() + "&lon=" + entity.getLon() + " is up-to-date");
+            if ((now - entity.getDateTime()) > StoredCitiesData.getTimeToLiveSeconds()) {
+                log.info("data is outdated: delay is " + (now - entity.getDateTime()) + " sec");
+                outdated.add(entity);
+            } else {
+                log.info("data in storage is up-to-date, no need to update");
+            }
+        }
+        for (List<CurrentWeatherEntity> group : StoredCitiesData.groupForRefresh(outdated, getCurrentWeatherService.isGroupRequestSupported())) {
+            refreshGroup(group, apiKey, getCurrentWeatherService);
+        }
+    }
+
+    /**
+     * Updates outdated information for each city in the storage with specified service, sending up to
+     * <i>maxConcurrency</i> requests at once. Uses virtual threads when running on a JVM that supports them and a
+     * bounded pool of platform threads otherwise. Cities with known {@link CurrentWeatherEntity#getId() ID} are
+     * updated with group requests if the service supports them. A failed city doesn't stop refreshing of the other ones,
+     * its exception is collected in the returned {@link RefreshResult}
+     *
+     * @param apiKey API Key for accessing a weather API
+     * @param getCurrentWeatherService service for retrieving current weather data
+     * @param maxConcurrency maximum number of requests to weather API in flight, must be positive
+     * @return {@link RefreshResult} with number of refreshed cities and failures of the others
+     */
+    public RefreshResult updateAllCitiesInMemoryInParallel(String apiKey, GetCurrentWeatherService getCurrentWeatherService, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive, got " + maxConcurrency);
+        }
+        long now = System.currentTimeMillis() / 1000;
+        List<CurrentWeatherEntity> outdated = getAllCurrentWeatherData().stream()
+                .filter(entity -> now - entity.getDateTime() > StoredCitiesData.getTimeToLiveSeconds())
+                .toList();
+        List<List<CurrentWeatherEntity>> groups = StoredCitiesData.groupForRefresh(outdated, getCurrentWeatherService.isGroupRequestSupported());
+        log.info("refreshing " + outdated.size() + " outdated cities with " + groups.size() + " requests, up to " + maxConcurrency + " at once");
+        if (outdated.isEmpty()) {
+            return new RefreshResult(0, Map.of());
+        }
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+        AtomicInteger refreshedCount = new AtomicInteger();
+        Semaphore permits = new Semaphore(maxConcurrency);
+        ExecutorService executor = StoredCitiesData.newRefreshExecutor(Math.min(maxConcurrency, groups.size()));
+        try {
+            for (List<CurrentWeatherEntity> group : groups) {
+                executor.execute(() -> {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        group.forEach(entity -> failures.put(StoredCitiesData.latAndLonOf(entity), e));
+                        return;
+                    }
+                    try {
+                        refreshedCount.addAndGet(refreshGroup(group, apiKey, getCurrentWeatherService));
+                    } catch (Exception e) {
+                        for (CurrentWeatherEntity entity : group) {
+                            log.info("failed to refresh data for city with " + StoredCitiesData.latAndLonOf(entity) + ": " + e.getMessage());
+                            failures.put(StoredCitiesData.latAndLonOf(entity), e);
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return new RefreshResult(refreshedCount.get(), Map.copyOf(failures));
+    }
+
+    /**
+     * Requests weather of the group of cities made by {@link StoredCitiesData#groupForRefresh(List, boolean) groupForRefresh}
+     * and stores it. A single city is requested by its coordinates, several ones with a group request by their IDs
+     *
+     * @param group cities to refresh
+     * @param apiKey API Key for accessing a weather API
+     * @param getCurrentWeatherService service for retrieving current weather data
+     * @return number of refreshed cities
+     * @throws InvalidApiKeyException if API key is incorrect
+     * @throws CallPerMinuteExceededException if the limit of calls per minuted was exceeded
+     * @throws InternalErrorException if an error on weather API side has occurred
+     */
+    int refreshGroup(List<CurrentWeatherEntity> group, String apiKey, GetCurrentWeatherService getCurrentWeatherService) throws InvalidApiKeyException, CallPerMinuteExceededException, InternalErrorException {
+        if (group.size() == 1) {
+            var newInfo = getCurrentWeatherService.getCurrentWeather(Coordinates.of(group.get(0)), apiKey);
+            addCurrentWeatherData(CurrentWeatherResponseDTO.convertDTOtoEntity(newInfo));
+            return 1;
+        }
+        long[] cityIds = group.stream().mapToLong(CurrentWeatherEntity::getId).toArray();
+        var newInfo = getCurrentWeatherService.getCurrentWeatherByCityIds(cityIds, apiKey);
+        for (CurrentWeatherResponseDTO dto : newInfo) {
+            addCurrentWeatherData(CurrentWeatherResponseDTO.convertDTOtoEntity(dto));
+        }
+        log.info("refreshed " + newInfo.length + " of " + group.size() + " cities with one group request");
+        return newInfo.length;
+    }
+
+    /**
+     * Returns the key of stored city with specified location. Probes the {@link CoordinateGrid} cell of the location
+     * and its neighbours, so it takes constant time regardless of the number of stored cities.
+     * Returns null if there is no city within 0.01 degree from the location in data
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return key of city with specified location or null if there is no such city in data
+     */
+    private Long findKeyOfSpecifiedCity(double lat, double lon) {
+        return data.findKey(lat, lon);
+    }
+}
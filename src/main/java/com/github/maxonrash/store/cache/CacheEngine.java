@@ -0,0 +1,290 @@
+package com.github.maxonrash.store.cache;
+
+import com.github.maxonrash.metrics.Metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Bounded thread-safe cache with pluggable {@link EvictionPolicy}. Lookups are lock-free hash probes;
+ * writes and bookkeeping of the eviction policy are serialized by a lock. Reads record their access in the
+ * policy only if the lock is free at the moment, so concurrent readers never wait on each other or on writers
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class CacheEngine<K, V> {
+    private final int capacity;
+    private final ConcurrentHashMap<K, V> map;
+    private final EvictionPolicy<K> policy;
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final String metricsName;
+
+    /**
+     * Constructs an empty cache
+     *
+     * @param capacity maximum number of entries, must be positive
+     * @param policy {@link EvictionPolicy} choosing entries to evict when the capacity is exceeded
+     */
+    public CacheEngine(int capacity, EvictionPolicy<K> policy) {
+        this(capacity, policy, null);
+    }
+
+    /**
+     * Constructs an empty cache reporting its hits, misses and evictions to {@link Metrics#getRecorder() metrics recorder}
+     *
+     * @param capacity maximum number of entries, must be positive
+     * @param policy {@link EvictionPolicy} choosing entries to evict when the capacity is exceeded
+     * @param metricsName name of the cache in metrics, or null to not report them
+     */
+    public CacheEngine(int capacity, EvictionPolicy<K> policy, String metricsName) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        this.map = new ConcurrentHashMap<>(Math.min(capacity, 1024));
+        this.metricsName = metricsName;
+    }
+
+    /**
+     * Constructs an empty cache with one of built-in eviction policies
+     *
+     * @param capacity maximum number of entries, must be positive
+     * @param policyType {@link EvictionPolicyType} choosing entries to evict when the capacity is exceeded
+     */
+    public CacheEngine(int capacity, EvictionPolicyType policyType) {
+        this(capacity, policyType.<K>create(capacity));
+    }
+
+    /**
+     * Constructs an empty cache with one of built-in eviction policies reporting its hits, misses and evictions
+     * to {@link Metrics#getRecorder() metrics recorder}
+     *
+     * @param capacity maximum number of entries, must be positive
+     * @param policyType {@link EvictionPolicyType} choosing entries to evict when the capacity is exceeded
+     * @param metricsName name of the cache in metrics, or null to not report them
+     */
+    public CacheEngine(int capacity, EvictionPolicyType policyType, String metricsName) {
+        this(capacity, policyType.<K>create(capacity), metricsName);
+    }
+
+    /**
+     * Returns value stored for the key and counts a hit or a miss
+     *
+     * @param key key to look for
+     * @return stored value or null if there is none
+     */
+    public V get(K key) {
+        V value = map.get(key);
+        if (value == null) {
+            missCount.increment();
+            if (metricsName != null) {
+                Metrics.getRecorder().recordCacheMiss(metricsName);
+            }
+            return null;
+        }
+        hitCount.increment();
+        if (metricsName != null) {
+            Metrics.getRecorder().recordCacheHit(metricsName);
+        }
+        if (policyLock.tryLock()) {
+            try {
+                policy.recordAccess(key);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns value stored for the key if it is still usable, for example not expired, and counts a hit or a miss.
+     * Unusable value is removed from the cache and counted as a miss
+     *
+     * @param key key to look for
+     * @param isUsable check of the stored value
+     * @return stored value or null if there is none or it is not usable
+     */
+    public V get(K key, Predicate<? super V> isUsable) {
+        V value = map.get(key);
+        if (value != null && !isUsable.test(value)) {
+            policyLock.lock();
+            try {
+                if (map.remove(key, value)) {
+                    policy.recordRemoval(key);
+                }
+            } finally {
+                policyLock.unlock();
+            }
+            value = null;
+        }
+        if (value == null) {
+            missCount.increment();
+            if (metricsName != null) {
+                Metrics.getRecorder().recordCacheMiss(metricsName);
+            }
+            return null;
+        }
+        hitCount.increment();
+        if (metricsName != null) {
+            Metrics.getRecorder().recordCacheHit(metricsName);
+        }
+        if (policyLock.tryLock()) {
+            try {
+                policy.recordAccess(key);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns value stored for the key if it passes the check and counts exactly one hit or miss for the lookup.
+     * Unlike {@link #get(Object, Predicate)} a value failing the check, for example an outdated one, is kept in the
+     * cache, as the caller may still use it after looking at it with {@link #peek(Object)}
+     *
+     * @param key key to look for
+     * @param isHit check of the stored value, called at most once
+     * @return stored value or null if there is none or it doesn't pass the check
+     */
+    public V find(K key, Predicate<? super V> isHit) {
+        V value = map.get(key);
+        if (value == null || !isHit.test(value)) {
+            missCount.increment();
+            if (metricsName != null) {
+                Metrics.getRecorder().recordCacheMiss(metricsName);
+            }
+            return null;
+        }
+        hitCount.increment();
+        if (metricsName != null) {
+            Metrics.getRecorder().recordCacheHit(metricsName);
+        }
+        if (policyLock.tryLock()) {
+            try {
+                policy.recordAccess(key);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns value stored for the key without counting it as a hit or a miss and without touching the eviction policy
+     *
+     * @param key key to look for
+     * @return stored value or null if there is none
+     */
+    public V peek(K key) {
+        return map.get(key);
+    }
+
+    /**
+     * Stores the value for the key. Evicts entries chosen by {@link EvictionPolicy} while the capacity is exceeded
+     *
+     * @param key key of the value
+     * @param value value to store, cannot be null
+     */
+    public void put(K key, V value) {
+        policyLock.lock();
+        try {
+            if (map.put(key, value) == null) {
+                policy.recordInsertion(key);
+            } else {
+                policy.recordAccess(key);
+            }
+            while (map.size() > capacity) {
+                K victim = policy.selectVictim();
+                if (victim == null) {
+                    break;
+                }
+                map.remove(victim);
+                evictionCount.increment();
+                if (metricsName != null) {
+                    Metrics.getRecorder().recordCacheEviction(metricsName);
+                }
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the value stored for the key
+     *
+     * @param key key of the value
+     * @return removed value or null if there was none
+     */
+    public V remove(K key) {
+        policyLock.lock();
+        try {
+            V removed = map.remove(key);
+            if (removed != null) {
+                policy.recordRemoval(key);
+            }
+            return removed;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries. Counters are kept
+     */
+    public void clear() {
+        policyLock.lock();
+        try {
+            map.clear();
+            policy.clear();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Returns unmodifiable live view of stored entries. Iteration over it is weakly consistent and never throws
+     * {@link java.util.ConcurrentModificationException}
+     *
+     * @return view of stored entries
+     */
+    public Map<K, V> asMap() {
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Returns number of stored entries
+     *
+     * @return number of stored entries
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns maximum number of entries
+     *
+     * @return maximum number of entries
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns a snapshot of hit, miss and eviction counters
+     *
+     * @return {@link CacheStats}
+     */
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(), map.size(), capacity);
+    }
+}
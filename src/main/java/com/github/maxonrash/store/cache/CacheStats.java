@@ -0,0 +1,26 @@
+package com.github.maxonrash.store.cache;
+
+import lombok.Value;
+
+/**
+ * Snapshot of {@link CacheEngine} counters. Can be used to size the cache: low {@link #getHitRatio() hit ratio}
+ * together with a lot of evictions means the capacity is too small for the set of requested cities
+ */
+@Value
+public class CacheStats {
+    long hitCount;
+    long missCount;
+    long evictionCount;
+    int size;
+    int capacity;
+
+    /**
+     * Returns ratio of hits to all lookups
+     *
+     * @return value between 0 and 1, or 0 if there were no lookups yet
+     */
+    public double getHitRatio() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.maxonrash.store.cache;
+
+/**
+ * Strategy deciding which entry of a {@link CacheEngine} must be evicted once the engine exceeds its capacity.
+ * Built-in implementations are available through {@link EvictionPolicyType}, but any other implementation can be
+ * passed to {@link CacheEngine#CacheEngine(int, EvictionPolicy) CacheEngine} as well.
+ * <p>Implementations don't need to be thread-safe: {@link CacheEngine} calls them only while holding its own lock
+ *
+ * @param <K> type of keys of the cache
+ */
+public interface EvictionPolicy<K> {
+    /**
+     * Records that a new key has been added to the cache
+     *
+     * @param key added key
+     */
+    void recordInsertion(K key);
+
+    /**
+     * Records that an existing key has been read or overwritten. Unknown keys must be ignored
+     *
+     * @param key accessed key
+     */
+    void recordAccess(K key);
+
+    /**
+     * Records that a key has been removed from the cache by the user. Unknown keys must be ignored
+     *
+     * @param key removed key
+     */
+    void recordRemoval(K key);
+
+    /**
+     * Chooses a key that must be evicted and forgets about it. Called by {@link CacheEngine} while the number
+     * of stored entries is bigger than its capacity
+     *
+     * @return key to evict, or null if the policy doesn't track any key
+     */
+    K selectVictim();
+
+    /**
+     * Forgets about all tracked keys
+     */
+    void clear();
+}
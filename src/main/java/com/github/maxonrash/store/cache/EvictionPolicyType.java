@@ -0,0 +1,29 @@
+package com.github.maxonrash.store.cache;
+
+/**
+ * Built-in {@link EvictionPolicy eviction policies} of {@link CacheEngine}
+ * <p>{@link #LRU LRU} - evicts the entry that was accessed least recently
+ * <p>{@link #LFU LFU} - evicts the entry that was accessed least frequently, the oldest one among equals
+ * <p>{@link #W_TINY_LFU W_TINY_LFU} - Window TinyLFU: new entries get into a small LRU window and have to beat
+ * the main space's victim by estimated frequency to stay in cache. Keeps popular cities against scans of rare ones
+ */
+public enum EvictionPolicyType {
+    LRU,
+    LFU,
+    W_TINY_LFU;
+
+    /**
+     * Creates a new instance of the policy for a cache with specified capacity
+     *
+     * @param capacity maximum number of entries of the cache
+     * @param <K> type of keys of the cache
+     * @return new {@link EvictionPolicy}
+     */
+    public <K> EvictionPolicy<K> create(int capacity) {
+        return switch (this) {
+            case LRU -> new LruEvictionPolicy<>();
+            case LFU -> new LfuEvictionPolicy<>();
+            case W_TINY_LFU -> new WindowTinyLfuEvictionPolicy<>(capacity);
+        };
+    }
+}
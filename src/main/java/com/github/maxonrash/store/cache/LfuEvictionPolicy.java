@@ -0,0 +1,115 @@
+package com.github.maxonrash.store.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * {@link EvictionPolicy} evicting the least frequently accessed key. Keys with the same frequency are evicted in
+ * insertion order. Every operation is O(1) as keys are grouped into buckets by their frequency
+ *
+ * @param <K> type of keys of the cache
+ */
+class LfuEvictionPolicy<K> implements EvictionPolicy<K> {
+    /**
+     * Access count of each tracked key
+     */
+    private final Map<K, Integer> frequencies = new HashMap<>();
+    /**
+     * Tracked keys grouped by their access count
+     */
+    private final Map<Integer, LinkedHashSet<K>> buckets = new HashMap<>();
+    /**
+     * Lower bound of the smallest access count among tracked keys
+     */
+    private int minFrequency = 1;
+    /**
+     * The key inserted last. It is kept out of buckets until the next operation, so a new key is never
+     * chosen as victim right after its own insertion
+     */
+    private K pending;
+
+    @Override
+    public void recordInsertion(K key) {
+        recordRemoval(key);
+        flushPending();
+        frequencies.put(key, 1);
+        pending = key;
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        flushPending();
+        Integer frequency = frequencies.get(key);
+        if (frequency == null) {
+            return;
+        }
+        removeFromBucket(key, frequency);
+        if (frequency == minFrequency && !buckets.containsKey(frequency)) {
+            minFrequency = frequency + 1;
+        }
+        frequencies.put(key, frequency + 1);
+        buckets.computeIfAbsent(frequency + 1, f -> new LinkedHashSet<>()).add(key);
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        if (key.equals(pending)) {
+            pending = null;
+            frequencies.remove(key);
+            return;
+        }
+        Integer frequency = frequencies.remove(key);
+        if (frequency != null) {
+            removeFromBucket(key, frequency);
+        }
+    }
+
+    @Override
+    public K selectVictim() {
+        if (buckets.isEmpty()) {
+            K victim = pending;
+            pending = null;
+            if (victim != null) {
+                frequencies.remove(victim);
+            }
+            return victim;
+        }
+        while (!buckets.containsKey(minFrequency)) { // minFrequency can only be behind after a removal
+            minFrequency++;
+        }
+        Iterator<K> iterator = buckets.get(minFrequency).iterator();
+        K victim = iterator.next();
+        iterator.remove();
+        if (!iterator.hasNext()) {
+            buckets.remove(minFrequency);
+        }
+        frequencies.remove(victim);
+        return victim;
+    }
+
+    @Override
+    public void clear() {
+        frequencies.clear();
+        buckets.clear();
+        minFrequency = 1;
+        pending = null;
+    }
+
+    private void flushPending() {
+        if (pending != null) {
+            buckets.computeIfAbsent(1, f -> new LinkedHashSet<>()).add(pending);
+            minFrequency = 1;
+            pending = null;
+        }
+    }
+
+    private void removeFromBucket(K key, int frequency) {
+        LinkedHashSet<K> bucket = buckets.get(frequency);
+        bucket.remove(key);
+        if (bucket.isEmpty()) {
+            buckets.remove(frequency);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.maxonrash.store.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * {@link EvictionPolicy} evicting the least recently accessed key
+ *
+ * @param <K> type of keys of the cache
+ */
+class LruEvictionPolicy<K> implements EvictionPolicy<K> {
+    /**
+     * Tracked keys in access order, the eldest one goes first
+     */
+    private final LinkedHashMap<K, Boolean> order = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Override
+    public void recordInsertion(K key) {
+        order.put(key, Boolean.TRUE);
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        order.get(key);
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        order.remove(key);
+    }
+
+    @Override
+    public K selectVictim() {
+        Iterator<K> iterator = order.keySet().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        K victim = iterator.next();
+        iterator.remove();
+        return victim;
+    }
+
+    @Override
+    public void clear() {
+        order.clear();
+    }
+}
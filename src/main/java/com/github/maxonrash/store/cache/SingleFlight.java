@@ -0,0 +1,114 @@
+package com.github.maxonrash.store.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent loads of the same key. The first caller for a key performs the load, and every caller
+ * that comes while the load is in flight gets the same result or the same exception instead of loading again.
+ * Used to avoid a burst of identical API requests when a popular city is missing in cache
+ *
+ * @param <K> type of keys
+ * @param <V> type of loaded values
+ */
+public class SingleFlight<K, V> {
+    /**
+     * Loading of a value that may throw a checked exception
+     *
+     * @param <V> type of loaded value
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        /**
+         * Loads the value
+         *
+         * @return loaded value
+         * @throws Exception if the value cannot be loaded
+         */
+        V load() throws Exception;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the value for the key in the calling thread, or waits for the load that is already in flight
+     *
+     * @param key key of the value
+     * @param loader loading of the value, called only if there is no load in flight for the key
+     * @return loaded value
+     * @throws Exception the exception thrown by the loader, for waiters as well
+     */
+    public V execute(K key, Loader<V> loader) throws Exception {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V value = loader.load();
+            inFlight.remove(key, flight);
+            flight.complete(value);
+            return value;
+        } catch (Throwable e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Starts asynchronous load of the value for the key, or joins the load that is already in flight
+     *
+     * @param key key of the value
+     * @param loader starts loading of the value, called only if there is no load in flight for the key
+     * @return {@link CompletableFuture} of the value. Cancelling it doesn't affect other callers
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return existing.copy();
+        }
+        try {
+            loader.get().whenComplete((value, error) -> {
+                inFlight.remove(key, flight);
+                if (error != null) {
+                    flight.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                } else {
+                    flight.complete(value);
+                }
+            });
+        } catch (Throwable e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+        }
+        return flight.copy();
+    }
+
+    /**
+     * Returns number of loads in flight
+     *
+     * @return number of loads in flight
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> flight) throws Exception {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw (Error) cause;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.maxonrash.store.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Window TinyLFU {@link EvictionPolicy}. New keys get into a small LRU window (1% of capacity). Keys leaving the window
+ * compete with the eldest key of the main space and stay in cache only if they were seen more often according to
+ * {@link FrequencySketch}. The main space is a segmented LRU: keys accessed again move from <i>probation</i>
+ * to <i>protected</i> segment that takes up to 80% of the main space
+ *
+ * @param <K> type of keys of the cache
+ */
+class WindowTinyLfuEvictionPolicy<K> implements EvictionPolicy<K> {
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<K, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Constructs the policy for a cache with specified capacity
+     *
+     * @param capacity maximum number of entries of the cache
+     */
+    WindowTinyLfuEvictionPolicy(int capacity) {
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = Math.max(0, capacity - windowCapacity);
+        this.protectedCapacity = (int) (mainCapacity * 0.8);
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    @Override
+    public void recordInsertion(K key) {
+        recordRemoval(key);
+        sketch.increment(key);
+        window.put(key, Boolean.TRUE);
+        if (window.size() > windowCapacity && probation.size() + protectedSegment.size() < mainCapacity) {
+            probation.put(removeEldest(window), Boolean.TRUE); // no need to compete while the main space has room
+        }
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        if (window.get(key) != null || protectedSegment.get(key) != null) {
+            sketch.increment(key);
+        } else if (probation.remove(key) != null) {
+            sketch.increment(key);
+            protectedSegment.put(key, Boolean.TRUE);
+            if (protectedSegment.size() > protectedCapacity) {
+                probation.put(removeEldest(protectedSegment), Boolean.TRUE);
+            }
+        }
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        if (window.remove(key) == null && probation.remove(key) == null) {
+            protectedSegment.remove(key);
+        }
+    }
+
+    @Override
+    public K selectVictim() {
+        if (window.size() > windowCapacity) {
+            K candidate = removeEldest(window);
+            LinkedHashMap<K, Boolean> mainSegment = probation.isEmpty() ? protectedSegment : probation;
+            if (mainSegment.isEmpty()) {
+                return candidate;
+            }
+            K victim = mainSegment.keySet().iterator().next();
+            if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+                mainSegment.remove(victim);
+                probation.put(candidate, Boolean.TRUE);
+                return victim;
+            }
+            return candidate;
+        }
+        if (!probation.isEmpty()) {
+            return removeEldest(probation);
+        }
+        if (!protectedSegment.isEmpty()) {
+            return removeEldest(protectedSegment);
+        }
+        return removeEldest(window);
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    private K removeEldest(LinkedHashMap<K, Boolean> segment) {
+        Iterator<K> iterator = segment.keySet().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        K eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+}
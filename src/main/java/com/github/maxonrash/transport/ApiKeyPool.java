@@ -0,0 +1,280 @@
+package com.github.maxonrash.transport;
+
+import com.github.maxonrash.exception.CallPerMinuteExceededException;
+import com.github.maxonrash.exception.InvalidApiKeyException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Set of API keys calls to weather API are spread across, so throughput is the sum of calls per minute of all keys.
+ * The key for each call is chosen by {@link ApiKeySelection}. A key that exceeded its calls per minute is benched for
+ * {@link ApiKeyPoolConfig#getBenchDuration() benchDuration}, an invalid key is quarantined until it is
+ * {@link #restore(String) restored}. A call failed because of its key is repeated with another key. Thread-safe
+ */
+@Slf4j
+public class ApiKeyPool {
+    private final String[] keys;
+    private final int[] weights;
+    private final ApiKeySelection selection;
+    private final long benchNanos;
+    /**
+     * Current weights of smooth weighted round-robin, the key with the largest one is chosen
+     */
+    private final long[] currentWeights;
+    /**
+     * Time in nanos until which the key is benched
+     */
+    private final long[] benchedUntil;
+    /**
+     * Time in nanos the key was throttled last time, {@link Long#MIN_VALUE} if never
+     */
+    private final long[] lastThrottled;
+    private final boolean[] quarantined;
+
+    /**
+     * Constructs the pool
+     *
+     * @param keys API keys with their positive weights, at least one
+     * @param selection how the key for the next call is chosen
+     * @param benchDuration time a key is not used after it exceeded its calls per minute
+     */
+    public ApiKeyPool(Map<String, Integer> keys, ApiKeySelection selection, Duration benchDuration) {
+        if (keys == null || keys.isEmpty()) {
+            throw new IllegalArgumentException("API key pool must contain at least one key");
+        }
+        this.keys = new String[keys.size()];
+        this.weights = new int[keys.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : keys.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() < 1) {
+                throw new IllegalArgumentException("weight of API key must be positive, got " + entry.getValue());
+            }
+            this.keys[i] = entry.getKey();
+            this.weights[i++] = entry.getValue();
+        }
+        this.selection = selection;
+        this.benchNanos = benchDuration.toNanos();
+        this.currentWeights = new long[this.keys.length];
+        this.benchedUntil = new long[this.keys.length];
+        Arrays.fill(benchedUntil, System.nanoTime());
+        this.lastThrottled = new long[this.keys.length];
+        Arrays.fill(lastThrottled, Long.MIN_VALUE);
+        this.quarantined = new boolean[this.keys.length];
+    }
+
+    /**
+     * Returns all keys of the pool in order they were added
+     *
+     * @return list of API keys
+     */
+    public List<String> getKeys() {
+        return List.of(keys);
+    }
+
+    /**
+     * Returns the first key of the pool
+     *
+     * @return API key
+     */
+    public String getPrimaryKey() {
+        return keys[0];
+    }
+
+    /**
+     * Returns the key for the next call
+     *
+     * @return API key that is neither benched nor quarantined
+     * @throws CallPerMinuteExceededException if all valid keys are benched
+     * @throws InvalidApiKeyException if all keys are quarantined
+     */
+    public synchronized String acquire() throws CallPerMinuteExceededException, InvalidApiKeyException {
+        long now = System.nanoTime();
+        long leastThrottled = Long.MAX_VALUE;
+        boolean anyValid = false;
+        for (int i = 0; i < keys.length; i++) {
+            anyValid |= !quarantined[i];
+            if (isAvailable(i, now)) {
+                leastThrottled = Math.min(leastThrottled, lastThrottled[i]);
+            }
+        }
+        if (!anyValid) {
+            throw new InvalidApiKeyException("All " + keys.length + " API keys of the pool are invalid");
+        }
+        // smooth weighted round-robin among candidates: the one with the largest current weight wins and gives the total away
+        int chosen = -1;
+        long totalWeight = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (isAvailable(i, now) && (selection == ApiKeySelection.WEIGHTED_ROUND_ROBIN || lastThrottled[i] == leastThrottled)) {
+                currentWeights[i] += weights[i];
+                totalWeight += weights[i];
+                if (chosen < 0 || currentWeights[i] > currentWeights[chosen]) {
+                    chosen = i;
+                }
+            }
+        }
+        if (chosen < 0) {
+            throw new CallPerMinuteExceededException("All API keys of the pool exceeded their calls per minute");
+        }
+        currentWeights[chosen] -= totalWeight;
+        return keys[chosen];
+    }
+
+    /**
+     * Benches the key that exceeded its calls per minute for {@link ApiKeyPoolConfig#getBenchDuration() benchDuration}
+     *
+     * @param apiKey key of the throttled call
+     */
+    public synchronized void reportThrottled(String apiKey) {
+        int i = indexOf(apiKey);
+        if (i >= 0) {
+            long now = System.nanoTime();
+            benchedUntil[i] = now + benchNanos;
+            lastThrottled[i] = now;
+            log.info("benched apiKey \"" + masked(apiKey) + "\" for " + Duration.ofNanos(benchNanos).toSeconds() + " sec");
+        }
+    }
+
+    /**
+     * Quarantines the invalid key, it is not used until {@link #restore(String) restored}
+     *
+     * @param apiKey key of the rejected call
+     */
+    public synchronized void reportInvalid(String apiKey) {
+        int i = indexOf(apiKey);
+        if (i >= 0) {
+            quarantined[i] = true;
+            log.info("quarantined invalid apiKey \"" + masked(apiKey) + "\"");
+        }
+    }
+
+    /**
+     * Returns benched or quarantined key to the pool, e.g. after it has been activated
+     *
+     * @param apiKey key to restore
+     */
+    public synchronized void restore(String apiKey) {
+        int i = indexOf(apiKey);
+        if (i >= 0) {
+            quarantined[i] = false;
+            benchedUntil[i] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns true if the key is benched after exceeding its calls per minute
+     *
+     * @param apiKey key of the pool
+     * @return true if the key is benched right now
+     */
+    public synchronized boolean isBenched(String apiKey) {
+        int i = indexOf(apiKey);
+        return i >= 0 && benchedUntil[i] - System.nanoTime() > 0;
+    }
+
+    /**
+     * Returns true if the key is quarantined as invalid
+     *
+     * @param apiKey key of the pool
+     * @return true if the key is quarantined
+     */
+    public synchronized boolean isQuarantined(String apiKey) {
+        int i = indexOf(apiKey);
+        return i >= 0 && quarantined[i];
+    }
+
+    /**
+     * Returns number of keys that can be used right now
+     *
+     * @return number of keys that are neither benched nor quarantined
+     */
+    public synchronized int getAvailableKeyCount() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (isAvailable(i, now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Makes an asynchronous call with a key of the pool. If the call fails because its key exceeded calls per minute
+     * or is invalid, the key is benched or quarantined and the call is repeated with another key, up to once per key
+     *
+     * @param call makes the call with specified API key
+     * @return {@link CompletableFuture} of the result of the call
+     * @param <T> type of the result
+     */
+    public <T> CompletableFuture<T> callAsync(Function<String, CompletableFuture<T>> call) {
+        return callAsync(call, keys.length);
+    }
+
+    private <T> CompletableFuture<T> callAsync(Function<String, CompletableFuture<T>> call, int attemptsLeft) {
+        String apiKey;
+        try {
+            apiKey = acquire();
+        } catch (CallPerMinuteExceededException | InvalidApiKeyException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return call.apply(apiKey).handle((result, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause == null || !reportFailure(apiKey, cause) || attemptsLeft <= 1) {
+                return error == null ? CompletableFuture.completedFuture(result) : CompletableFuture.<T>failedFuture(cause);
+            }
+            return callAsync(call, attemptsLeft - 1);
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Benches or quarantines the key if the call failed because of it
+     *
+     * @param apiKey key of the failed call
+     * @param error exception of the call
+     * @return true if the call may succeed with another key
+     */
+    public boolean reportFailure(String apiKey, Throwable error) {
+        if (error instanceof CallPerMinuteExceededException) {
+            reportThrottled(apiKey);
+            return true;
+        }
+        if (error instanceof InvalidApiKeyException) {
+            reportInvalid(apiKey);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns number of keys in the pool
+     *
+     * @return number of keys
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    private boolean isAvailable(int i, long now) {
+        return !quarantined[i] && benchedUntil[i] - now <= 0;
+    }
+
+    private int indexOf(String apiKey) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(apiKey)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String masked(String apiKey) {
+        return apiKey.substring(0, Math.min(apiKey.length(), 15)) + "...";
+    }
+}
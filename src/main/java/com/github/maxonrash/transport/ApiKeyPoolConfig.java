@@ -0,0 +1,44 @@
+package com.github.maxonrash.transport;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Parameters of {@link ApiKeyPool} spreading calls of one {@link com.github.maxonrash.CurrentWeatherSDK CurrentWeatherSDK}
+ * across several API keys. Add keys with {@code key(apiKey, weight)}, the first one is the key the SDK is registered with.
+ * Weight is the share of calls sent with the key, e.g. 2 for a key with twice the calls per minute of the others
+ */
+@Getter
+@Builder
+@ToString(exclude = "keys")
+public class ApiKeyPoolConfig {
+    /**
+     * API keys with their weights in order they were added
+     */
+    @Singular
+    private Map<String, Integer> keys;
+    /**
+     * How the key for the next call is chosen
+     */
+    @Builder.Default
+    private ApiKeySelection selection = ApiKeySelection.WEIGHTED_ROUND_ROBIN;
+    /**
+     * Time a key is not used after it exceeded its calls per minute, one minute window of weather API by default
+     */
+    @Builder.Default
+    private Duration benchDuration = Duration.ofMinutes(1);
+
+    /**
+     * Creates a new {@link ApiKeyPool} with parameters of this config
+     *
+     * @return new {@link ApiKeyPool}
+     */
+    public ApiKeyPool createApiKeyPool() {
+        return new ApiKeyPool(keys, selection, benchDuration);
+    }
+}
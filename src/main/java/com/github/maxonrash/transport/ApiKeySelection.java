@@ -0,0 +1,12 @@
+package com.github.maxonrash.transport;
+
+/**
+ * How {@link ApiKeyPool} chooses the API key for the next call among keys that are neither benched nor quarantined.
+ * <p>{@link #WEIGHTED_ROUND_ROBIN WEIGHTED_ROUND_ROBIN} - spreads calls evenly in proportion to weights of the keys
+ * <p>{@link #LEAST_RECENTLY_THROTTLED LEAST_RECENTLY_THROTTLED} - prefers keys that were throttled longest ago or never,
+ * spreading calls among them by weight, so keys that have just got out of the bench are used last
+ */
+public enum ApiKeySelection {
+    WEIGHTED_ROUND_ROBIN,
+    LEAST_RECENTLY_THROTTLED
+}
@@ -0,0 +1,389 @@
+package com.github.maxonrash.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Long-living HTTP transport shared by service implementations. Wraps one {@link HttpClient}, so connections
+ * are kept alive and reused (multiplexed if HTTP/2 is negotiated) instead of opening a new connection, TLS session
+ * and selector thread for every request. Failed requests are repeated and slow ones are hedged according to
+ * {@link RetryPolicy} of the {@link HttpTransportConfig config}. Retries and hedged requests are extra calls to the API,
+ * so each of them is sent only if the {@link #setExtraAttemptPermit(BooleanSupplier) extra attempt permit} allows it, e.g. a
+ * token of client-side rate limiting is available. One instance is created per {@link com.github.maxonrash.CurrentWeatherSDK
+ * CurrentWeatherSDK} that uses default services and is closed when the SDK is deleted;
+ * services created without a transport use the JVM-wide {@link #shared() shared} one
+ */
+@Slf4j
+public class HttpTransport {
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static volatile HttpTransport sharedTransport;
+
+    private final HttpTransportConfig config;
+    private final HttpClient client;
+    /**
+     * Executor created by this transport, null if the executor was passed with {@link HttpTransportConfig}
+     */
+    private final ExecutorService ownedExecutor;
+    private final RetryBudget retryBudget;
+    private final LatencyTracker latencyTracker = new LatencyTracker(256);
+    private volatile BooleanSupplier extraAttemptPermit = () -> true;
+    private volatile boolean closed;
+
+    /**
+     * Constructs the transport with specified parameters
+     *
+     * @param config {@link HttpTransportConfig} with parameters of the transport
+     */
+    public HttpTransport(HttpTransportConfig config) {
+        this.config = config;
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(config.getVersion())
+                .connectTimeout(config.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (config.getExecutor() != null) {
+            this.ownedExecutor = null;
+            builder.executor(config.getExecutor());
+        } else {
+            this.ownedExecutor = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "openweathermap-http-" + THREAD_COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            builder.executor(ownedExecutor);
+        }
+        this.client = builder.build();
+        this.retryBudget = new RetryBudget(config.getRetryPolicy().getRetryBudgetRatio(), config.getRetryPolicy().getRetryBudgetReserve());
+    }
+
+    /**
+     * Sets check taken before every retry and hedged request, so they are charged to client-side rate limiting as
+     * the first attempts are. {@link com.github.maxonrash.CurrentWeatherSDK CurrentWeatherSDK} owning the transport sets
+     * it to take a token of its {@link RateLimiter} without waiting. By default extra attempts are always allowed
+     *
+     * @param extraAttemptPermit returns true if one more call to the API may be sent right now
+     */
+    public void setExtraAttemptPermit(BooleanSupplier extraAttemptPermit) {
+        this.extraAttemptPermit = extraAttemptPermit == null ? () -> true : extraAttemptPermit;
+    }
+
+    /**
+     * Returns JVM-wide transport with default parameters. It is never closed
+     *
+     * @return shared {@link HttpTransport}
+     */
+    public static HttpTransport shared() {
+        HttpTransport transport = sharedTransport;
+        if (transport == null) {
+            synchronized (HttpTransport.class) {
+                transport = sharedTransport;
+                if (transport == null) {
+                    transport = new HttpTransport(HttpTransportConfig.defaults());
+                    sharedTransport = transport;
+                }
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * Builds a GET request to specified URI with configured request timeout
+     *
+     * @param uri URI to request
+     * @return {@link HttpRequest}
+     */
+    public HttpRequest newGetRequest(URI uri) {
+        return HttpRequest.newBuilder()
+                .uri(uri)
+                .header("Content-Type", "application/json")
+                .timeout(config.getRequestTimeout())
+                .GET()
+                .build();
+    }
+
+    /**
+     * Sends GET request to specified URI and returns response with the body as a string. Repeats and hedges the request
+     * according to {@link RetryPolicy}, so the returned response may still have an error status if attempts are exhausted
+     *
+     * @param uri URI to request
+     * @return {@link HttpResponse} with the body as a string
+     * @throws IOException if an I/O error occurs when sending or receiving
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the response
+     */
+    public HttpResponse<String> get(URI uri) throws IOException, InterruptedException {
+        return get(uri, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sends GET request to specified URI and returns response with the body handled by specified handler. Repeats and
+     * hedges the request according to {@link RetryPolicy}, bodies of discarded responses are closed if they are streams
+     *
+     * @param uri URI to request
+     * @param bodyHandler handler of the response body, e.g. {@link HttpResponse.BodyHandlers#ofInputStream() ofInputStream}
+     * @param <T> type of the response body
+     * @return {@link HttpResponse} with the handled body
+     * @throws IOException if an I/O error occurs when sending or receiving
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the response
+     */
+    public <T> HttpResponse<T> get(URI uri, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("HTTP transport is closed");
+        }
+        RetryPolicy policy = config.getRetryPolicy();
+        if (policy.isHedging()) {
+            try {
+                return getAsync(uri, bodyHandler).get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IOException(cause);
+            }
+        }
+        HttpRequest request = newGetRequest(uri);
+        retryBudget.deposit();
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            HttpResponse<T> response;
+            try {
+                response = client.send(request, bodyHandler);
+            } catch (IOException e) {
+                if (!canRetry(attempt, 0)) {
+                    throw e;
+                }
+                log.info("attempt " + attempt + " of request to " + uri.getPath() + " failed: " + e.getMessage() + ", retrying");
+                TimeUnit.NANOSECONDS.sleep(policy.backoffNanos(attempt, 0));
+                continue;
+            }
+            latencyTracker.record(System.nanoTime() - start);
+            long retryAfterNanos = retryAfterNanos(response);
+            if (!RetryPolicy.isRetryableStatus(response.statusCode()) || !canRetry(attempt, retryAfterNanos)) {
+                return response;
+            }
+            log.info("attempt " + attempt + " of request to " + uri.getPath() + " got status " + response.statusCode() + ", retrying");
+            discard(response);
+            TimeUnit.NANOSECONDS.sleep(policy.backoffNanos(attempt, retryAfterNanos));
+        }
+    }
+
+    /**
+     * Sends GET request to specified URI without blocking the calling thread. Repeats and hedges the request
+     * according to {@link RetryPolicy}, delays between attempts don't block any thread either
+     *
+     * @param uri URI to request
+     * @return {@link CompletableFuture} of {@link HttpResponse} with the body as a string
+     */
+    public CompletableFuture<HttpResponse<String>> getAsync(URI uri) {
+        return getAsync(uri, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sends GET request to specified URI without blocking the calling thread, the body is handled by specified handler.
+     * Repeats and hedges the request according to {@link RetryPolicy}, delays between attempts don't block any thread either
+     *
+     * @param uri URI to request
+     * @param bodyHandler handler of the response body, e.g. {@link HttpResponse.BodyHandlers#ofByteArray() ofByteArray}
+     * @param <T> type of the response body
+     * @return {@link CompletableFuture} of {@link HttpResponse} with the handled body
+     */
+    public <T> CompletableFuture<HttpResponse<T>> getAsync(URI uri, HttpResponse.BodyHandler<T> bodyHandler) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("HTTP transport is closed"));
+        }
+        retryBudget.deposit();
+        return attemptAsync(newGetRequest(uri), bodyHandler, 1);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> attemptAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, int attempt) {
+        RetryPolicy policy = config.getRetryPolicy();
+        CompletableFuture<HttpResponse<T>> response = policy.isHedging() ? sendHedged(request, bodyHandler) : sendTimed(request, bodyHandler);
+        return response.handle((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof IOException && canRetry(attempt, 0)) {
+                    log.info("attempt " + attempt + " of request to " + request.uri().getPath() + " failed: " + cause.getMessage() + ", retrying");
+                    return retryAsync(request, bodyHandler, attempt, policy.backoffNanos(attempt, 0));
+                }
+                return CompletableFuture.<HttpResponse<T>>failedFuture(cause);
+            }
+            long retryAfterNanos = retryAfterNanos(result);
+            if (RetryPolicy.isRetryableStatus(result.statusCode()) && canRetry(attempt, retryAfterNanos)) {
+                log.info("attempt " + attempt + " of request to " + request.uri().getPath() + " got status " + result.statusCode() + ", retrying");
+                discard(result);
+                return retryAsync(request, bodyHandler, attempt, policy.backoffNanos(attempt, retryAfterNanos));
+            }
+            return CompletableFuture.completedFuture(result);
+        }).thenCompose(Function.identity());
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> retryAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, int attempt, long delayNanos) {
+        Executor delayed = CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS);
+        return CompletableFuture.supplyAsync(() -> attemptAsync(request, bodyHandler, attempt + 1), delayed).thenCompose(Function.identity());
+    }
+
+    /**
+     * Sends the request and, if it hasn't completed within the hedging delay, sends it once more.
+     * The first successful response is used, the request fails only if both attempts fail
+     *
+     * @param request request to send
+     * @param bodyHandler handler of the response body
+     * @param <T> type of the response body
+     * @return {@link CompletableFuture} of the first successful response
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendHedged(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        CompletableFuture<HttpResponse<T>> primary = sendTimed(request, bodyHandler);
+        long percentileNanos = latencyTracker.percentileNanos(config.getRetryPolicy().getHedgePercentile());
+        if (percentileNanos < 0) {
+            return primary;
+        }
+        long hedgeDelayNanos = Math.max(percentileNanos, config.getRetryPolicy().getMinHedgeDelay().toNanos());
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        BiConsumer<HttpResponse<T>, Throwable> onComplete = (response, error) -> {
+            if (error == null) {
+                if (!result.complete(response)) {
+                    discard(response);
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        };
+        primary.whenComplete(onComplete);
+        CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            if (!result.isDone() && !closed && retryBudget.tryWithdraw() && extraAttemptPermit.getAsBoolean()) {
+                pending.incrementAndGet();
+                log.info("request to " + request.uri().getPath() + " is slower than " + TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos) + " ms, sending hedged request");
+                sendTimed(request, bodyHandler).whenComplete(onComplete);
+            }
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendTimed(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        long start = System.nanoTime();
+        return client.sendAsync(request, bodyHandler)
+                .whenComplete((response, error) -> {
+                    if (error == null) {
+                        latencyTracker.record(System.nanoTime() - start);
+                    }
+                });
+    }
+
+    /**
+     * Closes the body of a response that won't be returned if the body is a stream, so its connection is released
+     *
+     * @param response discarded response
+     */
+    private static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.info("failed to close discarded response body: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns true if the request can be repeated after specified attempt: attempts are not exhausted, the server doesn't
+     * ask to wait longer than {@link RetryPolicy#getMaxBackoff() maxBackoff}, and the retry budget and the
+     * {@link #setExtraAttemptPermit(BooleanSupplier) extra attempt permit} allow it
+     */
+    private boolean canRetry(int attempt, long retryAfterNanos) {
+        RetryPolicy policy = config.getRetryPolicy();
+        return !closed
+                && attempt < policy.getMaxAttempts()
+                && retryAfterNanos <= policy.getMaxBackoff().toNanos()
+                && retryBudget.tryWithdraw()
+                && extraAttemptPermit.getAsBoolean();
+    }
+
+    /**
+     * Returns delay asked by the server with <i>Retry-After</i> header, either in seconds or as HTTP date
+     *
+     * @param response response of the server
+     * @return delay in nanoseconds, or 0 if there is no valid header
+     */
+    private static long retryAfterNanos(HttpResponse<?> response) {
+        var header = response.headers().firstValue("Retry-After");
+        if (header.isEmpty()) {
+            return 0;
+        }
+        String value = header.get().trim();
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            try {
+                long millis = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - System.currentTimeMillis();
+                return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns underlying {@link HttpClient}
+     *
+     * @return {@link HttpClient}
+     */
+    public HttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Returns parameters of the transport
+     *
+     * @return {@link HttpTransportConfig}
+     */
+    public HttpTransportConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Closes the transport. Requests are not accepted after that, and the executor created by the transport
+     * is shut down. Idle connections are released together with {@link HttpClient} when it is garbage collected.
+     * Calling it on the {@link #shared() shared} transport does nothing
+     */
+    public void close() {
+        if (this == sharedTransport || closed) {
+            return;
+        }
+        closed = true;
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+        log.info("HTTP transport is closed");
+    }
+
+    /**
+     * Returns true if the transport has been {@link #close() closed}
+     *
+     * @return true if the transport is closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.maxonrash.transport;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Parameters of {@link HttpTransport}. Every parameter has a default value, so only the ones that differ
+ * need to be set: {@code HttpTransportConfig.builder().requestTimeout(Duration.ofSeconds(3)).build()}
+ */
+@Getter
+@Builder
+@ToString
+public class HttpTransportConfig {
+    /**
+     * Timeout of establishing a connection
+     */
+    @Builder.Default
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    /**
+     * Timeout of a single request including reading of the response
+     */
+    @Builder.Default
+    private Duration requestTimeout = Duration.ofSeconds(10);
+    /**
+     * Preferred HTTP version. {@link HttpClient.Version#HTTP_2 HTTP_2} falls back to HTTP/1.1 if the server doesn't support it
+     */
+    @Builder.Default
+    private HttpClient.Version version = HttpClient.Version.HTTP_2;
+    /**
+     * Executor for asynchronous tasks of {@link HttpClient}. If null, {@link HttpTransport} creates its own
+     * pool of daemon threads and shuts it down on {@link HttpTransport#close() close}.
+     * Executor passed here is never shut down by {@link HttpTransport}
+     */
+    private Executor executor;
+    /**
+     * Retry and hedging of failed and slow requests. Requests are not repeated by default
+     */
+    @Builder.Default
+    private RetryPolicy retryPolicy = RetryPolicy.none();
+    /**
+     * Scheme, host and port of weather API used by default services created on this transport, e.g. "http://localhost:8080"
+     * of a stand-in server. If null, the services send requests to OpenWeatherMap.org
+     */
+    private String baseUrl;
+
+    /**
+     * Returns config with default values of all parameters
+     *
+     * @return default {@link HttpTransportConfig}
+     */
+    public static HttpTransportConfig defaults() {
+        return HttpTransportConfig.builder().build();
+    }
+}
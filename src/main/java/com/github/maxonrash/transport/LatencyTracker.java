@@ -0,0 +1,54 @@
+package com.github.maxonrash.transport;
+
+import java.util.Arrays;
+
+/**
+ * Keeps latencies of recent requests in a ring buffer to estimate their percentiles. Thread-safe
+ */
+class LatencyTracker {
+    /**
+     * Number of samples required before a percentile is estimated
+     */
+    private static final int MIN_SAMPLES = 20;
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    /**
+     * Constructs the tracker keeping specified number of the latest samples
+     *
+     * @param size number of kept samples
+     */
+    LatencyTracker(int size) {
+        this.samples = new long[size];
+    }
+
+    /**
+     * Records latency of a completed request
+     *
+     * @param nanos latency in nanoseconds
+     */
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * Returns estimated percentile of recent latencies
+     *
+     * @param percentile value between 0 and 1
+     * @return latency in nanoseconds, or -1 if there are not enough samples yet
+     */
+    long percentileNanos(double percentile) {
+        long[] copy;
+        synchronized (this) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            copy = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(copy);
+        return copy[Math.min(copy.length - 1, (int) Math.ceil(percentile * copy.length) - 1)];
+    }
+}
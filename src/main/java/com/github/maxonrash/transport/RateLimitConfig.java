@@ -0,0 +1,46 @@
+package com.github.maxonrash.transport;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Parameters of client-side rate limiting of calls to weather API. Both geocoding and weather calls of one
+ * {@link com.github.maxonrash.CurrentWeatherSDK CurrentWeatherSDK} take tokens from the same {@link RateLimiter}.
+ * Set {@link #getCallsPerMinute() callsPerMinute} to the limit of your plan (60 for the free one)
+ */
+@Getter
+@Builder
+@ToString
+public class RateLimitConfig {
+    /**
+     * Number of calls allowed per minute
+     */
+    @Builder.Default
+    private int callsPerMinute = 60;
+    /**
+     * Maximum number of calls that can be made at once after a pause. Defaults to {@link #getCallsPerMinute() callsPerMinute}
+     */
+    private Integer burst;
+    /**
+     * What to do with a call when there is no token for it
+     */
+    @Builder.Default
+    private RateLimitMode mode = RateLimitMode.WAIT;
+    /**
+     * Maximum time to wait for a token in {@link RateLimitMode#WAIT WAIT} and {@link RateLimitMode#SERVE_STALE SERVE_STALE} modes
+     */
+    @Builder.Default
+    private Duration maxWait = Duration.ofSeconds(5);
+
+    /**
+     * Creates a new {@link RateLimiter} with parameters of this config
+     *
+     * @return new {@link RateLimiter}
+     */
+    public RateLimiter createRateLimiter() {
+        return new RateLimiter(callsPerMinute, burst == null ? callsPerMinute : burst);
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.maxonrash.transport;
+
+/**
+ * What to do with a call to weather API when the client-side {@link RateLimiter} has no token for it.
+ * <p>{@link #WAIT WAIT} - waits for a token up to {@link RateLimitConfig#getMaxWait() maxWait}, then throws
+ * {@link com.github.maxonrash.exception.CallPerMinuteExceededException CallPerMinuteExceededException}
+ * <p>{@link #FAIL_FAST FAIL_FAST} - throws {@link com.github.maxonrash.exception.CallPerMinuteExceededException
+ * CallPerMinuteExceededException} right away
+ * <p>{@link #SERVE_STALE SERVE_STALE} - returns outdated weather from storage if the city is stored, otherwise works as {@link #WAIT WAIT}
+ */
+public enum RateLimitMode {
+    WAIT,
+    FAIL_FAST,
+    SERVE_STALE
+}
@@ -0,0 +1,97 @@
+package com.github.maxonrash.transport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side token bucket limiting calls to weather API. The bucket holds up to <i>burst</i> tokens and is refilled
+ * evenly at <i>callsPerMinute</i> rate. A call that finds no token may {@link #reserve(long) reserve} the next one:
+ * the bucket goes into debt and the caller is told how long to wait, so callers are served in order
+ * and the limit is never exceeded. Thread-safe
+ */
+public class RateLimiter {
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Constructs the limiter with a full bucket
+     *
+     * @param callsPerMinute number of calls allowed per minute, must be positive
+     * @param burst maximum number of calls that can be made at once after a pause, must be positive
+     */
+    public RateLimiter(int callsPerMinute, int burst) {
+        if (callsPerMinute < 1 || burst < 1) {
+            throw new IllegalArgumentException("callsPerMinute and burst must be positive, got " + callsPerMinute + " and " + burst);
+        }
+        this.tokensPerNano = callsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes a token if there is one right now
+     *
+     * @return true if the call is allowed
+     */
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    /**
+     * Takes a token, waiting for it up to specified time
+     *
+     * @param maxWaitNanos maximum time to wait in nanoseconds
+     * @return true if the call is allowed, false if no token gets available in time
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean acquire(long maxWaitNanos) throws InterruptedException {
+        long waitNanos = reserve(maxWaitNanos);
+        if (waitNanos < 0) {
+            return false;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+
+    /**
+     * Reserves the next token if it gets available within specified time. The caller must wait for the returned
+     * time before making the call
+     *
+     * @param maxWaitNanos maximum acceptable time to wait in nanoseconds
+     * @return time to wait in nanoseconds, 0 if a token is available right now, or -1 if nothing is reserved
+     * because the token doesn't get available in time
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    /**
+     * Returns true if a call can be made right now without taking the token
+     *
+     * @return true if there is an available token
+     */
+    public synchronized boolean hasAvailableToken() {
+        refill();
+        return tokens >= 1;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
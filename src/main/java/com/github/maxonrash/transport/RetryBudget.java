@@ -0,0 +1,43 @@
+package com.github.maxonrash.transport;
+
+/**
+ * Limits retries to a share of requests. Every request deposits <i>ratio</i> of a token and every retry withdraws
+ * a whole one, the balance is capped by <i>reserve</i>. Thread-safe
+ */
+class RetryBudget {
+    private final double ratio;
+    private final double reserve;
+    private double balance;
+
+    /**
+     * Constructs the budget with full reserve
+     *
+     * @param ratio share of requests that can be retried
+     * @param reserve maximum number of retries available at once
+     */
+    RetryBudget(double ratio, int reserve) {
+        this.ratio = ratio;
+        this.reserve = reserve;
+        this.balance = reserve;
+    }
+
+    /**
+     * Records a new request
+     */
+    synchronized void deposit() {
+        balance = Math.min(reserve, balance + ratio);
+    }
+
+    /**
+     * Takes a token for a retry if there is one
+     *
+     * @return true if the retry is allowed
+     */
+    synchronized boolean tryWithdraw() {
+        if (balance >= 1) {
+            balance -= 1;
+            return true;
+        }
+        return false;
+    }
+}
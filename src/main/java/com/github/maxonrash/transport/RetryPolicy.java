@@ -0,0 +1,103 @@
+package com.github.maxonrash.transport;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry and hedging parameters of {@link HttpTransport}. Requests failed with an I/O error or answered with
+ * 5xx status are repeated up to {@link #getMaxAttempts() maxAttempts} times with exponential backoff and full jitter.
+ * 429 status is returned at once, as the API key it was sent with is throttled and repeating the request with the same
+ * key only burns more of its quota; {@link ApiKeyPool} benches the key and the call is repeated with another one.
+ * <i>Retry-After</i> header of the response is respected: the request is not repeated earlier, and it is not repeated
+ * at all if the server asks to wait longer than {@link #getMaxBackoff() maxBackoff}. Retries and hedged requests
+ * together may not exceed {@link #getRetryBudgetRatio() retryBudgetRatio} of all requests, so retries never multiply
+ * the load on a struggling API. The default policy doesn't repeat requests
+ */
+@Getter
+@Builder
+@ToString
+public class RetryPolicy {
+    /**
+     * Maximum number of attempts of a request including the first one. 1 means requests are not repeated
+     */
+    @Builder.Default
+    private int maxAttempts = 1;
+    /**
+     * Upper bound of the delay before the first retry
+     */
+    @Builder.Default
+    private Duration initialBackoff = Duration.ofMillis(200);
+    /**
+     * Upper bound of the delay before any retry
+     */
+    @Builder.Default
+    private Duration maxBackoff = Duration.ofSeconds(5);
+    /**
+     * Factor the upper bound of the delay grows by with every retry
+     */
+    @Builder.Default
+    private double multiplier = 2.0;
+    /**
+     * Share of requests that can be repeated or hedged in the long run
+     */
+    @Builder.Default
+    private double retryBudgetRatio = 0.2;
+    /**
+     * Number of retries that can be made before any request has earned them, for example right after start
+     */
+    @Builder.Default
+    private int retryBudgetReserve = 10;
+    /**
+     * If true, a second attempt of a request is sent when the first one hasn't completed within
+     * {@link #getHedgePercentile() hedgePercentile} of recent latencies, and the response that comes first is used
+     */
+    @Builder.Default
+    private boolean hedging = false;
+    /**
+     * Percentile of recent latencies after which a hedged request is sent
+     */
+    @Builder.Default
+    private double hedgePercentile = 0.95;
+    /**
+     * Minimal delay before a hedged request is sent
+     */
+    @Builder.Default
+    private Duration minHedgeDelay = Duration.ofMillis(50);
+
+    /**
+     * Returns policy that neither repeats nor hedges requests
+     *
+     * @return {@link RetryPolicy} without retries
+     */
+    public static RetryPolicy none() {
+        return RetryPolicy.builder().build();
+    }
+
+    /**
+     * Returns delay before the retry following specified attempt: random value between zero and exponentially growing
+     * bound, but not less than the delay asked by the server
+     *
+     * @param attempt number of the failed attempt starting from 1
+     * @param retryAfterNanos delay asked by the server in nanoseconds, or 0 if there is no such hint
+     * @return delay in nanoseconds
+     */
+    long backoffNanos(int attempt, long retryAfterNanos) {
+        double bound = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() * Math.pow(multiplier, attempt - 1));
+        long jittered = (long) (ThreadLocalRandom.current().nextDouble() * bound);
+        return Math.max(jittered, retryAfterNanos);
+    }
+
+    /**
+     * Returns true if response with specified status is worth repeating
+     *
+     * @param statusCode HTTP status of the response
+     * @return true for 5xx statuses
+     */
+    static boolean isRetryableStatus(int statusCode) {
+        return statusCode >= 500;
+    }
+}
@@ -4,19 +4,30 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
 import com.github.maxonrash.dto.response.weather.current.*;
+import com.github.maxonrash.entity.Coordinates;
 import com.github.maxonrash.entity.CurrentWeatherEntity;
 import com.github.maxonrash.exception.CallPerMinuteExceededException;
 import com.github.maxonrash.exception.CityWithThisNameIsNotFoundException;
+import com.github.maxonrash.exception.IncorrectLatAndLonStringException;
 import com.github.maxonrash.exception.InternalErrorException;
 import com.github.maxonrash.exception.InvalidApiKeyException;
 import com.github.maxonrash.service.GetCurrentWeatherService;
 import com.github.maxonrash.service.GetCurrentWeatherServiceImpl;
 import com.github.maxonrash.service.GetGeocodingService;
 import com.github.maxonrash.service.GetGeocodingServiceImpl;
+import com.github.maxonrash.store.PollingConfig;
 import com.github.maxonrash.store.StoredCitiesData;
+import com.github.maxonrash.store.StoredCitiesRefresher;
+import com.github.maxonrash.store.StoredGeocodingData;
+import com.github.maxonrash.store.cache.EvictionPolicyType;
+import com.github.maxonrash.transport.RateLimitConfig;
+import com.github.maxonrash.transport.RateLimitMode;
 import org.junit.jupiter.api.*;
-import org.mockito.MockedStatic;
-import org.mockito.stubbing.Answer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -63,6 +74,8 @@ public class CurrentWeatherSDKTest {
     @AfterEach
     public void deleteInternalList() {
         CurrentWeatherSDK.deleteAllKeys();
+        StoredGeocodingData.clear();
+        StoredCitiesData.clear();
     }
 
     @Test
@@ -81,6 +94,54 @@ public class CurrentWeatherSDKTest {
         assertTrue((sdk1 != sdk2) && (sdk2 != sdk3) && (sdk1 != sdk3));
     }
 
+    @Test
+    public void whenCreateSameKeyFromManyThreads_thenOneObjectIsRegistered() throws Exception {
+        //given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CurrentWeatherSDK>> created = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 8; i++) {
+            created.add(executor.submit(() -> {
+                start.await();
+                return CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
+            }));
+        }
+        start.countDown();
+
+        //then
+        CurrentWeatherSDK first = created.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<CurrentWeatherSDK> sdk : created) {
+            assertSame(first, sdk.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void whenOneKeyFillsItsStorage_thenCitiesOfAnotherKeyAreKept() {
+        //given
+        CurrentWeatherSDK quiet = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
+        CurrentWeatherSDK noisy = CurrentWeatherSDK.create(apiKey + "abc", onDemandModeType, geocodingService, currentWeatherService);
+        noisy.configureWeatherStorage(2, EvictionPolicyType.LRU);
+        quiet.getWeatherStorage().addCurrentWeatherData(CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO));
+
+        //when
+        for (int i = 0; i < 5; i++) {
+            CurrentWeatherEntity entity = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO);
+            entity.setLat(10 + i);
+            noisy.getWeatherStorage().addCurrentWeatherData(entity);
+        }
+
+        //then
+        assertAll(
+                () -> assertEquals(2, noisy.getWeatherStorage().size()),
+                () -> assertEquals(3, noisy.getWeatherStorage().getStats().getEvictionCount()),
+                () -> assertTrue(quiet.getWeatherStorage().isStoredCityWeatherIsUpToDate(55.7522, 37.6156)),
+                () -> assertFalse(noisy.getWeatherStorage().isStoredCityWeatherIsUpToDate(55.7522, 37.6156))
+        );
+    }
+
     @Test
     public void whenObjectWithThisApiKeyAlreadyExists_thenReturnTrue() {
         CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
@@ -130,27 +191,107 @@ public class CurrentWeatherSDKTest {
     }
 
     @Test
-    public void ifModTypeIsSetToPolling_thenUpdateAllCitiesIsCalled() throws CityWithThisNameIsNotFoundException, CallPerMinuteExceededException, InternalErrorException, InvalidApiKeyException {
+    public void whenGetGeocodingForSameCityTwice_thenServiceIsCalledOnce() throws CityWithThisNameIsNotFoundException, CallPerMinuteExceededException, InternalErrorException, InvalidApiKeyException {
+        //given
+        GetGeocodingResponseDTO[] response = new GetGeocodingResponseDTO[]{geocodingResponseDTO};
+
+        //when
+        when(geocodingService.getGeocodingByCityName("Moscow", apiKey)).thenReturn(response);
+
+        CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
+        GetGeocodingResponseDTO first = sdk1.getGeocodingInfo("Moscow");
+        GetGeocodingResponseDTO second = sdk1.getGeocodingInfo("  moscow ");
+
+        //then
+        verify(geocodingService, times(1)).getGeocodingByCityName("Moscow", apiKey);
+        assertSame(first, second);
+    }
+
+    @Test
+    public void whenGetGeocodingForNotFoundCityTwice_thenServiceIsCalledOnce() throws CityWithThisNameIsNotFoundException, CallPerMinuteExceededException, InternalErrorException, InvalidApiKeyException {
+        //when
+        when(geocodingService.getGeocodingByCityName("Nowhere", apiKey)).thenThrow(new CityWithThisNameIsNotFoundException("Nowhere"));
+
+        CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
+
+        //then
+        assertThrows(CityWithThisNameIsNotFoundException.class, () -> sdk1.getGeocodingInfo("Nowhere"));
+        assertThrows(CityWithThisNameIsNotFoundException.class, () -> sdk1.getGeocodingInfo("NOWHERE"));
+        verify(geocodingService, times(1)).getGeocodingByCityName("Nowhere", apiKey);
+    }
+
+    @Test
+    public void whenClientSideLimitIsReachedInFailFastMode_thenServiceIsNotCalled() throws CityWithThisNameIsNotFoundException, CallPerMinuteExceededException, InternalErrorException, InvalidApiKeyException {
         //given
         GetGeocodingResponseDTO[] response = new GetGeocodingResponseDTO[]{geocodingResponseDTO};
 
+        //when
+        when(geocodingService.getGeocodingByCityName(anyString(), eq(apiKey))).thenReturn(response);
+
+        CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
+        sdk1.setRateLimitConfig(RateLimitConfig.builder().callsPerMinute(1).mode(RateLimitMode.FAIL_FAST).build());
+        sdk1.getGeocodingInfo("Moscow");
+
+        //then
+        assertThrows(CallPerMinuteExceededException.class, () -> sdk1.getGeocodingInfo("Paris"));
+        verify(geocodingService, never()).getGeocodingByCityName("Paris", apiKey);
+    }
+
+    @Test
+    public void whenApiKeyIsShort_thenInstanceIsConfiguredWithoutException() {
+        //given
+        CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create("short", onDemandModeType, geocodingService, currentWeatherService);
+
+        //then
+        assertDoesNotThrow(() -> {
+            sdk1.setRateLimitConfig(RateLimitConfig.builder().callsPerMinute(1).build());
+            sdk1.setStaleGraceWindow(Duration.ofMinutes(1));
+            sdk1.configureWeatherStorage(5, EvictionPolicyType.LRU);
+            sdk1.configureColumnarWeatherStorage(5);
+        });
+    }
+
+    @Test
+    public void ifModTypeIsSetToPolling_thenStoredCityIsReturnedWithoutUpdatingAllCities() throws CityWithThisNameIsNotFoundException, CallPerMinuteExceededException, InternalErrorException, InvalidApiKeyException {
+        //given
+        GetGeocodingResponseDTO[] response = new GetGeocodingResponseDTO[]{geocodingResponseDTO};
+        CurrentWeatherEntity entity = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO);
+
         //when
         when(geocodingService.getGeocodingByCityName("Moscow", apiKey)).thenReturn(response);
-        when(currentWeatherService.getCurrentWeatherByLatAndLonString("lat=55.7522&lon=37.6156", apiKey)).thenReturn(currentWeatherDTO);
 
         CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, Type.POLLING, geocodingService, currentWeatherService);
+        sdk1.getWeatherStorage().addCurrentWeatherData(entity);
 
         //then
-        try (MockedStatic<StoredCitiesData> storeMock = mockStatic(StoredCitiesData.class)) {
-            storeMock.when(() -> StoredCitiesData.updateAllCitiesInMemory(apiKey)).thenAnswer((Answer<Void>) invocation -> null);
+        try {
+            String json = sdk1.retrieveCurrentWeatherJSON("Moscow");
 
-            sdk1.retrieveCurrentWeatherJSON("Moscow");
-            storeMock.verify(() -> StoredCitiesData.updateAllCitiesInMemory(apiKey));
+            assertEquals(json, new ObjectMapper().writeValueAsString(entity));
+            verify(currentWeatherService, never()).getCurrentWeather(any(), anyString());
+            verify(currentWeatherService, never()).getCurrentWeatherByCityIds(any(), anyString());
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Test
+    public void ifStoredCityIsOutdated_thenRefresherUpdatesItWithInjectedService() throws CallPerMinuteExceededException, InternalErrorException, InvalidApiKeyException {
+        //given
+        CurrentWeatherEntity outdated = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO);
+        outdated.setDateTime(System.currentTimeMillis() / 1000 - StoredCitiesData.getTimeToLiveSeconds());
+        StoredCitiesData.addCurrentWeatherData(outdated);
+
+        //when
+        when(currentWeatherService.getCurrentWeather(Coordinates.of(55.7522, 37.6156), apiKey)).thenReturn(currentWeatherDTO);
+
+        new StoredCitiesRefresher(apiKey, currentWeatherService, PollingConfig.defaults()).refreshDueCities();
+
+        //then
+        verify(currentWeatherService).getCurrentWeather(Coordinates.of(55.7522, 37.6156), apiKey);
+        assertTrue(StoredCitiesData.isStoredCityWeatherIsUpToDate(55.7522, 37.6156));
+    }
+
     @Test
     public void whenRetrieveCurrentWeather_thenReturnProperJson() throws CityWithThisNameIsNotFoundException, CallPerMinuteExceededException, InternalErrorException, InvalidApiKeyException {
         //given
@@ -158,15 +299,12 @@ public class CurrentWeatherSDKTest {
 
         //when
         when(geocodingService.getGeocodingByCityName("Moscow", apiKey)).thenReturn(response);
-        when(currentWeatherService.getCurrentWeatherByLatAndLonString("lat=55.7522&lon=37.6156", apiKey)).thenReturn(currentWeatherDTO);
+        when(currentWeatherService.getCurrentWeather(Coordinates.of(55.7522, 37.6156), apiKey)).thenReturn(currentWeatherDTO);
 
         CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
 
         //then
-        try (MockedStatic<StoredCitiesData> storeMock = mockStatic(StoredCitiesData.class)) {
-            storeMock.when(()-> StoredCitiesData.isStoredCityWeatherIsUpToDate(response[0].getLat(), response[0].getLon()))
-                    .thenReturn(false);
-
+        try {
             String json = sdk1.retrieveCurrentWeatherJSON("Moscow");
 
             CurrentWeatherEntity entity = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO);
@@ -176,4 +314,146 @@ public class CurrentWeatherSDKTest {
             throw new RuntimeException(e);
         }
     }
+
+    @Test
+    public void whenRetrieveCurrentWeatherByCoordinates_thenGeocodingIsSkipped() throws Exception {
+        //given
+        CurrentWeatherEntity entity = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO);
+
+        //when
+        when(currentWeatherService.getCurrentWeather(Coordinates.of(55.7522, 37.6156), apiKey)).thenReturn(currentWeatherDTO);
+
+        CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
+        String json = sdk1.retrieveCurrentWeatherJSON(55.7522, 37.6156);
+        String storedJson = sdk1.retrieveCurrentWeatherJSONAsync(Coordinates.of(55.7522, 37.6156)).get(5, TimeUnit.SECONDS);
+
+        //then
+        assertEquals(new ObjectMapper().writeValueAsString(entity), json);
+        assertEquals(json, storedJson);
+        verify(currentWeatherService, times(1)).getCurrentWeather(any(), anyString());
+        verify(geocodingService, never()).getGeocodingByCityName(anyString(), anyString());
+        assertThrows(IncorrectLatAndLonStringException.class, () -> sdk1.retrieveCurrentWeatherJSON(95, 37.6156));
+    }
+
+    @Test
+    public void whenRetrieveCurrentWeatherAsync_thenReturnProperJson() throws Exception {
+        //given
+        GetGeocodingResponseDTO[] response = new GetGeocodingResponseDTO[]{geocodingResponseDTO};
+
+        //when
+        when(geocodingService.getGeocodingByCityNameAsync("Moscow", apiKey)).thenReturn(CompletableFuture.completedFuture(response));
+        when(currentWeatherService.getCurrentWeatherAsync(Coordinates.of(55.7522, 37.6156), apiKey)).thenReturn(CompletableFuture.completedFuture(currentWeatherDTO));
+
+        CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
+        String json = sdk1.retrieveCurrentWeatherJSONAsync("Moscow").get(5, TimeUnit.SECONDS);
+
+        //then
+        CurrentWeatherEntity entity = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO);
+        assertEquals(json, new ObjectMapper().writeValueAsString(entity));
+        verify(currentWeatherService, never()).getCurrentWeather(any(), anyString());
+    }
+
+    @Test
+    public void ifModeIsStaleWhileRevalidate_thenOutdatedCityIsReturnedAndUpdatedInBackground() throws Exception {
+        //given
+        GetGeocodingResponseDTO[] response = new GetGeocodingResponseDTO[]{geocodingResponseDTO};
+        CurrentWeatherEntity outdated = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO);
+        outdated.setDateTime(System.currentTimeMillis() / 1000 - StoredCitiesData.getTimeToLiveSeconds() - 60);
+        String outdatedJson = new ObjectMapper().writeValueAsString(outdated);
+
+        //when
+        when(geocodingService.getGeocodingByCityName("Moscow", apiKey)).thenReturn(response);
+        when(currentWeatherService.getCurrentWeatherAsync(Coordinates.of(55.7522, 37.6156), apiKey)).thenReturn(CompletableFuture.completedFuture(currentWeatherDTO));
+
+        CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, Type.STALE_WHILE_REVALIDATE, geocodingService, currentWeatherService);
+        sdk1.getWeatherStorage().addCurrentWeatherData(outdated);
+        String json = sdk1.retrieveCurrentWeatherJSON("Moscow");
+
+        //then
+        assertEquals(outdatedJson, json);
+        verify(currentWeatherService, timeout(5000)).getCurrentWeatherAsync(Coordinates.of(55.7522, 37.6156), apiKey);
+        verify(currentWeatherService, never()).getCurrentWeather(any(), anyString());
+        assertTrue(sdk1.getWeatherStorage().isStoredCityWeatherIsUpToDate(55.7522, 37.6156));
+    }
+
+    @Test
+    public void whenStoredCityIsOutdated_thenEachRequestIsCountedAsOneHitOrMiss() throws Exception {
+        //given
+        CurrentWeatherEntity outdated = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO);
+        outdated.setDateTime(System.currentTimeMillis() / 1000 - StoredCitiesData.getTimeToLiveSeconds() - 60);
+
+        //when
+        when(currentWeatherService.getCurrentWeather(Coordinates.of(55.7522, 37.6156), apiKey)).thenReturn(currentWeatherDTO);
+
+        CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
+        sdk1.getWeatherStorage().addCurrentWeatherData(outdated);
+        sdk1.retrieveCurrentWeatherJSON(55.7522, 37.6156);
+        sdk1.retrieveCurrentWeatherJSON(55.7522, 37.6156);
+
+        //then
+        verify(currentWeatherService, times(1)).getCurrentWeather(any(), anyString());
+        assertAll(
+                () -> assertEquals(1, sdk1.getWeatherStorage().getStats().getMissCount()),
+                () -> assertEquals(1, sdk1.getWeatherStorage().getStats().getHitCount())
+        );
+    }
+
+    @Test
+    public void whenStorageIsColumnar_thenStoredCityIsServedWithoutCallingApi() throws Exception {
+        //given
+        CurrentWeatherEntity entity = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO);
+
+        //when
+        when(currentWeatherService.getCurrentWeather(Coordinates.of(55.7522, 37.6156), apiKey)).thenReturn(currentWeatherDTO);
+
+        CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
+        sdk1.configureColumnarWeatherStorage(1000);
+        String json = sdk1.retrieveCurrentWeatherJSON(55.7522, 37.6156);
+        String storedJson = sdk1.retrieveCurrentWeatherJSON(55.7522, 37.6156);
+
+        //then
+        verify(currentWeatherService, times(1)).getCurrentWeather(any(), anyString());
+        assertAll(
+                () -> assertEquals(new ObjectMapper().writeValueAsString(entity), json),
+                () -> assertEquals(json, storedJson),
+                () -> assertEquals(1000, sdk1.getWeatherStorage().getCapacity()),
+                () -> assertEquals(1, sdk1.getWeatherStorage().getStats().getHitCount()),
+                () -> assertEquals(1, sdk1.getWeatherStorage().getStats().getMissCount())
+        );
+    }
+
+    @Test
+    public void whenRetrieveCurrentWeatherForSeveralCities_thenOnlyMissesAreRequestedAndFailuresAreKeptPerCity() throws Exception {
+        //given
+        CurrentWeatherEntity stored = CurrentWeatherResponseDTO.convertDTOtoEntity(currentWeatherDTO);
+        StoredGeocodingData.addGeocodingData("Moscow", geocodingResponseDTO);
+        GetGeocodingResponseDTO parisGeocoding = new GetGeocodingResponseDTO();
+        parisGeocoding.setLat(48.8534);
+        parisGeocoding.setLon(2.3488);
+        CurrentWeatherResponseDTO parisWeather = CurrentWeatherResponseDTO.builder().coord(new CoordDTO(2.3488, 48.8534))
+                .weather(currentWeatherDTO.getWeather()).main(currentWeatherDTO.getMain()).wind(currentWeatherDTO.getWind())
+                .clouds(currentWeatherDTO.getClouds()).sys(currentWeatherDTO.getSys())
+                .dt(System.currentTimeMillis()/1000).name("Paris").cod(200).build();
+
+        //when
+        when(geocodingService.getGeocodingByCityNameAsync("Paris", apiKey)).thenReturn(CompletableFuture.completedFuture(new GetGeocodingResponseDTO[]{parisGeocoding}));
+        when(geocodingService.getGeocodingByCityNameAsync("Nowhere", apiKey)).thenReturn(CompletableFuture.failedFuture(new CityWithThisNameIsNotFoundException("Nowhere")));
+        when(currentWeatherService.getCurrentWeatherAsync(Coordinates.of(48.8534, 2.3488), apiKey)).thenReturn(CompletableFuture.completedFuture(parisWeather));
+
+        CurrentWeatherSDK sdk1 = CurrentWeatherSDK.create(apiKey, onDemandModeType, geocodingService, currentWeatherService);
+        sdk1.getWeatherStorage().addCurrentWeatherData(stored);
+        BatchWeatherResult result = sdk1.retrieveCurrentWeather(List.of("Moscow", "Paris", " moscow", "Nowhere"));
+
+        //then
+        assertEquals(List.of("Moscow", "Paris"), List.copyOf(result.getResults().keySet()));
+        assertSame(stored, result.getResults().get("Moscow"));
+        assertInstanceOf(CityWithThisNameIsNotFoundException.class, result.getFailures().get("Nowhere"));
+        verify(currentWeatherService, never()).getCurrentWeatherAsync(Coordinates.of(55.7522, 37.6156), apiKey);
+        String ndjson = result.toJson(BatchOutputFormat.NDJSON);
+        assertEquals(3, ndjson.split("\n").length);
+        assertTrue(ndjson.startsWith("{\"city\":\"Moscow\",\"weather\":" + new ObjectMapper().writeValueAsString(stored) + "}\n"));
+        var array = new ObjectMapper().readTree(result.toJson(BatchOutputFormat.JSON_ARRAY));
+        assertEquals(3, array.size());
+        assertEquals("CityWithThisNameIsNotFoundException", array.get(2).get("error").asText());
+    }
 }
@@ -0,0 +1,35 @@
+package com.github.maxonrash;
+
+import com.github.maxonrash.dto.response.weather.current.*;
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+
+/**
+ * Weather responses and entities shared by tests. All of them describe the same broken clouds
+ * and differ only in the city name, its coordinates and the time of the data
+ */
+public final class WeatherFixtures {
+
+    private WeatherFixtures() {
+    }
+
+    public static CurrentWeatherResponseDTO dto(String name, double lat, double lon) {
+        return CurrentWeatherResponseDTO.builder().coord(new CoordDTO(lon, lat))
+                .weather(new WeatherDTO[]{new WeatherDTO(100, "Clouds", "broken clouds", "10d")})
+                .main(new MainDTO(284.2, 282.93, 283.06, 286.82, 1021, 60, 1021, 910))
+                .visibility(10000)
+                .wind(new WindDTO(4.09, 121, 3.47))
+                .dt(System.currentTimeMillis() / 1000)
+                .sys(new SysDTO(1, 6736, "RU", 1740199086, 1740235699))
+                .timezone(10800)
+                .id(524901)
+                .name(name)
+                .cod(200)
+                .build();
+    }
+
+    public static CurrentWeatherEntity entity(String name, double lat, double lon, long dateTime) {
+        CurrentWeatherEntity entity = CurrentWeatherResponseDTO.convertDTOtoEntity(dto(name, lat, lon));
+        entity.setDateTime(dateTime);
+        return entity;
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.maxonrash.entity;
+
+import com.github.maxonrash.service.GetCurrentWeatherService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Testing Coordinates class")
+public class CoordinatesTest {
+    private static final Pattern LAT_AND_LON_PATTERN = Pattern.compile("^lat=-?\\d{1,2}\\.\\d{2,8}&lon=-?\\d{1,3}\\.\\d{2,8}$");
+
+    @Test
+    public void whenCoordinatesAreCloseToZero_thenQueryIsInFixedPointNotation() {
+        //when
+        String query = Coordinates.of(0.0001, -0.00000001).toQuery();
+
+        //then
+        assertAll(
+                () -> assertEquals("lat=0.0001&lon=-0.00000001", query),
+                () -> assertTrue(LAT_AND_LON_PATTERN.matcher(query).matches())
+        );
+    }
+
+    @Test
+    public void whenCoordinatesHaveFewerThanTwoDecimals_thenQueryHasTwoDecimals() {
+        //when //then
+        assertAll(
+                () -> assertEquals("lat=55.00&lon=37.00", Coordinates.of(55.0, 37.0).toQuery()),
+                () -> assertEquals("lat=-90.00&lon=180.00", Coordinates.of(-90, 180).toQuery()),
+                () -> assertEquals("lat=55.7522&lon=37.6156", Coordinates.of(55.7522, 37.6156).toQuery()),
+                () -> assertTrue(LAT_AND_LON_PATTERN.matcher(Coordinates.of(-90, 180).toQuery()).matches())
+        );
+    }
+
+    @Test
+    public void whenServiceImplementsOnlyStringMethod_thenCoordinatesAreSentAsValidString() throws Exception {
+        //given
+        GetCurrentWeatherService service = mock(GetCurrentWeatherService.class);
+        when(service.getCurrentWeather(any(Coordinates.class), any())).thenCallRealMethod();
+
+        //when
+        service.getCurrentWeather(Coordinates.of(55.0, 37.0), "key");
+
+        //then
+        verify(service).getCurrentWeatherByLatAndLonString("lat=55.00&lon=37.00", "key");
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.maxonrash.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.maxonrash.CurrentWeatherSDK;
+import com.github.maxonrash.Type;
+import com.github.maxonrash.entity.Coordinates;
+import com.github.maxonrash.exception.InvalidApiKeyException;
+import com.github.maxonrash.service.GetCurrentWeatherServiceImpl;
+import com.github.maxonrash.store.StoredCitiesData;
+import com.github.maxonrash.store.StoredGeocodingData;
+import com.github.maxonrash.transport.HttpTransport;
+import com.github.maxonrash.transport.HttpTransportConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing StubServer class")
+public class StubServerTest {
+    private static final String API_KEY = "123abcdefghijk456lmnop7890qrstuvw";
+
+    @AfterEach
+    public void cleanUp() {
+        CurrentWeatherSDK.deleteAllKeys();
+        StoredCitiesData.clear();
+        StoredGeocodingData.clear();
+    }
+
+    @Test
+    public void whenSdkIsPointedToStubServer_thenWeatherIsRetrievedFromIt() throws Exception {
+        try (StubServer server = new StubServer(StubServerConfig.defaults())) {
+            //given
+            CurrentWeatherSDK sdk = CurrentWeatherSDK.create(API_KEY, Type.ON_DEMAND,
+                    HttpTransportConfig.builder().baseUrl(server.getBaseUrl()).build());
+
+            //when
+            JsonNode weather = new ObjectMapper().readTree(sdk.retrieveCurrentWeatherJSON("Springfield"));
+
+            //then
+            assertEquals("Stub", weather.get("name").asText());
+            assertEquals(2, server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void whenStubServerRejectsApiKey_thenServiceThrowsInvalidApiKeyException() throws Exception {
+        HttpTransport transport = new HttpTransport(HttpTransportConfig.defaults());
+        try (StubServer server = new StubServer(StubServerConfig.builder().invalidApiKeyRate(1).build())) {
+            //given
+            GetCurrentWeatherServiceImpl service = new GetCurrentWeatherServiceImpl(transport, server.getBaseUrl());
+
+            //then
+            assertThrows(InvalidApiKeyException.class, () -> service.getCurrentWeatherByLatAndLonString("lat=55.7522&lon=37.6156", API_KEY));
+            assertThrows(InvalidApiKeyException.class, () -> service.getCurrentWeather(Coordinates.of(55.7522, 37.6156), API_KEY));
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void whenLoadDriverRuns_thenReportHasThroughputAndPercentiles() throws Exception {
+        try (StubServer server = new StubServer(StubServerConfig.builder().latency(Duration.ofMillis(1)).build())) {
+            //given
+            CurrentWeatherSDK sdk = CurrentWeatherSDK.create(API_KEY, Type.ON_DEMAND,
+                    HttpTransportConfig.builder().baseUrl(server.getBaseUrl()).build());
+
+            //when
+            LoadReport report = LoadDriver.run(sdk, LoadDriver.cityNames(5), 2, Duration.ofMillis(300));
+
+            //then
+            assertAll(
+                    () -> assertTrue(report.getRequests() > 0),
+                    () -> assertEquals(0, report.getErrors(), () -> report.getErrorsByType().toString()),
+                    () -> assertTrue(report.getThroughputPerSecond() > 0),
+                    () -> assertTrue(report.getP50Micros() <= report.getP99Micros()),
+                    () -> assertTrue(report.getP99Micros() <= report.getMaxMicros())
+            );
+        }
+    }
+}
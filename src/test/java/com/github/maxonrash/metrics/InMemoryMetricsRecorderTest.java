@@ -0,0 +1,107 @@
+package com.github.maxonrash.metrics;
+
+import com.github.maxonrash.CurrentWeatherSDK;
+import com.github.maxonrash.Type;
+import com.github.maxonrash.service.GetCurrentWeatherService;
+import com.github.maxonrash.service.GetGeocodingService;
+import com.github.maxonrash.store.StoredCitiesData;
+import com.github.maxonrash.store.cache.EvictionPolicyType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.github.maxonrash.WeatherFixtures.entity;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("Testing InMemoryMetricsRecorder class")
+public class InMemoryMetricsRecorderTest {
+
+    @AfterEach
+    public void resetMetrics() {
+        CurrentWeatherSDK.deleteAllKeys();
+        Metrics.setRecorder(null);
+        StoredCitiesData.configure(StoredCitiesData.DEFAULT_CAPACITY, EvictionPolicyType.LRU);
+    }
+
+    @Test
+    public void whenStoredCitiesDataIsUsed_thenCacheMetricsAreRecorded() {
+        //given
+        InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+        Metrics.setRecorder(recorder);
+        StoredCitiesData.configure(1, EvictionPolicyType.LRU);
+        long now = System.currentTimeMillis() / 1000;
+
+        //when
+        StoredCitiesData.addCurrentWeatherData(entity("Moscow", 55.7522, 37.6156, now - 30));
+        StoredCitiesData.isStoredCityWeatherIsUpToDate(55.7522, 37.6156);
+        StoredCitiesData.isStoredCityWeatherIsUpToDate(48.8534, 2.3488);
+        StoredCitiesData.findCurrentWeatherData(55.7522, 37.6156);
+        StoredCitiesData.addCurrentWeatherData(entity("Paris", 48.8534, 2.3488, now - 90));
+
+        //then
+        assertAll(
+                () -> assertEquals(1, recorder.getCacheHits(StoredCitiesData.METRICS_NAME)),
+                () -> assertEquals(1, recorder.getCacheMisses(StoredCitiesData.METRICS_NAME)),
+                () -> assertEquals(1, recorder.getCacheEvictions(StoredCitiesData.METRICS_NAME)),
+                () -> assertEquals(0.5, recorder.getCacheHitRatio(StoredCitiesData.METRICS_NAME)),
+                () -> assertEquals(1L, recorder.getGauges().get("cache.weather.size")),
+                () -> assertTrue(recorder.getGauges().get("cache.weather.oldestEntryAgeSeconds") >= 90)
+        );
+    }
+
+    @Test
+    public void whenSeveralSdkInstancesStoreWeather_thenEachReportsUnderItsOwnName() {
+        //given
+        InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+        Metrics.setRecorder(recorder);
+        CurrentWeatherSDK first = CurrentWeatherSDK.create("123abcdefghijk456lmnop7890qrstuvw", Type.ON_DEMAND,
+                mock(GetGeocodingService.class), mock(GetCurrentWeatherService.class));
+        CurrentWeatherSDK second = CurrentWeatherSDK.create("987abcdefghijk456lmnop7890qrstuvw", Type.ON_DEMAND,
+                mock(GetGeocodingService.class), mock(GetCurrentWeatherService.class));
+        long now = System.currentTimeMillis() / 1000;
+
+        //when
+        first.getWeatherStorage().addCurrentWeatherData(entity("Moscow", 55.7522, 37.6156, now - 30));
+        first.getWeatherStorage().isStoredCityWeatherIsUpToDate(55.7522, 37.6156);
+        second.getWeatherStorage().isStoredCityWeatherIsUpToDate(55.7522, 37.6156);
+        CurrentWeatherSDK.delete("987abcdefghijk456lmnop7890qrstuvw");
+
+        //then
+        assertAll(
+                () -> assertNotEquals(first.getMetricsName(), second.getMetricsName()),
+                () -> assertTrue(first.getMetricsName().startsWith(StoredCitiesData.METRICS_NAME + ".")),
+                () -> assertEquals(1, recorder.getCacheHits(first.getMetricsName())),
+                () -> assertEquals(1, recorder.getCacheMisses(second.getMetricsName())),
+                () -> assertEquals(0, recorder.getCacheHits(StoredCitiesData.METRICS_NAME)),
+                () -> assertEquals(1L, recorder.getGauges().get("cache." + first.getMetricsName() + ".size")),
+                () -> assertFalse(recorder.getGauges().containsKey("cache." + second.getMetricsName() + ".size"))
+        );
+    }
+
+    @Test
+    public void whenApiCallsAreRecorded_thenLatencyAndErrorsAreAggregated() {
+        //given
+        InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+
+        //when
+        for (int i = 1; i <= 100; i++) {
+            recorder.recordApiCall("weather", TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        recorder.recordApiError("weather", IllegalStateException.class);
+        recorder.recordApiError("weather", IllegalStateException.class);
+
+        //then
+        LatencyHistogram latency = recorder.getApiLatency("weather");
+        assertAll(
+                () -> assertEquals(100, recorder.getApiCalls("weather")),
+                () -> assertEquals(2L, recorder.getApiErrors("weather").get("IllegalStateException")),
+                () -> assertEquals(TimeUnit.MILLISECONDS.toNanos(100), latency.getMaxNanos()),
+                () -> assertTrue(latency.percentileNanos(0.5) >= TimeUnit.MILLISECONDS.toNanos(50)),
+                () -> assertTrue(latency.percentileNanos(0.5) <= TimeUnit.MILLISECONDS.toNanos(100)),
+                () -> assertEquals(0, recorder.getApiCalls("geocoding"))
+        );
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.maxonrash.service;
+
+import com.github.maxonrash.CurrentWeatherSDK;
+import com.github.maxonrash.Type;
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.exception.CityWithThisNameIsNotFoundException;
+import com.github.maxonrash.store.Gazetteer;
+import com.github.maxonrash.store.StoredGeocodingData;
+import com.github.maxonrash.transport.RateLimitConfig;
+import com.github.maxonrash.transport.RateLimitMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Testing GazetteerGeocodingService class")
+public class GazetteerGeocodingServiceTest {
+    private static final String API_KEY = "123abcdefghijk456lmnop7890qrstuvw";
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    public void clear() {
+        CurrentWeatherSDK.deleteAllKeys();
+        StoredGeocodingData.clear();
+    }
+
+    @Test
+    public void whenGazetteerIsReadFromCsvAndMapped_thenCitiesAreFoundByNormalizedName() throws Exception {
+        //given
+        Path csv = directory.resolve("cities.csv");
+        Files.writeString(csv, String.join("\n",
+                "name,lat,lon,country,state",
+                "# comment",
+                "Moscow,55.7522,37.6156,RU,",
+                "\"Rostov-na-Donu\",47.2313,39.7233,RU,",
+                "Springfield,39.8017,-89.6437,US,Illinois",
+                "Springfield,37.2153,-93.2982,US,\"Missouri, Greene County\""));
+        Path binary = directory.resolve("cities.bin");
+        GetGeocodingService fallback = mock(GetGeocodingService.class);
+        GetGeocodingResponseDTO paris = new GetGeocodingResponseDTO("Paris", null, 48.8534, 2.3488, "FR", null);
+        when(fallback.getGeocodingByCityName("Paris", API_KEY)).thenReturn(new GetGeocodingResponseDTO[]{paris});
+        when(fallback.getGeocodingByCityNameAsync(anyString(), anyString())).thenCallRealMethod();
+
+        //when
+        Gazetteer.load(csv).writeBinary(binary);
+        Gazetteer mapped = Gazetteer.load(binary);
+        GazetteerGeocodingService service = new GazetteerGeocodingService(mapped, fallback);
+        GetGeocodingResponseDTO[] springfields = service.getGeocodingByCityName("  SPRINGFIELD ", API_KEY);
+
+        //then
+        assertAll(
+                () -> assertEquals(4, mapped.size()),
+                () -> assertEquals(2, springfields.length),
+                () -> assertEquals("Illinois", springfields[0].getState()),
+                () -> assertEquals("Missouri, Greene County", springfields[1].getState()),
+                () -> assertEquals(47.2313, service.getGeocodingByCityName("rostov-na-donu", API_KEY)[0].getLat()),
+                () -> assertNull(service.getGeocodingByCityName("Moscow", API_KEY)[0].getState()),
+                () -> assertSame(paris, service.getGeocodingByCityNameAsync("Paris", API_KEY).join()[0]),
+                () -> assertThrows(CityWithThisNameIsNotFoundException.class,
+                        () -> new GazetteerGeocodingService(mapped).getGeocodingByCityName("Paris", API_KEY))
+        );
+        verify(fallback, times(1)).getGeocodingByCityNameAsync(anyString(), anyString());
+        verify(fallback, never()).getGeocodingByCityName(eq("Springfield"), anyString());
+    }
+
+    @Test
+    public void whenCityIsInGazetteer_thenSdkDoesNotUseUpCallsPerMinute() throws Exception {
+        //given
+        Gazetteer gazetteer = Gazetteer.of(List.of(new GetGeocodingResponseDTO("Rostov-na-Donu", null, 47.2313, 39.7233, "RU", null)));
+        GetGeocodingService fallback = mock(GetGeocodingService.class);
+        CurrentWeatherSDK sdk = CurrentWeatherSDK.create(API_KEY, Type.ON_DEMAND, new GazetteerGeocodingService(gazetteer, fallback),
+                mock(GetCurrentWeatherService.class));
+        sdk.setRateLimitConfig(RateLimitConfig.builder().callsPerMinute(1).mode(RateLimitMode.FAIL_FAST).build());
+
+        //when
+        GetGeocodingResponseDTO first = sdk.getGeocodingInfo("Rostov_na_Donu");
+        GetGeocodingResponseDTO second = sdk.getGeocodingInfoAsync("ROSTOV_NA_DONU").join();
+
+        //then
+        assertEquals(47.2313, first.getLat());
+        assertEquals(39.7233, second.getLon());
+        assertNull(StoredGeocodingData.getGeocodingData("Rostov_na_Donu"));
+        verifyNoInteractions(fallback);
+    }
+}
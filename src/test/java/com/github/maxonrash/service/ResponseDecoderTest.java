@@ -0,0 +1,95 @@
+package com.github.maxonrash.service;
+
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.dto.response.weather.current.GroupCurrentWeatherResponseDTO;
+import com.github.maxonrash.exception.CallPerMinuteExceededException;
+import com.github.maxonrash.exception.InternalErrorException;
+import com.github.maxonrash.exception.InvalidApiKeyException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing ResponseDecoder class")
+class ResponseDecoderTest {
+    private static final String WEATHER_BODY = "{\"coord\":{\"lon\":37.6156,\"lat\":55.7522},"
+            + "\"weather\":[{\"id\":803,\"main\":\"Clouds\",\"description\":\"broken clouds\",\"icon\":\"04d\"}],"
+            + "\"base\":\"stations\",\"main\":{\"temp\":284.2,\"feels_like\":282.93,\"temp_min\":283.06,\"temp_max\":286.82,"
+            + "\"pressure\":1021,\"humidity\":60,\"sea_level\":1021,\"grnd_level\":910},\"visibility\":10000,"
+            + "\"wind\":{\"speed\":4.09,\"deg\":121,\"gust\":3.47},\"clouds\":{\"all\":83},\"dt\":1740217410,"
+            + "\"sys\":{\"type\":1,\"id\":6736,\"country\":\"RU\",\"sunrise\":1740199086,\"sunset\":1740235699},"
+            + "\"timezone\":10800,\"id\":524901,\"name\":\"Moscow\",\"cod\":200}";
+
+    private static byte[] bytes(String body) {
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void whenDecodeSuccessfulWeatherResponse_thenDtoIsBound() throws Exception {
+        //when
+        CurrentWeatherResponseDTO dto = ResponseDecoder.decodeCurrentWeather(new ByteArrayInputStream(bytes(WEATHER_BODY)));
+        //then
+        assertAll(
+                () -> assertEquals("Moscow", dto.getName()),
+                () -> assertEquals(55.7522, dto.getCoord().getLat()),
+                () -> assertEquals(282.93, dto.getMain().getFeelsLike()),
+                () -> assertEquals(200, dto.getCod())
+        );
+    }
+
+    @Test
+    void whenDecodeGroupResponse_thenEveryCityIsBound() throws Exception {
+        //given
+        String city = WEATHER_BODY.replace("\"country\":\"RU\",", "\"country\":\"RU\",\"timezone\":10800,");
+        byte[] body = bytes("{\"cnt\":2,\"list\":[" + city + "," + city.replace("524901", "2988507") + "]}");
+        //when
+        GroupCurrentWeatherResponseDTO dto = ResponseDecoder.decodeGroup(body);
+        //then
+        assertAll(
+                () -> assertEquals(2, dto.getCnt()),
+                () -> assertEquals(524901, dto.getList()[0].getId()),
+                () -> assertEquals(2988507, dto.getList()[1].getId()),
+                () -> assertThrows(InvalidApiKeyException.class, () -> ResponseDecoder.decodeGroup(bytes("{\"cod\":401,\"message\":\"Invalid API key\"}")))
+        );
+    }
+
+    @Test
+    void whenDecodeErrorEnvelope_thenMatchingExceptionIsThrown() {
+        //given
+        byte[] invalidKey = bytes("{\"cod\":401,\"message\":\"Invalid API key\"}");
+        byte[] serverError = bytes("{\"cod\":\"500\",\"message\":\"Internal error\"}");
+        //then
+        assertThrows(InvalidApiKeyException.class, () -> ResponseDecoder.decodeCurrentWeather(invalidKey));
+        InternalErrorException e = assertThrows(InternalErrorException.class, () -> ResponseDecoder.decodeGeocoding(serverError));
+        assertEquals("Internal error", e.getMessage());
+    }
+
+    @Test
+    void whenErrorEnvelopeHasCodLast_thenMatchingExceptionIsThrown() {
+        //given
+        byte[] invalidKey = bytes("{\"message\":\"Invalid API key\",\"cod\":401}");
+        byte[] tooManyCalls = bytes("{\"message\":\"Too many calls\",\"cod\":\"429\"}");
+        byte[] serverError = bytes("{\"message\":\"Internal error\",\"cod\":500}");
+        //then
+        assertThrows(InvalidApiKeyException.class, () -> ResponseDecoder.decodeCurrentWeather(new ByteArrayInputStream(invalidKey)));
+        assertThrows(CallPerMinuteExceededException.class, () -> ResponseDecoder.decodeCurrentWeather(tooManyCalls));
+        assertThrows(InternalErrorException.class, () -> ResponseDecoder.decodeCurrentWeather(serverError));
+        assertThrows(InvalidApiKeyException.class, () -> ResponseDecoder.decodeGroup(invalidKey));
+    }
+
+    @Test
+    void whenDecodeGeocodingArray_thenAllCitiesAreBound() throws Exception {
+        //given
+        byte[] body = bytes("[{\"name\":\"Moscow\",\"local_names\":{\"en\":\"Moscow\"},\"lat\":55.7504461,\"lon\":37.6174943,\"country\":\"RU\",\"state\":\"Moscow\"}]");
+        //when
+        GetGeocodingResponseDTO[] found = ResponseDecoder.decodeGeocoding(body);
+        //then
+        assertEquals(1, found.length);
+        assertEquals("Moscow", found[0].getLocalNames().get("en"));
+        assertEquals(0, ResponseDecoder.decodeGeocoding(bytes("[]")).length);
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.github.maxonrash.WeatherFixtures.entity;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing CacheSnapshot class")
+public class CacheSnapshotTest {
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    public void clearStorage() {
+        StoredCitiesData.clear();
+        StoredGeocodingData.clear();
+    }
+
+    @Test
+    public void whenSnapshotIsRestored_thenStoredCitiesAreServedWithTheirTimeToLive() throws Exception {
+        //given
+        long now = System.currentTimeMillis() / 1000;
+        CurrentWeatherEntity moscow = entity("Moscow", 55.7522, 37.6156, now);
+        StoredCitiesData.addCurrentWeatherData(moscow);
+        StoredCitiesData.addCurrentWeatherData(entity("Paris", 48.8534, 2.3488, now - Duration.ofHours(2).toSeconds()));
+        GetGeocodingResponseDTO geocoding = new GetGeocodingResponseDTO("Moscow", Map.of("ru", "Москва"), 55.7522, 37.6156, "RU", null);
+        StoredGeocodingData.addGeocodingData("Moscow", geocoding);
+        StoredGeocodingData.addNotFoundCityName("Nowhere");
+        String moscowJson = StoredCitiesData.findStoredWeather(55.7522, 37.6156).getJsonString();
+        Path file = directory.resolve("cache.snapshot");
+
+        //when
+        int written = CacheSnapshot.write(file);
+        clearStorage();
+        int restored = CacheSnapshot.restore(file, Duration.ofHours(1));
+
+        //then
+        assertAll(
+                () -> assertEquals(4, written),
+                () -> assertEquals(3, restored),
+                () -> assertTrue(StoredCitiesData.isStoredCityWeatherIsUpToDate(55.7522, 37.6156)),
+                () -> assertEquals(moscowJson, StoredCitiesData.findStoredWeather(55.7522, 37.6156).getJsonString()),
+                () -> assertEquals(524901, StoredCitiesData.findCurrentWeatherData(55.7522, 37.6156).getId()),
+                () -> assertNull(StoredCitiesData.findCurrentWeatherData(48.8534, 2.3488)),
+                () -> assertEquals("Москва", StoredGeocodingData.getGeocodingData(" moscow").getGeocodingResponseDTO().getLocalNames().get("ru")),
+                () -> assertTrue(StoredGeocodingData.getGeocodingData("Nowhere").isNotFound())
+        );
+    }
+
+    @Test
+    public void whenFileIsNotSnapshot_thenRestoreThrowsIOException() throws Exception {
+        //given
+        Path file = Files.writeString(directory.resolve("cache.snapshot"), "not a snapshot at all");
+
+        //then
+        assertThrows(IOException.class, () -> CacheSnapshot.restore(file, Duration.ofHours(1)));
+        assertEquals(0, CacheSnapshot.restore(directory.resolve("missing.snapshot"), Duration.ofHours(1)));
+    }
+
+    @Test
+    public void whenSnapshotIsWrittenConcurrently_thenFileIsRestoredAndNoTemporaryFileIsLeft() throws Exception {
+        //given
+        long now = System.currentTimeMillis() / 1000;
+        for (int i = 0; i < 10; i++) {
+            StoredCitiesData.addCurrentWeatherData(entity("City" + i, 10 + i, 20, now));
+        }
+        Path file = directory.resolve("cache.snapshot");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        //when
+        List<Future<Integer>> writes = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            writes.add(executor.submit(() -> CacheSnapshot.write(file)));
+        }
+        for (Future<Integer> write : writes) {
+            write.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        clearStorage();
+
+        //then
+        assertAll(
+                () -> assertEquals(10, CacheSnapshot.restore(file, Duration.ofHours(1))),
+                () -> {
+                    try (Stream<Path> files = Files.list(directory)) {
+                        assertEquals(List.of(file), files.toList());
+                    }
+                }
+        );
+    }
+}
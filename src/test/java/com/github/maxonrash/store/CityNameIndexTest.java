@@ -0,0 +1,77 @@
+package com.github.maxonrash.store;
+
+import com.github.maxonrash.dto.response.geocoding.GetGeocodingResponseDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing CityNameIndex class")
+public class CityNameIndexTest {
+
+    @AfterEach
+    public void clear() {
+        StoredGeocodingData.clear();
+    }
+
+    @Test
+    public void whenCitiesAreGeocoded_thenPrefixSearchReturnsMostPopularFirst() {
+        //given
+        CityNameIndex index = StoredGeocodingData.getCityNameIndex();
+        GetGeocodingResponseDTO moscow = city("Moscow", 55.7522, 37.6156, Map.of("en", "Moscow", "ru", "Москва", "de", "Moskau"));
+        GetGeocodingResponseDTO mossoro = city("Mossoró", -5.1878, -37.3442, null);
+
+        //when
+        StoredGeocodingData.addGeocodingData("Mossoro", mossoro);
+        StoredGeocodingData.addGeocodingData("Moscow", moscow);
+        StoredGeocodingData.addGeocodingData("Moskau", moscow);
+        index.add(city("Montreal", 45.5088, -73.5878, null));
+        List<CitySuggestion> mos = index.searchPrefix("MOS", 10);
+
+        //then
+        assertAll(
+                () -> assertEquals(3, index.size()),
+                () -> assertEquals(5, index.getNameCount()),
+                () -> assertEquals(List.of("Moscow", "Mossoró"), mos.stream().map(CitySuggestion::getName).toList()),
+                () -> assertEquals(2, mos.get(0).getPopularity()),
+                () -> assertEquals("Москва", index.searchPrefix("моск", 5).get(0).getMatchedName()),
+                () -> assertEquals(3, index.searchPrefix("mo", 10).size()),
+                () -> assertEquals(1, index.searchPrefix("", 1).size()),
+                () -> assertTrue(index.searchPrefix("mosx", 10).isEmpty())
+        );
+    }
+
+    @Test
+    public void whenNameIsMisspelled_thenFuzzySearchReturnsClosestCities() {
+        //given
+        CityNameIndex index = new CityNameIndex();
+        index.add(city("Rostov-na-Donu", 47.2313, 39.7233, null));
+        index.add(city("Rostov", 57.1914, 39.4139, null));
+        index.add(city("Boston", 42.3584, -71.0598, null));
+        index.addIfAbsent(city("Boston", 42.3584, -71.0598, null));
+        index.addIfAbsent(city("Boston", 42.3584, -71.0598, null));
+
+        //when
+        List<CitySuggestion> rostov = index.searchFuzzy("rostof", 1, 10);
+        List<CitySuggestion> donu = index.searchFuzzy("Rostov_na_Donu", 0, 10);
+
+        //then
+        assertAll(
+                () -> assertEquals(1, rostov.size()),
+                () -> assertEquals("Rostov", rostov.get(0).getName()),
+                () -> assertEquals(1, rostov.get(0).getDistance()),
+                () -> assertEquals(List.of("Rostov", "Boston"), index.searchFuzzy("Rostox", 2, 10).stream().map(CitySuggestion::getName).toList()),
+                () -> assertEquals(47.2313, donu.get(0).getCoordinates().getLat()),
+                () -> assertEquals(2, index.searchPrefix("bos", 1).get(0).getPopularity()),
+                () -> assertTrue(index.searchFuzzy("Paris", 1, 10).isEmpty())
+        );
+    }
+
+    private static GetGeocodingResponseDTO city(String name, double lat, double lon, Map<String, String> localNames) {
+        return new GetGeocodingResponseDTO(name, localNames, lat, lon, null, null);
+    }
+}
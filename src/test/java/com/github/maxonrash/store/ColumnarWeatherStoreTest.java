@@ -0,0 +1,102 @@
+package com.github.maxonrash.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static com.github.maxonrash.WeatherFixtures.entity;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing ColumnarWeatherStore class")
+public class ColumnarWeatherStoreTest {
+
+    @Test
+    public void whenCityIsStored_thenItsViewIsEqualToStoredEntity() throws Exception {
+        //given
+        ColumnarWeatherStore store = new ColumnarWeatherStore(10);
+        long now = System.currentTimeMillis() / 1000;
+        CurrentWeatherEntity moscow = entity("Moscow", 55.7522, 37.6156, now);
+        ObjectMapper mapper = new ObjectMapper();
+
+        //when
+        store.put(moscow);
+        CurrentWeatherEntity view = store.get(55.7504461, 37.6174943);
+
+        //then
+        assertAll(
+                () -> assertNotSame(moscow, view),
+                () -> assertEquals(mapper.writeValueAsString(moscow), mapper.writeValueAsString(view)),
+                () -> assertEquals(55.7522, view.getLat()),
+                () -> assertEquals(524901, view.getId()),
+                () -> assertEquals(moscow.getDateTime(), store.getDateTime(55.7522, 37.6156)),
+                () -> assertTrue(store.isUpToDate(55.7522, 37.6156)),
+                () -> assertNull(store.get(55.7723, 37.6156))
+        );
+    }
+
+    @Test
+    public void whenStoreIsFull_thenEarliestCityIsReplacedAndStringsAreShared() {
+        //given
+        ColumnarWeatherStore store = new ColumnarWeatherStore(2);
+        long now = System.currentTimeMillis() / 1000;
+
+        //when
+        store.put(entity("Moscow", 55.7522, 37.6156, now));
+        store.put(entity("Paris", 48.8534, 2.3488, now));
+        store.put(entity("Moscow", 55.7530, 37.6160, now));
+        store.put(entity("London", 51.5085, -0.1257, now));
+
+        //then
+        assertAll(
+                () -> assertEquals(2, store.size()),
+                () -> assertEquals(1, store.getEvictionCount()),
+                () -> assertNull(store.get(55.7522, 37.6156)),
+                () -> assertEquals("Paris", store.get(48.8534, 2.3488).getName()),
+                () -> assertEquals("London", store.get(51.5085, -0.1257).getName()),
+                // "Clouds", "broken clouds" and three city names
+                () -> assertEquals(5, store.getDictionarySize())
+        );
+    }
+
+    @Test
+    public void whenCityIsRemovedAndStoreIsFull_thenCityStoredEarliestIsReplaced() {
+        //given
+        ColumnarWeatherStore store = new ColumnarWeatherStore(2);
+        long now = System.currentTimeMillis() / 1000;
+
+        //when
+        store.put(entity("Moscow", 55.7522, 37.6156, now));
+        store.put(entity("Paris", 48.8534, 2.3488, now));
+        store.remove(55.7522, 37.6156);
+        store.put(entity("London", 51.5085, -0.1257, now));
+        store.put(entity("Berlin", 52.5244, 13.4105, now));
+
+        //then
+        assertAll(
+                () -> assertEquals(2, store.size()),
+                () -> assertEquals(1, store.getEvictionCount()),
+                () -> assertNull(store.get(48.8534, 2.3488)),
+                () -> assertEquals("London", store.get(51.5085, -0.1257).getName()),
+                () -> assertEquals("Berlin", store.get(52.5244, 13.4105).getName())
+        );
+    }
+
+    @Test
+    public void whenLocationIsLookedUp_thenKeyOfCityWithinCellSizeIsReturned() {
+        //given
+        ColumnarWeatherStore store = new ColumnarWeatherStore(10);
+        long now = System.currentTimeMillis() / 1000;
+        store.put(entity("Moscow", 55.7522, 37.6156, now));
+
+        //when
+        Long key = store.findKey(55.7504461, 37.6174943);
+
+        //then
+        assertAll(
+                () -> assertEquals(CoordinateGrid.keyOf(55.7522, 37.6156), key),
+                () -> assertEquals("Moscow", store.get(key).getName()),
+                () -> assertNull(store.findKey(55.7723, 37.6156))
+        );
+    }
+}
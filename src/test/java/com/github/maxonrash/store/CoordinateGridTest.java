@@ -0,0 +1,89 @@
+package com.github.maxonrash.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing CoordinateGrid class")
+public class CoordinateGridTest {
+
+    @Test
+    public void whenLocationsAreOnBothSidesOfCellBoundary_thenNeighbourhoodFindsEachOther() {
+        //given
+        double lat1 = 55.754, lon1 = 37.614;
+        double lat2 = 55.756, lon2 = 37.616;
+
+        //when
+        long key1 = CoordinateGrid.keyOf(lat1, lon1);
+        long key2 = CoordinateGrid.keyOf(lat2, lon2);
+
+        //then
+        assertAll(
+                () -> assertNotEquals(key1, key2),
+                () -> assertTrue(CoordinateGrid.isSameLocation(lat1, lon1, lat2, lon2)),
+                () -> assertTrue(contains(CoordinateGrid.neighbourhoodOf(lat1, lon1), key2)),
+                () -> assertTrue(contains(CoordinateGrid.neighbourhoodOf(lat2, lon2), key1)),
+                () -> assertEquals(key1, CoordinateGrid.neighbourhoodOf(lat1, lon1)[0])
+        );
+    }
+
+    @Test
+    public void whenLocationsAreFartherThanCellSize_thenTheyAreNotSameLocation() {
+        //when //then
+        assertAll(
+                () -> assertFalse(CoordinateGrid.isSameLocation(55.75, 37.61, 55.75 + 2 * CoordinateGrid.CELL_SIZE, 37.61)),
+                () -> assertFalse(CoordinateGrid.isSameLocation(55.75, 37.61, 55.75, 37.61 - 2 * CoordinateGrid.CELL_SIZE)),
+                () -> assertFalse(contains(CoordinateGrid.neighbourhoodOf(55.75, 37.61), CoordinateGrid.keyOf(55.77, 37.61)))
+        );
+    }
+
+    @Test
+    public void whenCoordinatesAreNegative_thenCellsAroundZeroAreDistinctAndAdjacent() {
+        //given
+        double lat = -0.004, lon = -0.004;
+
+        //when
+        long origin = CoordinateGrid.keyOf(lat, lon);
+        long southWest = CoordinateGrid.keyOf(-0.006, -0.006);
+        long[] neighbourhood = CoordinateGrid.neighbourhoodOf(lat, lon);
+
+        //then
+        assertAll(
+                () -> assertEquals(CoordinateGrid.keyOf(0.0, 0.0), origin),
+                () -> assertNotEquals(origin, southWest),
+                () -> assertTrue(CoordinateGrid.isSameLocation(lat, lon, -0.006, -0.006)),
+                () -> assertTrue(contains(neighbourhood, southWest)),
+                () -> assertNotEquals(CoordinateGrid.keyOf(0.0, -0.01), CoordinateGrid.keyOf(-0.01, 0.0)),
+                () -> assertNotEquals(CoordinateGrid.keyOf(-33.87, 151.21), CoordinateGrid.keyOf(33.87, 151.21)),
+                () -> assertNotEquals(CoordinateGrid.keyOf(-33.87, -151.21), CoordinateGrid.keyOf(-33.87, 151.21))
+        );
+    }
+
+    @Test
+    public void whenLocationIsAtPoleOrAntimeridian_thenKeysDoNotCollide() {
+        //given
+        double[][] edges = {{90, 180}, {90, -180}, {-90, 180}, {-90, -180}};
+
+        //when
+        long[] keys = Arrays.stream(edges).mapToLong(edge -> CoordinateGrid.keyOf(edge[0], edge[1])).toArray();
+
+        //then
+        assertEquals(edges.length, Arrays.stream(keys).distinct().count());
+        for (double[] edge : edges) {
+            long[] neighbourhood = CoordinateGrid.neighbourhoodOf(edge[0], edge[1]);
+            assertAll(
+                    () -> assertEquals(9, Arrays.stream(neighbourhood).distinct().count()),
+                    () -> assertEquals(CoordinateGrid.keyOf(edge[0], edge[1]), neighbourhood[0]),
+                    () -> assertTrue(CoordinateGrid.isSameLocation(edge[0], edge[1],
+                            edge[0] - Math.signum(edge[0]) * 0.005, edge[1] - Math.signum(edge[1]) * 0.005))
+            );
+        }
+    }
+
+    private static boolean contains(long[] keys, long key) {
+        return Arrays.stream(keys).anyMatch(k -> k == key);
+    }
+}
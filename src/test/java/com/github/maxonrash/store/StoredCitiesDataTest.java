@@ -0,0 +1,120 @@
+package com.github.maxonrash.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.entity.Coordinates;
+import com.github.maxonrash.entity.CurrentWeatherEntity;
+import com.github.maxonrash.exception.InternalErrorException;
+import com.github.maxonrash.service.GetCurrentWeatherService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.github.maxonrash.WeatherFixtures.dto;
+import static com.github.maxonrash.WeatherFixtures.entity;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Testing StoredCitiesData class")
+public class StoredCitiesDataTest {
+    private static final String API_KEY = "123abcdefghijk456lmnop7890qrstuvw";
+
+    @AfterEach
+    public void clearStorage() {
+        StoredCitiesData.clear();
+    }
+
+    @Test
+    public void whenCityIsLookedUpNearStoredLocation_thenItIsFound() {
+        //given
+        StoredCitiesData.addCurrentWeatherData(entity("Moscow", 55.7522, 37.6156, System.currentTimeMillis() / 1000));
+
+        //then
+        assertAll(
+                () -> assertTrue(StoredCitiesData.isStoredCityWeatherIsUpToDate(55.7504461, 37.6174943)),
+                () -> assertTrue(StoredCitiesData.isStoredCityWeatherIsUpToDate(55.7622, 37.6056)),
+                () -> assertFalse(StoredCitiesData.isStoredCityWeatherIsUpToDate(55.7723, 37.6156))
+        );
+    }
+
+    @Test
+    public void whenOneCityFailsInParallelRefresh_thenOthersAreRefreshed() throws Exception {
+        //given
+        long outdatedTime = System.currentTimeMillis() / 1000 - StoredCitiesData.getTimeToLiveSeconds() - 1;
+        StoredCitiesData.addCurrentWeatherData(entity("Moscow", 55.7522, 37.6156, outdatedTime));
+        StoredCitiesData.addCurrentWeatherData(entity("Paris", 48.8534, 2.3488, outdatedTime));
+        GetCurrentWeatherService service = mock(GetCurrentWeatherService.class);
+
+        //when
+        when(service.getCurrentWeather(Coordinates.of(55.7522, 37.6156), API_KEY)).thenReturn(dto("Moscow", 55.7522, 37.6156));
+        when(service.getCurrentWeather(Coordinates.of(48.8534, 2.3488), API_KEY)).thenThrow(new InternalErrorException("Internal error"));
+
+        RefreshResult result = StoredCitiesData.updateAllCitiesInMemoryInParallel(API_KEY, service, 4);
+
+        //then
+        assertAll(
+                () -> assertEquals(1, result.getRefreshedCount()),
+                () -> assertInstanceOf(InternalErrorException.class, result.getFailures().get("lat=48.8534&lon=2.3488")),
+                () -> assertTrue(StoredCitiesData.isStoredCityWeatherIsUpToDate(55.7522, 37.6156)),
+                () -> assertFalse(StoredCitiesData.isStoredCityWeatherIsUpToDate(48.8534, 2.3488))
+        );
+    }
+
+    @Test
+    public void whenCityIsAdded_thenItsJsonIsStoredWithIt() throws Exception {
+        //given
+        CurrentWeatherEntity moscow = entity("Moscow", 55.7522, 37.6156, System.currentTimeMillis() / 1000);
+        StoredCitiesData.addCurrentWeatherData(moscow);
+        byte[] expected = new ObjectMapper().writeValueAsBytes(moscow);
+
+        //when
+        StoredCitiesData.StoredWeather stored = StoredCitiesData.findStoredWeather(55.7522, 37.6156);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stored.writeJsonTo(out);
+        ByteBuffer buffer = stored.getJsonBuffer();
+
+        //then
+        assertAll(
+                () -> assertSame(moscow, stored.getCurrentWeatherEntity()),
+                () -> assertArrayEquals(expected, out.toByteArray()),
+                () -> assertTrue(buffer.isReadOnly()),
+                () -> assertEquals(expected.length, buffer.remaining()),
+                () -> assertEquals(new String(expected, StandardCharsets.UTF_8), stored.getJsonString())
+        );
+    }
+
+    @Test
+    public void whenOutdatedCitiesHaveIds_thenTheyAreRefreshedWithOneGroupRequest() throws Exception {
+        //given
+        long outdatedTime = System.currentTimeMillis() / 1000 - StoredCitiesData.getTimeToLiveSeconds() - 1;
+        CurrentWeatherResponseDTO moscow = dto("Moscow", 55.7522, 37.6156);
+        moscow.setId(524901);
+        CurrentWeatherResponseDTO paris = dto("Paris", 48.8534, 2.3488);
+        paris.setId(2988507);
+        for (CurrentWeatherResponseDTO city : new CurrentWeatherResponseDTO[]{moscow, paris}) {
+            CurrentWeatherEntity outdated = CurrentWeatherResponseDTO.convertDTOtoEntity(city);
+            outdated.setDateTime(outdatedTime);
+            StoredCitiesData.addCurrentWeatherData(outdated);
+        }
+        GetCurrentWeatherService service = mock(GetCurrentWeatherService.class);
+
+        //when
+        when(service.isGroupRequestSupported()).thenReturn(true);
+        when(service.getCurrentWeatherByCityIds(any(long[].class), eq(API_KEY))).thenReturn(new CurrentWeatherResponseDTO[]{moscow, paris});
+
+        StoredCitiesData.updateAllCitiesInMemory(API_KEY, service);
+
+        //then
+        verify(service, times(1)).getCurrentWeatherByCityIds(any(long[].class), eq(API_KEY));
+        verify(service, never()).getCurrentWeather(any(), anyString());
+        assertAll(
+                () -> assertTrue(StoredCitiesData.isStoredCityWeatherIsUpToDate(55.7522, 37.6156)),
+                () -> assertTrue(StoredCitiesData.isStoredCityWeatherIsUpToDate(48.8534, 2.3488)),
+                () -> assertEquals(524901, StoredCitiesData.findCurrentWeatherData(55.7522, 37.6156).getId())
+        );
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.maxonrash.store.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing CacheEngine class")
+public class CacheEngineTest {
+
+    @Test
+    public void whenCapacityIsExceededWithLru_thenLeastRecentlyUsedIsEvicted() {
+        CacheEngine<String, Integer> cache = new CacheEngine<>(2, EvictionPolicyType.LRU);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+        assertAll(
+                () -> assertEquals(1, cache.peek("a")),
+                () -> assertNull(cache.peek("b")),
+                () -> assertEquals(3, cache.peek("c"))
+        );
+    }
+
+    @Test
+    public void whenCapacityIsExceededWithLfu_thenLeastFrequentlyUsedIsEvicted() {
+        CacheEngine<String, Integer> cache = new CacheEngine<>(2, EvictionPolicyType.LFU);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.put("c", 3);
+        cache.put("d", 4);
+        assertAll(
+                () -> assertEquals(1, cache.peek("a")),
+                () -> assertNull(cache.peek("b")),
+                () -> assertNull(cache.peek("c")),
+                () -> assertEquals(4, cache.peek("d"))
+        );
+    }
+
+    @Test
+    public void whenRareKeysAreScannedWithWindowTinyLfu_thenPopularKeysStay() {
+        CacheEngine<Integer, Integer> cache = new CacheEngine<>(100, EvictionPolicyType.W_TINY_LFU);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+            for (int j = 0; j < 5; j++) {
+                cache.get(i);
+            }
+        }
+        for (int i = 1000; i < 2000; i++) {
+            cache.put(i, i);
+        }
+        for (int i = 0; i < 50; i++) {
+            assertNotNull(cache.peek(i), "popular key " + i + " was evicted");
+        }
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void whenLookupsAndEvictionsHappen_thenStatsAreCounted() {
+        CacheEngine<String, Integer> cache = new CacheEngine<>(1, EvictionPolicyType.LRU);
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("b");
+        cache.put("b", 2);
+        CacheStats stats = cache.stats();
+        assertAll(
+                () -> assertEquals(1, stats.getHitCount()),
+                () -> assertEquals(1, stats.getMissCount()),
+                () -> assertEquals(1, stats.getEvictionCount()),
+                () -> assertEquals(1, stats.getSize()),
+                () -> assertEquals(0.5, stats.getHitRatio())
+        );
+    }
+}
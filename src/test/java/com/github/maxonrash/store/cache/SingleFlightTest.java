@@ -0,0 +1,69 @@
+package com.github.maxonrash.store.cache;
+
+import com.github.maxonrash.exception.CallPerMinuteExceededException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing SingleFlight class")
+public class SingleFlightTest {
+
+    @Test
+    public void whenConcurrentCallsForSameKey_thenLoaderIsCalledOnce() throws Exception {
+        //given
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        //when
+        List<Future<String>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                    loads.incrementAndGet();
+                    release.await();
+                    return "Moscow";
+                })));
+            }
+            while (loads.get() == 0) {
+                Thread.onSpinWait();
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            //then
+            for (Future<String> result : results) {
+                assertEquals("Moscow", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    public void whenLoaderFails_thenWaitersGetSameException() {
+        //given
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> response = new CompletableFuture<>();
+
+        //when
+        CompletableFuture<String> first = singleFlight.executeAsync(1L, () -> response);
+        CompletableFuture<String> second = singleFlight.executeAsync(1L, () -> CompletableFuture.completedFuture("unexpected"));
+        response.completeExceptionally(new CallPerMinuteExceededException());
+
+        //then
+        ExecutionException firstError = assertThrows(ExecutionException.class, first::get);
+        ExecutionException secondError = assertThrows(ExecutionException.class, second::get);
+        assertInstanceOf(CallPerMinuteExceededException.class, firstError.getCause());
+        assertSame(firstError.getCause(), secondError.getCause());
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.maxonrash.transport;
+
+import com.github.maxonrash.dto.response.weather.current.CurrentWeatherResponseDTO;
+import com.github.maxonrash.exception.CallPerMinuteExceededException;
+import com.github.maxonrash.exception.InvalidApiKeyException;
+import com.github.maxonrash.service.GetCurrentWeatherService;
+import com.github.maxonrash.service.PooledGetCurrentWeatherService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Testing ApiKeyPool class")
+class ApiKeyPoolTest {
+
+    @Test
+    void whenKeysHaveWeights_thenCallsAreSpreadByWeightAndBenchedKeysAreSkipped() throws Exception {
+        //given
+        ApiKeyPool pool = ApiKeyPoolConfig.builder().key("first", 2).key("second", 1).build().createApiKeyPool();
+        Map<String, Integer> counts = new HashMap<>();
+
+        //when
+        for (int i = 0; i < 6; i++) {
+            counts.merge(pool.acquire(), 1, Integer::sum);
+        }
+        pool.reportThrottled("first");
+        String afterThrottle = pool.acquire();
+        pool.reportInvalid("second");
+
+        //then
+        assertAll(
+                () -> assertEquals(Map.of("first", 4, "second", 2), counts),
+                () -> assertEquals("second", afterThrottle),
+                () -> assertTrue(pool.isBenched("first")),
+                () -> assertTrue(pool.isQuarantined("second")),
+                () -> assertEquals(0, pool.getAvailableKeyCount()),
+                () -> assertThrows(CallPerMinuteExceededException.class, pool::acquire)
+        );
+        pool.restore("first");
+        assertEquals("first", pool.acquire());
+    }
+
+    @Test
+    void whenKeyIsThrottled_thenCallIsRepeatedWithAnotherKey() throws Exception {
+        //given
+        ApiKeyPool pool = ApiKeyPoolConfig.builder().key("first", 1).key("second", 1).key("third", 1)
+                .selection(ApiKeySelection.LEAST_RECENTLY_THROTTLED).benchDuration(Duration.ofMinutes(1)).build().createApiKeyPool();
+        GetCurrentWeatherService delegate = mock(GetCurrentWeatherService.class);
+        CurrentWeatherResponseDTO response = new CurrentWeatherResponseDTO();
+        when(delegate.getCurrentWeatherByLatAndLonString("lat=1.0&lon=2.0", "first")).thenThrow(new CallPerMinuteExceededException());
+        when(delegate.getCurrentWeatherByLatAndLonString("lat=1.0&lon=2.0", "second")).thenThrow(new InvalidApiKeyException());
+        when(delegate.getCurrentWeatherByLatAndLonString("lat=1.0&lon=2.0", "third")).thenReturn(response);
+        when(delegate.getCurrentWeatherByLatAndLonStringAsync(anyString(), anyString())).thenCallRealMethod();
+        GetCurrentWeatherService pooled = new PooledGetCurrentWeatherService(delegate, pool);
+
+        //when
+        CurrentWeatherResponseDTO result = pooled.getCurrentWeatherByLatAndLonString("lat=1.0&lon=2.0", "ignored");
+        CurrentWeatherResponseDTO asyncResult = pooled.getCurrentWeatherByLatAndLonStringAsync("lat=1.0&lon=2.0", "ignored").get(5, TimeUnit.SECONDS);
+
+        //then
+        assertSame(response, result);
+        assertSame(response, asyncResult);
+        assertTrue(pool.isBenched("first"));
+        assertTrue(pool.isQuarantined("second"));
+        verify(delegate, times(1)).getCurrentWeatherByLatAndLonString("lat=1.0&lon=2.0", "first");
+        verify(delegate, never()).getCurrentWeatherByLatAndLonString(anyString(), eq("ignored"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.maxonrash.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Testing HttpTransport class")
+class HttpTransportTest {
+    private HttpServer server;
+    private HttpTransport transport;
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile int failuresBeforeSuccess;
+    private volatile int failureStatus = 503;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/test", exchange -> {
+            boolean fail = calls.incrementAndGet() <= failuresBeforeSuccess;
+            byte[] body = (fail ? "{\"cod\":503}" : "{\"cod\":200}").getBytes(StandardCharsets.UTF_8);
+            if (fail) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+            }
+            exchange.sendResponseHeaders(fail ? failureStatus : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        transport = new HttpTransport(HttpTransportConfig.builder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .retryPolicy(RetryPolicy.builder()
+                        .maxAttempts(3)
+                        .initialBackoff(Duration.ofMillis(1))
+                        .maxBackoff(Duration.ofMillis(10))
+                        .build())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.stop(0);
+    }
+
+    private URI uri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/test");
+    }
+
+    @Test
+    void whenServerFailsTransiently_thenRequestIsRetried() throws Exception {
+        //given
+        failuresBeforeSuccess = 2;
+        //when
+        HttpResponse<String> response = transport.get(uri());
+        //then
+        assertEquals(200, response.statusCode());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void whenKeyIsThrottledOrNoPermitIsLeft_thenRequestIsNotRetried() throws Exception {
+        //given
+        failuresBeforeSuccess = 10;
+        failureStatus = 429;
+        //when
+        HttpResponse<String> throttled = transport.get(uri());
+        failureStatus = 503;
+        transport.setExtraAttemptPermit(() -> false);
+        HttpResponse<String> notPermitted = transport.getAsync(uri()).get();
+        //then
+        assertEquals(429, throttled.statusCode());
+        assertEquals(503, notPermitted.statusCode());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void whenServerKeepsFailing_thenLastResponseIsReturnedAfterMaxAttempts() throws Exception {
+        //given
+        failuresBeforeSuccess = 10;
+        //when
+        HttpResponse<String> response = transport.getAsync(uri()).get();
+        //then
+        assertEquals(503, response.statusCode());
+        assertEquals(3, calls.get());
+    }
+}